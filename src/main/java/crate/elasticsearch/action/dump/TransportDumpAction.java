@@ -2,6 +2,7 @@ package crate.elasticsearch.action.dump;
 
 import crate.elasticsearch.action.dump.parser.DumpParser;
 import crate.elasticsearch.action.export.AbstractTransportExportAction;
+import crate.elasticsearch.export.ExportExecutor;
 import crate.elasticsearch.export.Exporter;
 import org.elasticsearch.cache.recycler.CacheRecycler;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
@@ -25,10 +26,11 @@ public class TransportDumpAction extends AbstractTransportExportAction {
                                TransportService transportService, IndicesService indicesService,
                                ScriptService scriptService,
                                CacheRecycler cacheRecycler, PageCacheRecycler pageRecycler,
-                               DumpParser dumpParser, Exporter exporter, NodeEnvironment nodeEnv) {
+                               DumpParser dumpParser, Exporter exporter, ExportExecutor exportExecutor,
+                               NodeEnvironment nodeEnv) {
         super(settings, threadPool, clusterService, transportService, indicesService, scriptService,
                 cacheRecycler, pageRecycler,
-                dumpParser, exporter, nodeEnv);
+                dumpParser, exporter, exportExecutor, nodeEnv);
     }
 
     @Override
@@ -25,14 +25,17 @@ public class DumpDirectoryParseElement implements SearchParseElement {
     }
 
     /**
-     * Set the constant filename_pattern prefixed with a target directory as output_file to the context
+     * Set the constant filename_pattern prefixed with a target directory as output_file to the context.
+     * Parallel dumps get the pattern containing the part number, the extension depends on the format and the
+     * compression.
      *
      * @param context
      * @param directory
      */
     public void setOutPutFile(ExportContext context, String directory) {
         File dir = new File(directory);
-        File file = new File(dir, DumpParser.FILENAME_PATTERN);
+        String pattern = DumpParser.filenamePattern(context.format(), context.compression(), context.parallelism() > 1);
+        File file = new File(dir, pattern);
         context.outputFile(file.getPath());
     }
 
@@ -1,8 +1,15 @@
 package crate.elasticsearch.action.dump.parser;
 
 import crate.elasticsearch.action.export.ExportContext;
+import crate.elasticsearch.action.export.parser.ExportCompressionParseElement;
+import crate.elasticsearch.action.export.parser.ExportFileOptionsParseElement;
 import crate.elasticsearch.action.export.parser.ExportForceOverwriteParseElement;
+import crate.elasticsearch.action.export.parser.ExportFormatParseElement;
+import crate.elasticsearch.action.export.parser.ExportParallelismParseElement;
+import crate.elasticsearch.action.export.parser.ExportPipelineParseElement;
 import crate.elasticsearch.action.export.parser.IExportParser;
+import crate.elasticsearch.export.Compression;
+import crate.elasticsearch.export.Format;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.inject.Inject;
@@ -26,7 +33,9 @@ public class DumpParser implements IExportParser {
     public static final String[] DEFAULT_FIELDS = {"_id", "_source", "_timestamp", "_ttl", "_version", "_index",
                                                    "_type", "_routing"};
     public static final String FILENAME_PATTERN = "${cluster}_${index}_${shard}.json.gz";
+    public static final String PART_FILENAME_PATTERN = "${cluster}_${index}_${shard}_${part}.json.gz";
     public static final String DEFAULT_DIR = "dump";
+    public static final int DEFAULT_COMPRESSION_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
 
 
     private final ImmutableMap<String, SearchParseElement> elementParsers;
@@ -39,9 +48,28 @@ public class DumpParser implements IExportParser {
         elementParsers.putAll(queryPhase.parseElements());
         elementParsers.put("force_overwrite", new ExportForceOverwriteParseElement());
         elementParsers.put("directory", directoryParseElement);
+        elementParsers.put("parallelism", new ExportParallelismParseElement());
+        elementParsers.put("pipeline", new ExportPipelineParseElement());
+        elementParsers.put("file_options", new ExportFileOptionsParseElement());
+        elementParsers.put("compression", new ExportCompressionParseElement());
+        elementParsers.put("format", new ExportFormatParseElement());
         this.elementParsers = ImmutableMap.copyOf(elementParsers);
     }
 
+    /**
+     * Get the file name pattern of dumped files, the extension depends on
+     * the format and the compression.
+     *
+     * @param format      the format of the dump
+     * @param compression the compression of the dump
+     * @param parts       whether the shards get dumped in parts
+     * @return the file name pattern
+     */
+    public static String filenamePattern(Format format, Compression compression, boolean parts) {
+        String pattern = parts ? PART_FILENAME_PATTERN : FILENAME_PATTERN;
+        return pattern.substring(0, pattern.indexOf('.') + 1) + format.extension() + "." + compression.extension();
+    }
+
     /**
      * Main method of this class to parse given payload of _dump action
      *
@@ -73,6 +101,9 @@ public class DumpParser implements IExportParser {
             if (context.outputFile() == null) {
                 directoryParseElement.setOutPutFile(context, DEFAULT_DIR);
                 this.ensureDefaultDirectory(context);
+            } else {
+                // the directory might have been parsed before the parallelism, the format or the compression
+                directoryParseElement.setOutPutFile(context, new File(context.unresolvedOutputFile()).getParent());
             }
             context.mappings(true);
             context.settings(true);
@@ -97,22 +128,26 @@ public class DumpParser implements IExportParser {
      * @param context
      */
     private void setDefaults(ExportContext context) {
-        context.compression(true);
+        context.compression(Compression.GZIP);
+        context.compressionThreads(DEFAULT_COMPRESSION_THREADS);
         for (int i = 0; i < DEFAULT_FIELDS.length; i++) {
             context.fieldNames().add(DEFAULT_FIELDS[i]);
         }
     }
 
     /**
-     * create default dump directory if it does not exist
+     * create default dump directory if it does not exist, striped dumps
+     * need it in every data location the parts get written to
      *
      * @param context
      */
     private void ensureDefaultDirectory(ExportContext context) {
-        File dumpFile = new File(context.outputFile());
-        File dumpDir = new File(dumpFile.getParent());
-        if (!dumpDir.exists()) {
-            dumpDir.mkdir();
+        for (int part = 0; part < Math.max(1, context.parallelism()); part++) {
+            File dumpFile = new File(context.partOutputFile(part));
+            File dumpDir = new File(dumpFile.getParent());
+            if (!dumpDir.exists()) {
+                dumpDir.mkdir();
+            }
         }
     }
 }
@@ -1,6 +1,7 @@
 package crate.elasticsearch.action.export;
 
 import crate.elasticsearch.action.export.parser.IExportParser;
+import crate.elasticsearch.export.ExportExecutor;
 import crate.elasticsearch.export.Exporter;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ShardOperationFailedException;
@@ -34,6 +35,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static org.elasticsearch.common.collect.Lists.newArrayList;
@@ -52,17 +54,19 @@ public abstract class AbstractTransportExportAction extends TransportBroadcastOp
 
     private final Exporter exporter;
 
+    private final ExportExecutor exportExecutor;
+
     private final CacheRecycler cacheRecycler;
     private final PageCacheRecycler pageRecycler;
 
-    private String nodePath;
+    private String[] nodePaths;
 
     public AbstractTransportExportAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
                                          TransportService transportService, IndicesService indicesService,
                                          ScriptService scriptService,
                                          CacheRecycler cacheRecycler, PageCacheRecycler pageRecycler,
                                          IExportParser exportParser, Exporter exporter,
-                                         NodeEnvironment nodeEnv) {
+                                         ExportExecutor exportExecutor, NodeEnvironment nodeEnv) {
         super(settings, threadPool, clusterService, transportService);
         this.indicesService = indicesService;
         this.scriptService = scriptService;
@@ -70,17 +74,23 @@ public abstract class AbstractTransportExportAction extends TransportBroadcastOp
         this.pageRecycler = pageRecycler;
         this.exportParser = exportParser;
         this.exporter = exporter;
+        this.exportExecutor = exportExecutor;
         if(nodeEnv.hasNodeFile()){
             File[] paths = nodeEnv.nodeDataLocations();
-            if (paths.length > 0) {
-                nodePath = paths[0].getAbsolutePath();
+            nodePaths = new String[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                nodePaths[i] = paths[i].getAbsolutePath();
             }
         }
     }
 
+    /**
+     * The shard operation only waits for the export in the pool of the
+     * {@link ExportExecutor}, so it does not occupy a search thread.
+     */
     @Override
     protected String executor() {
-        return ThreadPool.Names.SEARCH;
+        return ThreadPool.Names.GENERIC;
     }
 
     @Override
@@ -145,10 +155,21 @@ public abstract class AbstractTransportExportAction extends TransportBroadcastOp
     }
 
 
+    /**
+     * Export the shard in the export pool, larger shards get exported first.
+     */
     @Override
-    protected ShardExportResponse shardOperation(ShardExportRequest request) throws ElasticsearchException {
-
+    protected ShardExportResponse shardOperation(final ShardExportRequest request) throws ElasticsearchException {
+        IndexShard indexShard = indicesService.indexServiceSafe(request.index()).shardSafe(request.shardId());
+        return exportExecutor.execute(indexShard.storeStats().getSizeInBytes(), new Callable<ShardExportResponse>() {
+            @Override
+            public ShardExportResponse call() throws Exception {
+                return exportShard(request);
+            }
+        });
+    }
 
+    private ShardExportResponse exportShard(ShardExportRequest request) throws ElasticsearchException {
         IndexService indexService = indicesService.indexServiceSafe(request.index());
         IndexShard indexShard = indexService.shardSafe(request.shardId());
 
@@ -156,7 +177,7 @@ public abstract class AbstractTransportExportAction extends TransportBroadcastOp
         ExportContext context = new ExportContext(0,
             new ShardSearchRequest().types(request.types()).filteringAliases(request.filteringAliases()),
             shardTarget, indexShard.acquireSearcher("inout-plugin"), indexService, indexShard, scriptService,
-                cacheRecycler, pageRecycler, nodePath);
+                cacheRecycler, pageRecycler, nodePaths, exporter.stripes());
         ExportContext.setCurrent(context);
 
         try {
@@ -169,7 +190,15 @@ public abstract class AbstractTransportExportAction extends TransportBroadcastOp
                     return new ShardExportResponse(shardTarget.nodeIdText(), request.index(), request.shardId(), context.outputCmd(), context.outputCmdArray(), context.outputFile());
                 } else {
                     Exporter.Result res = exporter.execute(context);
-                    return new ShardExportResponse(shardTarget.nodeIdText(), request.index(), request.shardId(), context.outputCmd(), context.outputCmdArray(), context.outputFile(), res.outputResult.stdErr, res.outputResult.stdOut, res.outputResult.exit, res.numExported);
+                    List<ShardExportResponse.Part> parts = null;
+                    if (context.parallelism() > 1) {
+                        parts = new ArrayList<ShardExportResponse.Part>(res.parts.size());
+                        for (int i = 0; i < res.parts.size(); i++) {
+                            Exporter.Result part = res.parts.get(i);
+                            parts.add(new ShardExportResponse.Part(i, context.partOutputFile(i), part.outputResult.stdErr, part.outputResult.stdOut, part.outputResult.exit, part.numExported));
+                        }
+                    }
+                    return new ShardExportResponse(shardTarget.nodeIdText(), request.index(), request.shardId(), context.outputCmd(), context.outputCmdArray(), context.outputFile(), res.outputResult.stdErr, res.outputResult.stdOut, res.outputResult.exit, res.numExported, parts, res.pipelineStats, res.throttleStats);
                 }
 
             } catch (Exception e) {
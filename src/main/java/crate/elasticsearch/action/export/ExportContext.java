@@ -1,5 +1,9 @@
 package crate.elasticsearch.action.export;
 
+import crate.elasticsearch.export.Compression;
+import crate.elasticsearch.export.ExportPipeline;
+import crate.elasticsearch.export.FileOptions;
+import crate.elasticsearch.export.Format;
 import crate.elasticsearch.export.Output;
 import crate.elasticsearch.export.OutputCommand;
 import crate.elasticsearch.export.OutputFile;
@@ -18,6 +22,9 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 
 /**
  * Container class for export specific informations.
@@ -27,24 +34,36 @@ public class ExportContext extends DefaultSearchContext {
     private static final String VAR_SHARD = "${shard}";
     private static final String VAR_INDEX = "${index}";
     private static final String VAR_CLUSTER = "${cluster}";
+    public static final String VAR_PART = "${part}";
 
     private List<String> outputCmdArray;
     private String outputCmd;
     private String outputFile;
     private boolean forceOverride = false;
-    private boolean compression;
-    private String nodePath;
+    private Format format = Format.JSON;
+    private Compression compression;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int compressionThreads = 1;
+    private String[] nodePaths;
+    private AtomicInteger stripes;
+    private int stripe = -1;
+    private FileOptions fileOptions = new FileOptions();
     private boolean mappings = false;
     private boolean settings = false;
+    private int parallelism = 1;
+    private boolean pipeline = false;
+    private int pipelineQueueSize = ExportPipeline.DEFAULT_QUEUE_SIZE;
+    private int pipelineBlockSize = ExportPipeline.DEFAULT_BLOCK_SIZE;
 
     public ExportContext(long id, ShardSearchRequest request, SearchShardTarget shardTarget,
                          Engine.Searcher engineSearcher, IndexService indexService, IndexShard indexShard,
                          ScriptService scriptService,
                          CacheRecycler cacheRecycler, PageCacheRecycler pageRecycler,
-                         String nodePath) {
+                         String[] nodePaths, AtomicInteger stripes) {
         super(id, request, shardTarget, engineSearcher, indexService, indexShard, scriptService,
                 cacheRecycler, pageRecycler);
-        this.nodePath = nodePath;
+        this.nodePaths = nodePaths == null ? new String[0] : nodePaths;
+        this.stripes = stripes;
     }
 
     public List<String> outputCmdArray() {
@@ -63,17 +82,24 @@ public class ExportContext extends DefaultSearchContext {
         this.outputCmd = applyVars(outputCmd);
     }
 
+    /**
+     * @return the output file of the first part, relative files are
+     *         resolved against the data location of the part
+     */
     public String outputFile() {
+        return outputFile == null ? null : resolve(outputFile, 0);
+    }
+
+    /**
+     * @return the output file as given, with the variables applied but
+     *         not resolved against a data location
+     */
+    public String unresolvedOutputFile() {
         return outputFile;
     }
 
     public void outputFile(String outputFile) {
-        outputFile = applyVars(outputFile);
-        File outFile = new File(outputFile);
-        if (!outFile.isAbsolute() && nodePath != null) {
-            outputFile = new File(nodePath, outputFile).getAbsolutePath();
-        }
-        this.outputFile = outputFile;
+        this.outputFile = applyVars(outputFile);
     }
 
     public boolean mappings() {
@@ -92,8 +118,19 @@ public class ExportContext extends DefaultSearchContext {
         this.settings = settings;
     }
 
+    /**
+     * @return the first data location of the node, null if there is none
+     */
     public String nodePath() {
-        return nodePath;
+        return nodePaths.length > 0 ? nodePaths[0] : null;
+    }
+
+    public FileOptions fileOptions() {
+        return fileOptions;
+    }
+
+    public void fileOptions(FileOptions fileOptions) {
+        this.fileOptions = fileOptions;
     }
 
     public boolean forceOverride() {
@@ -104,14 +141,125 @@ public class ExportContext extends DefaultSearchContext {
         this.forceOverride = forceOverride;
     }
 
-    public void compression(boolean compression) {
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public void parallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean pipeline() {
+        return pipeline;
+    }
+
+    public void pipeline(boolean pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public int pipelineQueueSize() {
+        return pipelineQueueSize;
+    }
+
+    public void pipelineQueueSize(int pipelineQueueSize) {
+        this.pipelineQueueSize = pipelineQueueSize;
+    }
+
+    public int pipelineBlockSize() {
+        return pipelineBlockSize;
+    }
+
+    public void pipelineBlockSize(int pipelineBlockSize) {
+        this.pipelineBlockSize = pipelineBlockSize;
+    }
+
+    /**
+     * @param part the number of the exported part
+     * @return the output file of the given part
+     */
+    public String partOutputFile(int part) {
+        return outputFile == null ? null : resolve(applyPartVar(outputFile, part), part);
+    }
+
+    /**
+     * Resolve a relative file against the data location of the given part.
+     * Striped files are spread round robin over the data locations: the
+     * first striped file of a shard takes the next stripes of the node, one
+     * per part, so the parts of a shard and the shards of a node get
+     * written to different disks whatever their indices and shard ids are.
+     */
+    private String resolve(String file, int part) {
+        if (new File(file).isAbsolute() || nodePaths.length == 0) {
+            return file;
+        }
+        int location = 0;
+        if (fileOptions.placement() == FileOptions.Placement.STRIPED) {
+            if (stripe < 0) {
+                stripe = stripes.getAndAdd(Math.max(1, parallelism)) & Integer.MAX_VALUE;
+            }
+            location = (stripe + part) % nodePaths.length;
+        }
+        return new File(nodePaths[location], file).getAbsolutePath();
+    }
+
+    /**
+     * @param part the number of the exported part
+     * @return the output command of the given part
+     */
+    public String partOutputCmd(int part) {
+        return outputCmd == null ? null : applyPartVar(outputCmd, part);
+    }
+
+    /**
+     * @param part the number of the exported part
+     * @return the output command array of the given part
+     */
+    public List<String> partOutputCmdArray(int part) {
+        if (outputCmdArray == null) {
+            return null;
+        }
+        List<String> ret = new ArrayList<String>(outputCmdArray.size());
+        for (String arg : outputCmdArray) {
+            ret.add(applyPartVar(arg, part));
+        }
+        return ret;
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    public void format(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * @param compression the compression format, null for uncompressed output
+     */
+    public void compression(Compression compression) {
         this.compression = compression;
     }
 
-    public boolean compression() {
+    public Compression compression() {
         return this.compression;
     }
 
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    public void compressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int compressionThreads() {
+        return compressionThreads;
+    }
+
+    public void compressionThreads(int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
     /**
      * Replaces variable placeholder with actual value in all elements of templateArray
      *
@@ -127,7 +275,8 @@ public class ExportContext extends DefaultSearchContext {
     }
 
     /**
-     * Replaces variable placeholder with actual value
+     * Replaces variable placeholder with actual value. The part placeholder
+     * is kept, it gets replaced when the output of a part is created.
      *
      * @param template
      * @return
@@ -139,6 +288,17 @@ public class ExportContext extends DefaultSearchContext {
         return template;
     }
 
+    /**
+     * Replaces the part placeholder with the number of the part
+     *
+     * @param template
+     * @param part
+     * @return
+     */
+    private String applyPartVar(String template, int part) {
+        return template.replace(VAR_PART, String.valueOf(part));
+    }
+
     /**
      * Method to retrieve name of cluster
      *
@@ -148,15 +308,30 @@ public class ExportContext extends DefaultSearchContext {
         return ClusterName.clusterNameFromSettings(this.indexShard().indexSettings()).value();
     }
 
-    public Output createOutput() {
+    public Output createOutput(int part) {
+        return createOutput(part, compression != null, null);
+    }
+
+    /**
+     * Create the output of a part, the compression might be disabled if
+     * it is done by the caller.
+     *
+     * @param part        the number of the exported part
+     * @param compression whether the output gets compressed
+     * @param executor    the executor to compress with more than one thread
+     */
+    public Output createOutput(int part, boolean compression, Executor executor) {
+        Output output;
         if (outputFile()!=null){
-            return new OutputFile(outputFile(), forceOverride(), compression);
+            output = new OutputFile(partOutputFile(part), forceOverride(), compression, fileOptions);
         } else {
             if (outputCmd()!=null){
-                return new OutputCommand(outputCmd(), compression);
+                output = new OutputCommand(partOutputCmd(part), compression);
             } else {
-                return new OutputCommand(outputCmdArray(), compression);
+                output = new OutputCommand(partOutputCmdArray(part), compression);
             }
         }
+        output.compressionOptions(this.compression, compressionLevel, compressionThreads, executor);
+        return output;
     }
 }
@@ -1,8 +1,11 @@
 package crate.elasticsearch.action.export;
 
+import crate.elasticsearch.export.PipelineStats;
+import crate.elasticsearch.throttle.ThrottleStats;
 import org.elasticsearch.action.support.broadcast.BroadcastShardOperationResponse;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -26,6 +29,82 @@ class ShardExportResponse extends BroadcastShardOperationResponse implements ToX
     private boolean dryRun = false;
     private Text node;
     private long numExported;
+    private List<Part> parts;
+    private PipelineStats pipelineStats;
+    private ThrottleStats throttleStats;
+
+    /**
+     * Result of a part of a shard exported in parallel.
+     */
+    public static class Part implements Streamable, ToXContent {
+
+        private int part;
+        private String file;
+        private String stderr;
+        private String stdout;
+        private int exitCode;
+        private long numExported;
+
+        Part() {
+        }
+
+        /**
+         * @param part        the number of the part
+         * @param file        written file (might be null)
+         * @param stderr      output written to standard error by the executed command
+         * @param stdout      output written to standard out by the executed command
+         * @param exitCode    exit code of the executed command
+         * @param numExported number of exported documents
+         */
+        public Part(int part, String file, String stderr, String stdout, int exitCode, long numExported) {
+            this.part = part;
+            this.file = file;
+            this.stderr = stderr;
+            this.stdout = stdout;
+            this.exitCode = exitCode;
+            this.numExported = numExported;
+        }
+
+        public long getNumExported() {
+            return numExported;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            part = in.readVInt();
+            file = in.readOptionalString();
+            stderr = in.readOptionalString();
+            stdout = in.readOptionalString();
+            exitCode = in.readVInt();
+            numExported = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(part);
+            out.writeOptionalString(file);
+            out.writeOptionalString(stderr);
+            out.writeOptionalString(stdout);
+            out.writeVInt(exitCode);
+            out.writeVLong(numExported);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("part", part);
+            builder.field("numExported", numExported);
+            if (file != null) {
+                builder.field("output_file", file);
+            } else {
+                builder.field("stderr", stderr);
+                builder.field("stdout", stdout);
+                builder.field("exitcode", exitCode);
+            }
+            builder.endObject();
+            return builder;
+        }
+    }
 
     ShardExportResponse() {
     }
@@ -45,6 +124,27 @@ class ShardExportResponse extends BroadcastShardOperationResponse implements ToX
      * @param numExported number of exported documents
      */
     public ShardExportResponse(Text node, String index, int shardId, String cmd, List<String> cmdArray, String file, String stderr, String stdout, int exitCode, long numExported) {
+        this(node, index, shardId, cmd, cmdArray, file, stderr, stdout, exitCode, numExported, null, null, null);
+    }
+
+    /**
+     * Constructor for parallel exports
+     *
+     * @param node        Name of the Node
+     * @param index       Name of the index
+     * @param shardId     ID of the shard
+     * @param cmd         executed command (might be null)
+     * @param cmdArray    executed command array (might be null)
+     * @param file        written file (might be null)
+     * @param stderr      output written to standard error by the executed command
+     * @param stdout      output written to standard out by the executed command
+     * @param exitCode    exit code of the executed command
+     * @param numExported number of exported documents
+     * @param parts       results of the exported parts (might be null)
+     * @param pipelineStats busy and idle times of the pipeline stages (might be null)
+     * @param throttleStats limits of the node throttle and the time paused by it (might be null)
+     */
+    public ShardExportResponse(Text node, String index, int shardId, String cmd, List<String> cmdArray, String file, String stderr, String stdout, int exitCode, long numExported, List<Part> parts, PipelineStats pipelineStats, ThrottleStats throttleStats) {
         super(index, shardId);
         this.node = node;
         this.cmd = cmd;
@@ -54,6 +154,9 @@ class ShardExportResponse extends BroadcastShardOperationResponse implements ToX
         this.stdout = stdout;
         this.exitCode = exitCode;
         this.numExported = numExported;
+        this.parts = parts;
+        this.pipelineStats = pipelineStats;
+        this.throttleStats = throttleStats;
     }
 
     /**
@@ -103,6 +206,17 @@ class ShardExportResponse extends BroadcastShardOperationResponse implements ToX
         return numExported;
     }
 
+    public List<Part> getParts() {
+        return parts;
+    }
+
+    public PipelineStats getPipelineStats() {
+        return pipelineStats;
+    }
+
+    public ThrottleStats getThrottleStats() {
+        return throttleStats;
+    }
 
     public boolean dryRun() {
         return dryRun;
@@ -131,6 +245,21 @@ class ShardExportResponse extends BroadcastShardOperationResponse implements ToX
         numExported = in.readVLong();
         node = in.readOptionalText();
         dryRun = in.readBoolean();
+        if (in.readBoolean()) {
+            int size = in.readVInt();
+            parts = new ArrayList<Part>(size);
+            for (int i = 0; i < size; i++) {
+                Part part = new Part();
+                part.readFrom(in);
+                parts.add(part);
+            }
+        }
+        if (in.readBoolean()) {
+            pipelineStats = PipelineStats.readPipelineStats(in);
+        }
+        if (in.readBoolean()) {
+            throttleStats = ThrottleStats.readThrottleStats(in);
+        }
     }
 
     @Override
@@ -150,6 +279,27 @@ class ShardExportResponse extends BroadcastShardOperationResponse implements ToX
         out.writeVLong(numExported);
         out.writeOptionalText(node);
         out.writeBoolean(dryRun);
+        if (parts == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeVInt(parts.size());
+            for (Part part : parts) {
+                part.writeTo(out);
+            }
+        }
+        if (pipelineStats == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            pipelineStats.writeTo(out);
+        }
+        if (throttleStats == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            throttleStats.writeTo(out);
+        }
     }
 
     @Override
@@ -165,12 +315,25 @@ class ShardExportResponse extends BroadcastShardOperationResponse implements ToX
             builder.field("output_file", getFile());
         } else {
             builder.field("output_cmd", getCmd() != null ? getCmd() : getCmdArray());
-            if (!dryRun()) {
+            if (!dryRun() && parts == null) {
                 builder.field("stderr", getStderr());
                 builder.field("stdout", getStdout());
                 builder.field("exitcode", getExitCode());
             }
         }
+        if (pipelineStats != null) {
+            pipelineStats.toXContent(builder, params);
+        }
+        if (throttleStats != null) {
+            throttleStats.toXContent(builder, params);
+        }
+        if (parts != null) {
+            builder.startArray("parts");
+            for (Part part : parts) {
+                part.toXContent(builder, params);
+            }
+            builder.endArray();
+        }
         builder.endObject();
         return builder;
     }
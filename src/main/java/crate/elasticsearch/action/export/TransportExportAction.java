@@ -1,6 +1,7 @@
 package crate.elasticsearch.action.export;
 
 import crate.elasticsearch.action.export.parser.ExportParser;
+import crate.elasticsearch.export.ExportExecutor;
 import crate.elasticsearch.export.Exporter;
 import org.elasticsearch.cache.recycler.CacheRecycler;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
@@ -24,10 +25,11 @@ public class TransportExportAction extends AbstractTransportExportAction {
                                  TransportService transportService, IndicesService indicesService,
                                  ScriptService scriptService,
                                  CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler,
-                                 ExportParser exportParser, Exporter exporter, NodeEnvironment nodeEnv) {
+                                 ExportParser exportParser, Exporter exporter, ExportExecutor exportExecutor,
+                                 NodeEnvironment nodeEnv) {
         super(settings, threadPool, clusterService, transportService, indicesService, scriptService,
                 cacheRecycler, pageCacheRecycler,
-                exportParser, exporter, nodeEnv);
+                exportParser, exporter, exportExecutor, nodeEnv);
     }
 
     @Override
@@ -6,21 +6,62 @@ import org.elasticsearch.search.SearchParseException;
 import org.elasticsearch.search.internal.SearchContext;
 
 import crate.elasticsearch.action.export.ExportContext;
+import crate.elasticsearch.export.Compression;
 
+/**
+ * Parser for token ``compression``. Might be the name of the compression
+ * format or an object defining the ``type``, the number of ``threads`` and
+ * the ``level`` of the compression.
+ */
 public class ExportCompressionParseElement implements SearchParseElement {
 
     @Override
     public void parse(XContentParser parser, SearchContext context)
             throws Exception {
+        ExportContext exportContext = (ExportContext) context;
         XContentParser.Token token = parser.currentToken();
         if (token.isValue()) {
-            String lower = parser.text().toLowerCase();
-            if (lower.equals("gzip")) {
-                ((ExportContext) context).compression(true);
-            } else if (!lower.isEmpty()) {
-                throw new SearchParseException(context,
-                        "Compression format '" + lower + "' unknown or not supported.");
+            parseType(parser.text(), context);
+        } else if (token == XContentParser.Token.START_OBJECT) {
+            if (exportContext.compression() == null) {
+                exportContext.compression(Compression.GZIP);
             }
+            String fieldName = null;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    fieldName = parser.currentName();
+                } else if ("type".equals(fieldName)) {
+                    parseType(parser.text(), context);
+                } else if ("threads".equals(fieldName)) {
+                    int threads = parser.intValue();
+                    if (threads < 1) {
+                        throw new SearchParseException(context,
+                                "Compression option 'threads' must be at least 1");
+                    }
+                    exportContext.compressionThreads(threads);
+                } else if ("level".equals(fieldName)) {
+                    int level = parser.intValue();
+                    if (level < 0 || level > 9) {
+                        throw new SearchParseException(context,
+                                "Compression option 'level' must be between 0 and 9");
+                    }
+                    exportContext.compressionLevel(level);
+                } else {
+                    throw new SearchParseException(context,
+                            "Unknown compression option [" + fieldName + "]");
+                }
+            }
+        }
+    }
+
+    private void parseType(String type, SearchContext context) {
+        String lower = type.toLowerCase();
+        Compression compression = Compression.fromString(lower);
+        if (compression != null) {
+            ((ExportContext) context).compression(compression);
+        } else if (!lower.isEmpty()) {
+            throw new SearchParseException(context,
+                    "Compression format '" + lower + "' unknown or not supported.");
         }
     }
 
@@ -0,0 +1,64 @@
+package crate.elasticsearch.action.export.parser;
+
+import crate.elasticsearch.action.export.ExportContext;
+import crate.elasticsearch.export.FileChannelOutputStream;
+import crate.elasticsearch.export.FileOptions;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+/**
+ * Parser for token ``file_options``. An object defining the
+ * ``buffer_size``, ``preallocate``, ``fsync`` and ``placement`` of the
+ * output files.
+ */
+public class ExportFileOptionsParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        ExportContext exportContext = (ExportContext) context;
+        XContentParser.Token token = parser.currentToken();
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new SearchParseException(context, "File options must be an object");
+        }
+        FileOptions options = new FileOptions();
+        String fieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                fieldName = parser.currentName();
+            } else if ("buffer_size".equals(fieldName)) {
+                long bufferSize = ByteSizeValue.parseBytesSizeValue(parser.text()).bytes();
+                if (bufferSize < 1 || bufferSize > FileChannelOutputStream.MAX_BUFFER_SIZE) {
+                    throw new SearchParseException(context, "File option 'buffer_size' must be between 1b and 64mb");
+                }
+                options.bufferSize((int) bufferSize);
+            } else if ("preallocate".equals(fieldName)) {
+                options.preallocate(ByteSizeValue.parseBytesSizeValue(parser.text()).bytes());
+            } else if ("fsync".equals(fieldName)) {
+                String fsync = parser.text();
+                if ("none".equals(fsync)) {
+                    options.fsync(false);
+                } else if ("close".equals(fsync)) {
+                    options.fsync(true);
+                } else {
+                    long interval = ByteSizeValue.parseBytesSizeValue(fsync).bytes();
+                    if (interval < 1) {
+                        throw new SearchParseException(context, "File option 'fsync' must be 'none', 'close' or a size");
+                    }
+                    options.fsync(true).fsyncInterval(interval);
+                }
+            } else if ("placement".equals(fieldName)) {
+                FileOptions.Placement placement = FileOptions.Placement.fromString(parser.text());
+                if (placement == null) {
+                    throw new SearchParseException(context, "Placement '" + parser.text() + "' unknown or not supported.");
+                }
+                options.placement(placement);
+            } else {
+                throw new SearchParseException(context, "Unknown file option [" + fieldName + "]");
+            }
+        }
+        exportContext.fileOptions(options);
+    }
+}
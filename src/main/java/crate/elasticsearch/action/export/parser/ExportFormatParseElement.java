@@ -0,0 +1,27 @@
+package crate.elasticsearch.action.export.parser;
+
+import crate.elasticsearch.action.export.ExportContext;
+import crate.elasticsearch.export.Format;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+/**
+ * Parser for token ``format``. Defines whether the exported objects get
+ * written as JSON lines or as SMILE records.
+ */
+public class ExportFormatParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            Format format = Format.fromString(parser.text());
+            if (format == null) {
+                throw new SearchParseException(context, "Format '" + parser.text() + "' unknown or not supported.");
+            }
+            ((ExportContext) context).format(format);
+        }
+    }
+}
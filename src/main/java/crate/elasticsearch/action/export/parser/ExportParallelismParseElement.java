@@ -0,0 +1,26 @@
+package crate.elasticsearch.action.export.parser;
+
+import crate.elasticsearch.action.export.ExportContext;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+/**
+ * Parser for token ``parallelism``. Defines the number of parts the
+ * segments of a shard get exported in concurrently.
+ */
+public class ExportParallelismParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            int parallelism = parser.intValue();
+            if (parallelism < 1) {
+                throw new SearchParseException(context, "Parameter 'parallelism' must be at least 1");
+            }
+            ((ExportContext) context).parallelism(parallelism);
+        }
+    }
+}
@@ -34,9 +34,13 @@ public class ExportParser implements IExportParser {
         elementParsers.put("output_file", new ExportOutputFileParseElement());
         elementParsers.put("force_overwrite", new ExportForceOverwriteParseElement());
         elementParsers.put("compression", new ExportCompressionParseElement());
+        elementParsers.put("format", new ExportFormatParseElement());
         elementParsers.put("explain", new ExplainParseElement());
         elementParsers.put("mappings", new ExportMappingsParseElement());
         elementParsers.put("settings", new ExportSettingsParseElement());
+        elementParsers.put("parallelism", new ExportParallelismParseElement());
+        elementParsers.put("pipeline", new ExportPipelineParseElement());
+        elementParsers.put("file_options", new ExportFileOptionsParseElement());
         this.elementParsers = ImmutableMap.copyOf(elementParsers);
     }
 
@@ -58,13 +62,34 @@ public class ExportParser implements IExportParser {
             if (context.outputCmdArray() != null || context.outputCmd() != null) {
                 throw new SearchParseException(context, "Concurrent definition of 'output_cmd' and 'output_file'");
             }
+            if (context.parallelism() > 1 && !context.outputFile().contains(ExportContext.VAR_PART)) {
+                throw new SearchParseException(context, "Parameter 'parallelism' requires the variable " + ExportContext.VAR_PART + " in 'output_file'");
+            }
         } else if (context.outputCmdArray() == null && context.outputCmd() == null) {
             throw new SearchParseException(context, "'output_cmd' or 'output_file' has not been defined");
         } else if (context.outputFile() == null && context.settings()) {
             throw new SearchParseException(context, "Parameter 'settings' requires usage of 'output_file'");
         } else if (context.outputFile() == null && context.mappings()) {
             throw new SearchParseException(context, "Parameter 'mappings' requires usage of 'output_file'");
+        } else if (context.parallelism() > 1 && !outputCmdHasPart(context)) {
+            throw new SearchParseException(context, "Parameter 'parallelism' requires the variable " + ExportContext.VAR_PART + " in 'output_cmd'");
+        }
+    }
+
+    /**
+     * @return true if the output command of the parts differ by the part
+     *         variable, so the parts do not write to the same target
+     */
+    private static boolean outputCmdHasPart(ExportContext context) {
+        if (context.outputCmd() != null) {
+            return context.outputCmd().contains(ExportContext.VAR_PART);
+        }
+        for (String arg : context.outputCmdArray()) {
+            if (arg.contains(ExportContext.VAR_PART)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
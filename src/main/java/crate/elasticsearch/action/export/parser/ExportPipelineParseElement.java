@@ -0,0 +1,46 @@
+package crate.elasticsearch.action.export.parser;
+
+import crate.elasticsearch.action.export.ExportContext;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+/**
+ * Parser for token ``pipeline``. Might be a boolean flag or an object
+ * defining the ``queue_size`` and the ``block_size`` of the pipeline.
+ */
+public class ExportPipelineParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        ExportContext exportContext = (ExportContext) context;
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            exportContext.pipeline(parser.booleanValue());
+        } else if (token == XContentParser.Token.START_OBJECT) {
+            exportContext.pipeline(true);
+            String fieldName = null;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    fieldName = parser.currentName();
+                } else if ("queue_size".equals(fieldName)) {
+                    int queueSize = parser.intValue();
+                    if (queueSize < 1) {
+                        throw new SearchParseException(context, "Pipeline option 'queue_size' must be at least 1");
+                    }
+                    exportContext.pipelineQueueSize(queueSize);
+                } else if ("block_size".equals(fieldName)) {
+                    long blockSize = ByteSizeValue.parseBytesSizeValue(parser.text()).bytes();
+                    if (blockSize < 1 || blockSize > Integer.MAX_VALUE) {
+                        throw new SearchParseException(context, "Pipeline option 'block_size' must be between 1b and 2gb");
+                    }
+                    exportContext.pipelineBlockSize((int) blockSize);
+                } else {
+                    throw new SearchParseException(context, "Unknown pipeline option [" + fieldName + "]");
+                }
+            }
+        }
+    }
+}
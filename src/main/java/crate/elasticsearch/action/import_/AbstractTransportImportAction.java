@@ -1,10 +1,14 @@
 package crate.elasticsearch.action.import_;
 
 import crate.elasticsearch.action.import_.parser.IImportParser;
+import crate.elasticsearch.import_.BulkLoad;
+import crate.elasticsearch.import_.BulkLoadOptions;
+import crate.elasticsearch.import_.Claims;
 import crate.elasticsearch.import_.Importer;
 import crate.elasticsearch.script.ScriptProvider;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.FailedNodeException;
 import org.elasticsearch.action.support.nodes.TransportNodesOperationAction;
 import org.elasticsearch.cluster.ClusterName;
@@ -32,7 +36,7 @@ public abstract class AbstractTransportImportAction extends TransportNodesOperat
 
     private Importer importer;
 
-    private String nodePath = "";
+    private String[] nodePaths = new String[0];
     
     private final ScriptService scriptService;
 
@@ -51,12 +55,85 @@ public abstract class AbstractTransportImportAction extends TransportNodesOperat
         this.scriptService=scriptService;
         if(nodeEnv.hasNodeFile()){
             File[] paths = nodeEnv.nodeDataLocations();
-            if (paths.length > 0) {
-                nodePath = paths[0].getAbsolutePath();
+            nodePaths = new String[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                nodePaths[i] = paths[i].getAbsolutePath();
             }
         }
     }
 
+    /**
+     * A bulk load restores the settings of the indices and a shared import
+     * deletes its claims once all nodes are done with the import. The
+     * settings of the existing indices are recorded before the import, so
+     * they get restored even if nodes or the whole import fail.
+     */
+    @Override
+    protected void doExecute(final ImportRequest request, final ActionListener<ImportResponse> listener) {
+        final ImportContext context = new ImportContext(nodePaths);
+        try {
+            importParser.parseSource(context, request.source());
+        } catch (Exception e) {
+            // the nodes report the parse failure
+            super.doExecute(request, listener);
+            return;
+        }
+        final BulkLoadOptions bulkLoadOptions = context.bulkLoad();
+        if (bulkLoadOptions == null && !context.shared()) {
+            super.doExecute(request, listener);
+            return;
+        }
+        final BulkLoad bulkLoad;
+        if (bulkLoadOptions == null) {
+            bulkLoad = null;
+        } else {
+            // the switched indices are marked with the import id
+            bulkLoad = new BulkLoad(request.importId());
+        }
+        super.doExecute(request, new ActionListener<ImportResponse>() {
+            @Override
+            public void onResponse(final ImportResponse response) {
+                threadPool.generic().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (bulkLoad != null) {
+                                response.setBulkLoadStats(importer.finishBulkLoad(bulkLoadOptions, bulkLoad));
+                            }
+                        } catch (Throwable e) {
+                            listener.onFailure(e);
+                            return;
+                        } finally {
+                            if (context.shared()) {
+                                response.setUnfinished(Claims.finish(context.directories(), request.importId()));
+                            }
+                        }
+                        listener.onResponse(response);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final Throwable e) {
+                if (bulkLoad == null) {
+                    listener.onFailure(e);
+                    return;
+                }
+                threadPool.generic().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            importer.finishBulkLoad(bulkLoadOptions, bulkLoad);
+                        } catch (Throwable t) {
+                            logger.warn("Failed to restore the settings of the bulk load", t);
+                        }
+                        listener.onFailure(e);
+                    }
+                });
+            }
+        });
+    }
+
     @Override
     protected String executor() {
         return ThreadPool.Names.INDEX;
@@ -123,7 +200,7 @@ public abstract class AbstractTransportImportAction extends TransportNodesOperat
     @Override
     protected NodeImportResponse nodeOperation(NodeImportRequest request)
             throws ElasticsearchException {
-        ImportContext context = new ImportContext(nodePath);
+        ImportContext context = new ImportContext(nodePaths);
         BytesReference source = request.source();
         importParser.parseSource(context, source);
         scriptProvider.prepareContextForScriptExecution(context, scriptService);
@@ -1,20 +1,36 @@
 package crate.elasticsearch.action.import_;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.elasticsearch.script.ExecutableScript;
 
+import crate.elasticsearch.export.Compression;
+import crate.elasticsearch.export.Format;
+import crate.elasticsearch.import_.BulkLoadOptions;
+import crate.elasticsearch.import_.BulkOptions;
 import crate.elasticsearch.script.IScriptContext;
 
 public class ImportContext implements IScriptContext{
 
-    private String nodePath;
-    private boolean compression;
+    public static final long DEFAULT_RANGE_SIZE = 64 * 1024 * 1024;
+
+    private String[] nodePaths;
+    private Format format = Format.JSON;
+    private Compression compression;
     private String directory;
+    private String inputCmd;
+    private List<String> inputCmdArray;
     private Pattern file_pattern;
+    private int parallelism = 1;
+    private long rangeSize = DEFAULT_RANGE_SIZE;
+    private BulkOptions bulkOptions = new BulkOptions();
+    private boolean shared = false;
+    private BulkLoadOptions bulkLoad;
     private boolean mappings = false;
     private boolean settings = false;
     private String scriptString;
@@ -23,17 +39,28 @@ public class ImportContext implements IScriptContext{
     private Map<String, Object> executionContext;
     private ExecutableScript executableScript;
     
-	public ImportContext(String nodePath) {
+	public ImportContext(String[] nodePaths) {
 		super();
-        this.nodePath = nodePath;
+        this.nodePaths = nodePaths == null ? new String[0] : nodePaths;
         this.executionContext = new HashMap<String, Object>();
     }
 
-	public boolean compression() {
+    public Format format() {
+        return format;
+    }
+
+    public void format(Format format) {
+        this.format = format;
+    }
+
+	public Compression compression() {
         return compression;
     }
 
-    public void compression(boolean compression) {
+    /**
+     * @param compression the compression format, null for uncompressed files
+     */
+    public void compression(Compression compression) {
         this.compression = compression;
     }
 
@@ -42,12 +69,108 @@ public class ImportContext implements IScriptContext{
     }
 
     public void directory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * A relative directory is looked up in all data locations of the node,
+     * as striped exports spread their files over them.
+     *
+     * @return the directories to import the files of
+     */
+    public List<File> directories() {
+        List<File> directories = new ArrayList<File>(Math.max(1, nodePaths.length));
+        if (directory == null) {
+            return directories;
+        }
         File file = new File(directory);
-        if (!file.isAbsolute() && nodePath != null) {
-            file = new File(nodePath, directory);
-            directory = file.getAbsolutePath();
+        if (file.isAbsolute() || nodePaths.length == 0) {
+            directories.add(file);
+        } else {
+            for (String nodePath : nodePaths) {
+                directories.add(new File(nodePath, directory));
+            }
         }
-        this.directory = directory;
+        return directories;
+    }
+
+    /**
+     * @return the number of files imported concurrently
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public void parallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the size of the ranges large files are split into, if the
+     * parallelism is greater than 1
+     */
+    public long rangeSize() {
+        return rangeSize;
+    }
+
+    public void rangeSize(long rangeSize) {
+        this.rangeSize = rangeSize;
+    }
+
+    public BulkOptions bulkOptions() {
+        return bulkOptions;
+    }
+
+    public void bulkOptions(BulkOptions bulkOptions) {
+        this.bulkOptions = bulkOptions;
+    }
+
+    /**
+     * @return true if the import directory is shared by the nodes, which
+     * claim the files and ranges they import
+     */
+    public boolean shared() {
+        return shared;
+    }
+
+    public void shared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * @return the options of a bulk load, null if the import is no bulk
+     * load
+     */
+    public BulkLoadOptions bulkLoad() {
+        return bulkLoad;
+    }
+
+    public void bulkLoad(BulkLoadOptions bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    public String inputCmd() {
+        return inputCmd;
+    }
+
+    public void inputCmd(String inputCmd) {
+        this.inputCmd = inputCmd;
+    }
+
+    public List<String> inputCmdArray() {
+        return inputCmdArray;
+    }
+
+    public void inputCmdArray(List<String> inputCmdArray) {
+        this.inputCmdArray = inputCmdArray;
+    }
+
+    /**
+     * @return true if the objects are read from the standard out of a
+     * command instead of the files of a directory
+     */
+    public boolean hasInputCmd() {
+        return inputCmd != null || inputCmdArray != null;
     }
 
     public Pattern file_pattern() {
@@ -2,6 +2,7 @@ package crate.elasticsearch.action.import_;
 
 import org.elasticsearch.action.support.nodes.NodesOperationRequest;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -15,6 +16,8 @@ public class ImportRequest extends NodesOperationRequest<ImportRequest> {
     private String type;
     private String index;
 
+    private String importId = Strings.randomBase64UUID();
+
     /**
      * Constructs a new import request against the provided nodes. No nodes provided
      * means it will run against all nodes.
@@ -56,12 +59,20 @@ public class ImportRequest extends NodesOperationRequest<ImportRequest> {
         this.index = index;
     }
 
+    /**
+     * The id of this import, shared imports claim their files under it.
+     */
+    public String importId() {
+        return importId;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
         index = in.readOptionalString();
         type = in.readOptionalString();
         source = in.readBytesReference();
+        importId = in.readString();
     }
 
     @Override
@@ -70,6 +81,7 @@ public class ImportRequest extends NodesOperationRequest<ImportRequest> {
         out.writeOptionalString(index);
         out.writeOptionalString(type);
         out.writeBytesReference(source);
+        out.writeString(importId);
     }
 
 }
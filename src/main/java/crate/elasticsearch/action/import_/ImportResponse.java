@@ -11,10 +11,15 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
+import crate.elasticsearch.import_.BulkLoadStats;
+import crate.elasticsearch.import_.Claims;
+
 public class ImportResponse extends NodesOperationResponse<NodeImportResponse> implements ToXContent {
 
     private List<NodeImportResponse> responses;
     private List<FailedNodeException> nodeFailures;
+    private BulkLoadStats bulkLoadStats;
+    private List<Claims.Unfinished> unfinished;
 
     public ImportResponse() {
     }
@@ -29,6 +34,26 @@ public class ImportResponse extends NodesOperationResponse<NodeImportResponse> i
         return responses;
     }
 
+    public BulkLoadStats getBulkLoadStats() {
+        return bulkLoadStats;
+    }
+
+    public void setBulkLoadStats(BulkLoadStats bulkLoadStats) {
+        this.bulkLoadStats = bulkLoadStats;
+    }
+
+    /**
+     * @return the files and ranges of a shared import claimed by a node but
+     *         not imported, null if the import is not shared
+     */
+    public List<Claims.Unfinished> getUnfinished() {
+        return unfinished;
+    }
+
+    public void setUnfinished(List<Claims.Unfinished> unfinished) {
+        this.unfinished = unfinished;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params)
             throws IOException {
@@ -38,6 +63,16 @@ public class ImportResponse extends NodesOperationResponse<NodeImportResponse> i
             r.toXContent(builder, params);
         }
         builder.endArray();
+        if (bulkLoadStats != null) {
+            bulkLoadStats.toXContent(builder, params);
+        }
+        if (unfinished != null) {
+            builder.startArray("unfinished");
+            for (Claims.Unfinished unit : unfinished) {
+                unit.toXContent(builder, params);
+            }
+            builder.endArray();
+        }
         if (nodeFailures != null && nodeFailures.size() > 0) {
             builder.startArray("failures");
             for (FailedNodeException failure : nodeFailures) {
@@ -68,6 +103,16 @@ public class ImportResponse extends NodesOperationResponse<NodeImportResponse> i
             FailedNodeException e = new FailedNodeException(nodeId, msg, null);
             nodeFailures.add(e);
         }
+        if (in.readBoolean()) {
+            bulkLoadStats = BulkLoadStats.readBulkLoadStats(in);
+        }
+        if (in.readBoolean()) {
+            int unfinishedCount = in.readVInt();
+            unfinished = new ArrayList<Claims.Unfinished>(unfinishedCount);
+            for (int i = 0; i < unfinishedCount; i++) {
+                unfinished.add(Claims.Unfinished.readUnfinished(in));
+            }
+        }
     }
 
     @Override
@@ -82,5 +127,20 @@ public class ImportResponse extends NodesOperationResponse<NodeImportResponse> i
             out.writeString(e.nodeId());
             out.writeOptionalString(e.getMessage());
         }
+        if (bulkLoadStats == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            bulkLoadStats.writeTo(out);
+        }
+        if (unfinished == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeVInt(unfinished.size());
+            for (Claims.Unfinished unit : unfinished) {
+                unit.writeTo(out);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -9,11 +9,10 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 
 public class NodeImportRequest  extends NodeOperationRequest {
 
-    public static final int DEFAULT_BULK_SIZE = 10000;
-
     private BytesReference source;
     private String index;
     private String type;
+    private String importId;
 
     NodeImportRequest() {
     }
@@ -23,6 +22,7 @@ public class NodeImportRequest  extends NodeOperationRequest {
         this.source = request.source();
         this.index = request.index();
         this.type = request.type();
+        this.importId = request.importId();
     }
 
     @Override
@@ -31,6 +31,7 @@ public class NodeImportRequest  extends NodeOperationRequest {
         source = in.readBytesReference();
         index = in.readOptionalString();
         type = in.readOptionalString();
+        importId = in.readString();
     }
 
     @Override
@@ -39,6 +40,7 @@ public class NodeImportRequest  extends NodeOperationRequest {
         out.writeBytesReference(source);
         out.writeOptionalString(index);
         out.writeOptionalString(type);
+        out.writeString(importId);
     }
 
     public BytesReference source() {
@@ -53,7 +55,7 @@ public class NodeImportRequest  extends NodeOperationRequest {
         return type;
     }
 
-    public int bulkSize() {
-        return DEFAULT_BULK_SIZE;
+    public String importId() {
+        return importId;
     }
 }
@@ -10,7 +10,11 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 
+import crate.elasticsearch.import_.BulkStats;
 import crate.elasticsearch.import_.Importer;
+import crate.elasticsearch.import_.InputCommand;
+import crate.elasticsearch.import_.SharedStats;
+import crate.elasticsearch.throttle.ThrottleStats;
 
 public class NodeImportResponse extends NodeOperationResponse implements ToXContent {
 
@@ -45,6 +49,18 @@ public class NodeImportResponse extends NodeOperationResponse implements ToXCont
             builder.endObject();
         }
         builder.endArray();
+        if (result.inputCommand != null) {
+            result.inputCommand.toXContent(builder, params);
+        }
+        if (result.throttleStats != null) {
+            result.throttleStats.toXContent(builder, params);
+        }
+        if (result.bulkStats != null) {
+            result.bulkStats.toXContent(builder, params);
+        }
+        if (result.sharedStats != null) {
+            result.sharedStats.toXContent(builder, params);
+        }
         builder.endObject();
         return builder;
     }
@@ -64,6 +80,18 @@ public class NodeImportResponse extends NodeOperationResponse implements ToXCont
             counts.deletes = in.readInt();
             result.importCounts.add(counts);
         }
+        if (in.readBoolean()) {
+            result.throttleStats = ThrottleStats.readThrottleStats(in);
+        }
+        if (in.readBoolean()) {
+            result.bulkStats = BulkStats.readBulkStats(in);
+        }
+        if (in.readBoolean()) {
+            result.sharedStats = SharedStats.readSharedStats(in);
+        }
+        if (in.readBoolean()) {
+            result.inputCommand = InputCommand.Result.readResult(in);
+        }
     }
 
     @Override
@@ -78,6 +106,34 @@ public class NodeImportResponse extends NodeOperationResponse implements ToXCont
             out.writeInt(counts.invalid);
             out.writeInt(counts.deletes);
         }
+        if (result.throttleStats == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            result.throttleStats.writeTo(out);
+        }
+        if (result.bulkStats == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            result.bulkStats.writeTo(out);
+        }
+        if (result.sharedStats == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            result.sharedStats.writeTo(out);
+        }
+        if (result.inputCommand == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            result.inputCommand.writeTo(out);
+        }
+    }
+
+    public Importer.Result result() {
+        return result;
     }
 
     public static NodeImportResponse readNew(StreamInput in) throws IOException {
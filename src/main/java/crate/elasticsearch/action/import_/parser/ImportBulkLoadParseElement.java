@@ -0,0 +1,54 @@
+package crate.elasticsearch.action.import_.parser;
+
+import java.util.Locale;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import crate.elasticsearch.action.import_.ImportContext;
+import crate.elasticsearch.import_.BulkLoadOptions;
+
+/**
+ * Parser for token ``bulk_load``. Either a boolean or an object defining
+ * the ``max_num_segments`` to optimize to, the ``wait_for_status`` of the
+ * indices and the ``timeout`` to wait for it.
+ */
+public class ImportBulkLoadParseElement implements ImportParseElement {
+
+    @Override
+    public void parse(XContentParser parser, ImportContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            context.bulkLoad(parser.booleanValue() ? new BulkLoadOptions() : null);
+            return;
+        }
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new ImportParseException(context, "Bulk load options must be a boolean or an object");
+        }
+        BulkLoadOptions options = new BulkLoadOptions();
+        String fieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                fieldName = parser.currentName();
+            } else if ("max_num_segments".equals(fieldName)) {
+                int maxNumSegments = parser.intValue();
+                if (maxNumSegments < 0) {
+                    throw new ImportParseException(context, "Bulk load option 'max_num_segments' must not be negative");
+                }
+                options.maxNumSegments(maxNumSegments);
+            } else if ("wait_for_status".equals(fieldName)) {
+                try {
+                    options.waitForStatus(ClusterHealthStatus.valueOf(parser.text().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new ImportParseException(context, "Unknown bulk load status [" + parser.text() + "]");
+                }
+            } else if ("timeout".equals(fieldName)) {
+                options.timeout(TimeValue.parseTimeValue(parser.text(), null));
+            } else {
+                throw new ImportParseException(context, "Unknown bulk load option [" + fieldName + "]");
+            }
+        }
+        context.bulkLoad(options);
+    }
+}
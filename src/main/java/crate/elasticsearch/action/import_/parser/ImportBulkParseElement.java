@@ -0,0 +1,86 @@
+package crate.elasticsearch.action.import_.parser;
+
+import java.io.IOException;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import crate.elasticsearch.action.import_.ImportContext;
+import crate.elasticsearch.import_.BulkOptions;
+
+/**
+ * Parser for token ``bulk``. An object defining the ``actions``, ``size``,
+ * ``flush_interval`` and ``concurrent_requests`` of the bulk requests,
+ * whether they are ``adaptive`` with a ``target_latency``, and the
+ * ``max_retries`` and ``backoff`` of rejected objects.
+ */
+public class ImportBulkParseElement implements ImportParseElement {
+
+    @Override
+    public void parse(XContentParser parser, ImportContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new ImportParseException(context, "Bulk options must be an object");
+        }
+        BulkOptions options = new BulkOptions();
+        String fieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                fieldName = parser.currentName();
+            } else {
+                String error = parseOption(parser, fieldName, options);
+                if (error != null) {
+                    throw new ImportParseException(context, error);
+                }
+            }
+        }
+        context.bulkOptions(options);
+    }
+
+    /**
+     * Parse the value of a bulk option, shared with the ``bulk`` option of
+     * search into and reindex.
+     *
+     * @return the error message if the option is unknown or invalid
+     */
+    public static String parseOption(XContentParser parser, String fieldName, BulkOptions options)
+            throws IOException {
+        if ("actions".equals(fieldName)) {
+            int actions = parser.intValue();
+            if (actions < 1) {
+                return "Bulk option 'actions' must be at least 1";
+            }
+            options.actions(actions);
+        } else if ("size".equals(fieldName)) {
+            long size = ByteSizeValue.parseBytesSizeValue(parser.text()).bytes();
+            if (size < 1) {
+                return "Bulk option 'size' must be at least 1b";
+            }
+            options.size(size);
+        } else if ("flush_interval".equals(fieldName)) {
+            options.flushInterval(TimeValue.parseTimeValue(parser.text(), null));
+        } else if ("concurrent_requests".equals(fieldName)) {
+            int concurrentRequests = parser.intValue();
+            if (concurrentRequests < 1) {
+                return "Bulk option 'concurrent_requests' must be at least 1";
+            }
+            options.concurrentRequests(concurrentRequests);
+        } else if ("adaptive".equals(fieldName)) {
+            options.adaptive(parser.booleanValue());
+        } else if ("target_latency".equals(fieldName)) {
+            options.targetLatency(TimeValue.parseTimeValue(parser.text(), null));
+        } else if ("max_retries".equals(fieldName)) {
+            int maxRetries = parser.intValue();
+            if (maxRetries < 0) {
+                return "Bulk option 'max_retries' must not be negative";
+            }
+            options.maxRetries(maxRetries);
+        } else if ("backoff".equals(fieldName)) {
+            options.backoff(TimeValue.parseTimeValue(parser.text(), null));
+        } else {
+            return "Unknown bulk option [" + fieldName + "]";
+        }
+        return null;
+    }
+}
@@ -3,6 +3,7 @@ package crate.elasticsearch.action.import_.parser;
 import org.elasticsearch.common.xcontent.XContentParser;
 
 import crate.elasticsearch.action.import_.ImportContext;
+import crate.elasticsearch.export.Compression;
 
 public class ImportCompressionParseElement implements ImportParseElement {
 
@@ -12,8 +13,9 @@ public class ImportCompressionParseElement implements ImportParseElement {
         XContentParser.Token token = parser.currentToken();
         if (token.isValue()) {
             String lower = parser.text().toLowerCase();
-            if (lower.equals("gzip")) {
-                ((ImportContext) context).compression(true);
+            Compression compression = Compression.fromString(lower);
+            if (compression != null) {
+                context.compression(compression);
             } else if (!lower.isEmpty()) {
                 throw new ImportParseException(context,
                         "Compression format '" + lower + "' unknown or not supported.");
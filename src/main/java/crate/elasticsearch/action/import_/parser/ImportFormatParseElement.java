@@ -0,0 +1,27 @@
+package crate.elasticsearch.action.import_.parser;
+
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import crate.elasticsearch.action.import_.ImportContext;
+import crate.elasticsearch.export.Format;
+
+/**
+ * Parser for token ``format``. Defines whether the imported files contain
+ * JSON lines or SMILE records.
+ */
+public class ImportFormatParseElement implements ImportParseElement {
+
+    @Override
+    public void parse(XContentParser parser, ImportContext context)
+            throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            Format format = Format.fromString(parser.text());
+            if (format == null) {
+                throw new ImportParseException(context, "Format '" + parser.text() + "' unknown or not supported.");
+            }
+            context.format(format);
+        }
+    }
+
+}
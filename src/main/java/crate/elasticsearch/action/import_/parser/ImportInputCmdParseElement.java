@@ -0,0 +1,38 @@
+package crate.elasticsearch.action.import_.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import crate.elasticsearch.action.import_.ImportContext;
+
+/**
+ * Parser for token ``input_cmd``. The value of the token might be a String
+ * containing the command or an array containing the command and all
+ * arguments as seperated parts.
+ * <p/>
+ * <pre>
+ * "input_cmd": "cat"
+ *
+ * or
+ *
+ * "input_cmd": ["zstd", "-dc", "/tmp/in.zst"]
+ * </pre>
+ */
+public class ImportInputCmdParseElement implements ImportParseElement {
+
+    @Override
+    public void parse(XContentParser parser, ImportContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            context.inputCmd(parser.text());
+        } else if (token == XContentParser.Token.START_ARRAY) {
+            List<String> cmds = new ArrayList<String>(4);
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                cmds.add(parser.text());
+            }
+            context.inputCmdArray(cmds);
+        }
+    }
+}
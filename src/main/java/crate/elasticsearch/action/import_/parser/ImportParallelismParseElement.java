@@ -0,0 +1,25 @@
+package crate.elasticsearch.action.import_.parser;
+
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import crate.elasticsearch.action.import_.ImportContext;
+
+/**
+ * Parser for token ``parallelism``. Defines the number of files a node
+ * imports concurrently.
+ */
+public class ImportParallelismParseElement implements ImportParseElement {
+
+    @Override
+    public void parse(XContentParser parser, ImportContext context)
+            throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            int parallelism = parser.intValue();
+            if (parallelism < 1) {
+                throw new ImportParseException(context, "Parameter 'parallelism' must be at least 1");
+            }
+            context.parallelism(parallelism);
+        }
+    }
+}
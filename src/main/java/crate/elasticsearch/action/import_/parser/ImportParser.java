@@ -26,7 +26,14 @@ public class ImportParser implements IImportParser{
     public ImportParser(ScriptParser scriptParser) {
         Map<String, ImportParseElement> elementParsers = new HashMap<String, ImportParseElement>();
         elementParsers.put("directory", new DirectoryParseElement());
+        elementParsers.put("input_cmd", new ImportInputCmdParseElement());
         elementParsers.put("compression", new ImportCompressionParseElement());
+        elementParsers.put("format", new ImportFormatParseElement());
+        elementParsers.put("parallelism", new ImportParallelismParseElement());
+        elementParsers.put("range_size", new ImportRangeSizeParseElement());
+        elementParsers.put("bulk", new ImportBulkParseElement());
+        elementParsers.put("bulk_load", new ImportBulkLoadParseElement());
+        elementParsers.put("shared", new ImportSharedParseElement());
         elementParsers.put("file_pattern", new FilePatternParseElement());
         elementParsers.put("mappings", new ImportMappingsParseElement());
         elementParsers.put("settings", new ImportSettingsParseElement());
@@ -91,7 +98,14 @@ public class ImportParser implements IImportParser{
      * @param context
      */
     private void validate(ImportContext context) {
-        if (context.directory() == null || context.directory().isEmpty()) {
+        if (context.hasInputCmd()) {
+            if (context.directory() != null) {
+                throw new ImportParseException(context, "Options 'directory' and 'input_cmd' cannot be combined");
+            }
+            if (context.shared() || context.settings() || context.mappings()) {
+                throw new ImportParseException(context, "Option 'input_cmd' does not support 'shared', 'settings' and 'mappings'");
+            }
+        } else if (context.directory() == null || context.directory().isEmpty()) {
             throw new ImportParseException(context, "No directory defined");
         }
     }
@@ -0,0 +1,26 @@
+package crate.elasticsearch.action.import_.parser;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import crate.elasticsearch.action.import_.ImportContext;
+
+/**
+ * Parser for token ``range_size``. Defines the size of the ranges large
+ * files are split into to import them concurrently.
+ */
+public class ImportRangeSizeParseElement implements ImportParseElement {
+
+    @Override
+    public void parse(XContentParser parser, ImportContext context)
+            throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            long rangeSize = ByteSizeValue.parseBytesSizeValue(parser.text()).bytes();
+            if (rangeSize < 1) {
+                throw new ImportParseException(context, "Parameter 'range_size' must be at least 1b");
+            }
+            context.rangeSize(rangeSize);
+        }
+    }
+}
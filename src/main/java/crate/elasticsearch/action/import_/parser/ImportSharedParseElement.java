@@ -0,0 +1,21 @@
+package crate.elasticsearch.action.import_.parser;
+
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import crate.elasticsearch.action.import_.ImportContext;
+
+/**
+ * Parser for token ``shared``. Defines whether the nodes share the import
+ * directory and claim the files they import.
+ */
+public class ImportSharedParseElement implements ImportParseElement {
+
+    @Override
+    public void parse(XContentParser parser, ImportContext context)
+            throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token.isValue()) {
+            context.shared(parser.booleanValue());
+        }
+    }
+}
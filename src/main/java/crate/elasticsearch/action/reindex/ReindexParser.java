@@ -14,6 +14,7 @@ import org.elasticsearch.search.query.QueryPhase;
 
 import crate.elasticsearch.action.searchinto.SearchIntoContext;
 import crate.elasticsearch.action.searchinto.parser.AbstractSearchIntoParser;
+import crate.elasticsearch.action.searchinto.parser.BulkParseElement;
 import crate.elasticsearch.action.searchinto.parser.ISearchIntoParser;
 import crate.elasticsearch.script.ScriptParser;
 
@@ -30,6 +31,7 @@ public class ReindexParser extends AbstractSearchIntoParser implements ISearchIn
                 SearchParseElement>();
         elementParsers.putAll(queryPhase.parseElements());
         elementParsers.put("explain", new ExplainParseElement());
+        elementParsers.put("bulk", new BulkParseElement());
         this.elementParsers = ImmutableMap.copyOf(elementParsers);
     }
 
@@ -4,8 +4,17 @@ import crate.elasticsearch.action.dump.parser.DumpParser;
 import crate.elasticsearch.action.import_.ImportContext;
 import crate.elasticsearch.action.import_.parser.DirectoryParseElement;
 import crate.elasticsearch.action.import_.parser.IImportParser;
+import crate.elasticsearch.action.import_.parser.ImportCompressionParseElement;
+import crate.elasticsearch.action.import_.parser.ImportFormatParseElement;
+import crate.elasticsearch.action.import_.parser.ImportParallelismParseElement;
+import crate.elasticsearch.action.import_.parser.ImportRangeSizeParseElement;
+import crate.elasticsearch.action.import_.parser.ImportBulkParseElement;
+import crate.elasticsearch.action.import_.parser.ImportBulkLoadParseElement;
 import crate.elasticsearch.action.import_.parser.ImportParseElement;
 import crate.elasticsearch.action.import_.parser.ImportParseException;
+import crate.elasticsearch.action.import_.parser.ImportSharedParseElement;
+import crate.elasticsearch.export.Compression;
+import crate.elasticsearch.export.Format;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -25,9 +34,28 @@ public class RestoreParser implements IImportParser {
     public RestoreParser() {
         Map<String, ImportParseElement> elementParsers = new HashMap<String, ImportParseElement>();
         elementParsers.put("directory", new DirectoryParseElement());
+        elementParsers.put("compression", new ImportCompressionParseElement());
+        elementParsers.put("format", new ImportFormatParseElement());
+        elementParsers.put("parallelism", new ImportParallelismParseElement());
+        elementParsers.put("range_size", new ImportRangeSizeParseElement());
+        elementParsers.put("bulk", new ImportBulkParseElement());
+        elementParsers.put("bulk_load", new ImportBulkLoadParseElement());
+        elementParsers.put("shared", new ImportSharedParseElement());
         this.elementParsers = ImmutableMap.copyOf(elementParsers);
     }
 
+    /**
+     * Get the pattern of dumped files, the extension depends on the format
+     * and the compression.
+     *
+     * @param format      the format of the dump
+     * @param compression the compression of the dump
+     * @return the file pattern
+     */
+    public static String filePattern(Format format, Compression compression) {
+        return ".*_.*_.*\\." + format.extension() + "\\." + compression.extension();
+    }
+
     /**
      * Main method of this class to parse given payload of _restore action
      *
@@ -61,6 +89,9 @@ public class RestoreParser implements IImportParser {
             if (context.directory() == null) {
                 context.directory(DumpParser.DEFAULT_DIR);
             }
+            if (context.format() != Format.JSON || context.compression() != Compression.GZIP) {
+                context.file_pattern(Pattern.compile(filePattern(context.format(), context.compression())));
+            }
         } catch (Exception e) {
             String sSource = "_na_";
             try {
@@ -82,7 +113,7 @@ public class RestoreParser implements IImportParser {
      * @param context
      */
     private void setDefaults(ImportContext context) {
-        context.compression(true);
+        context.compression(Compression.GZIP);
         Pattern p = Pattern.compile(FILE_PATTERN);
         context.file_pattern(p);
     }
@@ -178,6 +178,7 @@ public abstract class AbstractTransportSearchIntoAction extends
             shardTarget, indexShard.acquireSearcher("inout-plugin"), indexService, indexShard, scriptService,
                 cacheRecycler, pageRecycler
         );
+        context.searchIntoId(request.searchIntoId());
         SearchIntoContext.setCurrent(context);
         try {
             BytesReference source = request.source();
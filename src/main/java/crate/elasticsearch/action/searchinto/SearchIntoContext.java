@@ -14,6 +14,7 @@ import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.internal.DefaultSearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 
+import crate.elasticsearch.import_.BulkOptions;
 import crate.elasticsearch.script.IScriptContext;
 
 import java.util.HashMap;
@@ -30,6 +31,10 @@ public class SearchIntoContext extends DefaultSearchContext implements IScriptCo
 
     private List<InetSocketTransportAddress> targetNodes;
 
+    private BulkOptions bulkOptions = defaultBulkOptions();
+
+    private String searchIntoId;
+
     private String scriptString;
     private String scriptLang;
     private Map<String, Object> scriptParams;
@@ -71,6 +76,34 @@ public class SearchIntoContext extends DefaultSearchContext implements IScriptCo
         this.targetNodes = ImmutableList.of();
     }
 
+    /**
+     * @return the bulk options search into used before they could be set,
+     * bulks of 1000 documents or 5mb with a single bulk in flight
+     */
+    public static BulkOptions defaultBulkOptions() {
+        return new BulkOptions().actions(1000).concurrentRequests(1);
+    }
+
+    /**
+     * @return the id of the search into request, null if the shard has a
+     * bulk sink of its own
+     */
+    public String searchIntoId() {
+        return searchIntoId;
+    }
+
+    public void searchIntoId(String searchIntoId) {
+        this.searchIntoId = searchIntoId;
+    }
+
+    public BulkOptions bulkOptions() {
+        return bulkOptions;
+    }
+
+    public void bulkOptions(BulkOptions bulkOptions) {
+        this.bulkOptions = bulkOptions;
+    }
+
     @Override
     public String scriptString() {
         return scriptString;
@@ -28,6 +28,8 @@ public class SearchIntoRequest extends
 
     private String[] types = Strings.EMPTY_ARRAY;
 
+    private String searchIntoId = Strings.randomBase64UUID();
+
     SearchIntoRequest() {
     }
 
@@ -125,6 +127,14 @@ public class SearchIntoRequest extends
         return this.preference;
     }
 
+    /**
+     * The id of this request, the shards of a node share their bulks under
+     * it.
+     */
+    public String searchIntoId() {
+        return searchIntoId;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -133,6 +143,7 @@ public class SearchIntoRequest extends
         querySourceUnsafe = false;
         source = in.readBytesReference();
         types = in.readStringArray();
+        searchIntoId = in.readString();
     }
 
     @Override
@@ -142,6 +153,7 @@ public class SearchIntoRequest extends
         out.writeOptionalString(preference);
         out.writeBytesReference(source);
         out.writeStringArray(types);
+        out.writeString(searchIntoId);
     }
 
     @Override
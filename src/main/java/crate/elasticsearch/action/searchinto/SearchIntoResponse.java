@@ -45,6 +45,14 @@ public class SearchIntoResponse extends BroadcastOperationResponse
         return totalWrites;
     }
 
+    public long getSucceededWrites() {
+        return succeededWrites;
+    }
+
+    public long getFailedWrites() {
+        return failedWrites;
+    }
+
 
     public List<ShardSearchIntoResponse> getResponses() {
         return responses;
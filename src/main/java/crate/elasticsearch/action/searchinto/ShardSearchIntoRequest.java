@@ -23,6 +23,8 @@ class ShardSearchIntoRequest extends BroadcastShardOperationRequest {
     @Nullable
     private String[] filteringAliases;
 
+    private String searchIntoId;
+
     ShardSearchIntoRequest() {
 
     }
@@ -33,6 +35,7 @@ class ShardSearchIntoRequest extends BroadcastShardOperationRequest {
         this.source = request.source();
         this.types = request.types();
         this.filteringAliases = filteringAliases;
+        this.searchIntoId = request.searchIntoId();
     }
 
     public BytesReference source() {
@@ -47,6 +50,10 @@ class ShardSearchIntoRequest extends BroadcastShardOperationRequest {
         return filteringAliases;
     }
 
+    public String searchIntoId() {
+        return searchIntoId;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -65,6 +72,7 @@ class ShardSearchIntoRequest extends BroadcastShardOperationRequest {
                 filteringAliases[i] = in.readString();
             }
         }
+        searchIntoId = in.readString();
     }
 
     @Override
@@ -84,5 +92,6 @@ class ShardSearchIntoRequest extends BroadcastShardOperationRequest {
         } else {
             out.writeVInt(0);
         }
+        out.writeString(searchIntoId);
     }
 }
@@ -24,10 +24,6 @@ class ShardSearchIntoResponse extends BroadcastShardOperationResponse
     private boolean dryRun = false;
     private Text node;
 
-    private long totalWrites;
-    private long failedWrites;
-    private long succeededWrites;
-
 
     ShardSearchIntoResponse() {
     }
@@ -49,15 +45,15 @@ class ShardSearchIntoResponse extends BroadcastShardOperationResponse
     }
 
     public long getTotalWrites() {
-        return totalWrites;
+        return result == null ? 0 : result.getTotalWrites();
     }
 
     long getFailedWrites() {
-        return failedWrites;
+        return result == null ? 0 : result.getFailedWrites();
     }
 
     long getSucceededWrites() {
-        return succeededWrites;
+        return result == null ? 0 : result.getSucceededWrites();
     }
 
     public boolean dryRun() {
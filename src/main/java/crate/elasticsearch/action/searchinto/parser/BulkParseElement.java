@@ -0,0 +1,39 @@
+package crate.elasticsearch.action.searchinto.parser;
+
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+import crate.elasticsearch.action.import_.parser.ImportBulkParseElement;
+import crate.elasticsearch.action.searchinto.SearchIntoContext;
+import crate.elasticsearch.import_.BulkOptions;
+
+/**
+ * Parser for token ``bulk``. An object with the same options as the
+ * ``bulk`` option of imports, options not given keep the defaults of
+ * search into.
+ */
+public class BulkParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new SearchParseException(context, "Bulk options must be an object");
+        }
+        BulkOptions options = SearchIntoContext.defaultBulkOptions();
+        String fieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                fieldName = parser.currentName();
+            } else {
+                String error = ImportBulkParseElement.parseOption(parser, fieldName, options);
+                if (error != null) {
+                    throw new SearchParseException(context, error);
+                }
+            }
+        }
+        ((SearchIntoContext) context).bulkOptions(options);
+    }
+}
@@ -33,6 +33,7 @@ public class SearchIntoParser extends AbstractSearchIntoParser implements ISearc
         elementParsers.put("fields", new FieldsParseElement());
         elementParsers.put("targetNodes", new TargetNodesParseElement());
         elementParsers.put("explain", new ExplainParseElement());
+        elementParsers.put("bulk", new BulkParseElement());
         this.elementParsers = ImmutableMap.copyOf(elementParsers);
     }
 
@@ -0,0 +1,159 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.common.util.BigArrays;
+
+/**
+ * An output stream which collects the written bytes in recycled pages and
+ * only hands them over to the wrapped stream once a whole block has been
+ * filled up.
+ * <p/>
+ * Calls to {@link #flush()} are ignored on purpose, as the xcontent
+ * generators flush after every document. Use {@link #flushBlock()} to
+ * force the buffered bytes to the wrapped stream. Closing this stream writes
+ * the remaining bytes and releases the pages, the wrapped stream stays open.
+ * If the stream is not closed, e.g. on failures, it must get released.
+ */
+public class BlockOutputStream extends OutputStream implements Releasable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private final OutputStream out;
+    private final PageCacheRecycler recycler;
+    private final int blockSize;
+    private final List<Recycler.V<byte[]>> recycledPages = new ArrayList<Recycler.V<byte[]>>();
+    private final List<byte[]> pages = new ArrayList<byte[]>();
+
+    private byte[] page;
+    private int pageIndex = -1;
+    private int pageOffset = BigArrays.BYTE_PAGE_SIZE;
+    private long bytesWritten = 0;
+    private long blocksWritten = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param out       the stream to write the blocks to
+     * @param recycler  the recycler to get the pages from, might be null
+     * @param blockSize the number of bytes to collect before writing them
+     */
+    public BlockOutputStream(OutputStream out, PageCacheRecycler recycler, int blockSize) {
+        this.out = out;
+        this.recycler = recycler;
+        this.blockSize = Math.max(blockSize, BigArrays.BYTE_PAGE_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (pageOffset == BigArrays.BYTE_PAGE_SIZE) {
+            nextPage();
+        }
+        page[pageOffset++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (pageOffset == BigArrays.BYTE_PAGE_SIZE) {
+                nextPage();
+            }
+            int chunk = Math.min(len, BigArrays.BYTE_PAGE_SIZE - pageOffset);
+            System.arraycopy(b, off, page, pageOffset, chunk);
+            pageOffset += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Does nothing, see class documentation.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Write all buffered bytes to the wrapped stream.
+     */
+    public void flushBlock() throws IOException {
+        if (pageIndex < 0) {
+            return;
+        }
+        for (int i = 0; i < pageIndex; i++) {
+            out.write(pages.get(i), 0, BigArrays.BYTE_PAGE_SIZE);
+        }
+        if (pageOffset > 0) {
+            out.write(page, 0, pageOffset);
+        }
+        bytesWritten += pageIndex * BigArrays.BYTE_PAGE_SIZE + pageOffset;
+        blocksWritten++;
+        pageIndex = -1;
+        pageOffset = BigArrays.BYTE_PAGE_SIZE;
+        page = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Give the pages back to the recycler without writing buffered bytes.
+     */
+    @Override
+    public boolean release() throws ElasticsearchException {
+        for (Recycler.V<byte[]> v : recycledPages) {
+            v.release();
+        }
+        recycledPages.clear();
+        pages.clear();
+        pageIndex = -1;
+        pageOffset = BigArrays.BYTE_PAGE_SIZE;
+        page = null;
+        return true;
+    }
+
+    /**
+     * @return the number of bytes handed over to the wrapped stream
+     */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return the number of blocks handed over to the wrapped stream
+     */
+    public long blocksWritten() {
+        return blocksWritten;
+    }
+
+    private void nextPage() throws IOException {
+        if ((pageIndex + 1) * BigArrays.BYTE_PAGE_SIZE >= blockSize) {
+            flushBlock();
+        }
+        pageIndex++;
+        if (pageIndex == pages.size()) {
+            if (recycler != null) {
+                Recycler.V<byte[]> v = recycler.bytePage(false);
+                recycledPages.add(v);
+                pages.add(v.v());
+            } else {
+                pages.add(new byte[BigArrays.BYTE_PAGE_SIZE]);
+            }
+        }
+        page = pages.get(pageIndex);
+        pageOffset = 0;
+    }
+}
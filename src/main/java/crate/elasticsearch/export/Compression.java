@@ -0,0 +1,79 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression formats of exported and imported files.
+ */
+public enum Compression {
+
+    GZIP("gz") {
+        @Override
+        public OutputStream compress(OutputStream out, int level, int threads, Executor executor) throws IOException {
+            return ParallelGZIPOutputStream.gzip(out, level, threads, executor);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            return new GZIPInputStream(in);
+        }
+    },
+
+    LZ4("lz4") {
+        @Override
+        public OutputStream compress(OutputStream out, int level, int threads, Executor executor) {
+            return new LZ4OutputStream(out, level);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            return new LZ4InputStream(in);
+        }
+    };
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the file name extension of the format, without the dot
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Wrap the given stream with a compressing stream.
+     *
+     * @param out      the stream to write the compressed bytes to
+     * @param level    the compression level, 0 to 9 or -1 for the default
+     * @param threads  the number of threads to compress with, if supported
+     * @param executor the executor to compress with more than one thread
+     */
+    public abstract OutputStream compress(OutputStream out, int level, int threads, Executor executor)
+            throws IOException;
+
+    /**
+     * Wrap the given stream with a decompressing stream.
+     */
+    public abstract InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * @param name the name of the format, case insensitive
+     * @return the format or null if the name is unknown
+     */
+    public static Compression fromString(String name) {
+        for (Compression compression : values()) {
+            if (compression.name().equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+        return null;
+    }
+}
@@ -10,10 +10,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
@@ -21,8 +23,6 @@ import org.elasticsearch.common.text.StringAndBytesText;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.XContentFactory;
-import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.fieldvisitor.*;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.FieldMappers;
@@ -34,11 +34,12 @@ import org.elasticsearch.search.internal.InternalSearchHit;
 import org.elasticsearch.search.internal.InternalSearchHitField;
 
 import crate.elasticsearch.action.export.ExportContext;
+import crate.elasticsearch.throttle.Throttle;
 
 
 public class ExportCollector extends Collector {
 
-    private IndexReader currentReader;
+    private AtomicReader currentReader;
     private long numExported = 0;
     private final FieldsVisitor fieldsVisitor;
     private final ExportContext context;
@@ -49,14 +50,40 @@ public class ExportCollector extends Collector {
     private final OutputStream out;
     private AtomicReaderContext arc;
     private final FetchSubPhase[] fetchSubPhases;
+    private final FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
+    private FixedBitSet matchingDocs;
+    private int bufferedDocs = 0;
+    private final SmileRecordWriter recordWriter;
+    private final BytesStreamOutput recordOut;
+    private final Throttle throttle;
+    private final CountingOutputStream countingOut;
+    private final XContentBuilder builder;
+    private long pausedNanos = 0;
 
+    /**
+     * Constructor. The collector encodes all docs of the part with the
+     * same builder, only the buffers of the output get flushed per doc.
+     */
     public ExportCollector(ExportContext context,
-                           OutputStream os, FetchSubPhase[] fetchSubPhases) {
+                           OutputStream os, FetchSubPhase[] fetchSubPhases, Throttle throttle) throws IOException {
         this.out = os;
+        this.throttle = throttle;
         this.context = context;
         this.fetchSubPhases = fetchSubPhases;
         this.exportFields = new ExportFields(context.fieldNames());
         sourceRequested = false;
+        if (context.format() == Format.SMILE) {
+            recordWriter = new SmileRecordWriter(os, context.shardTarget().index(), context.mapperService().types(),
+                    context.fieldNames().contains("_index"), context.fieldNames().contains("_type"));
+            recordOut = new BytesStreamOutput();
+            countingOut = null;
+            builder = new XContentBuilder(SmileRecordXContent.smileRecordXContent, recordOut);
+        } else {
+            recordWriter = null;
+            recordOut = null;
+            countingOut = new CountingOutputStream(os);
+            builder = new XContentBuilder(ExportJsonXContent.exportJsonXContent, countingOut);
+        }
 
         if (!context.hasFieldNames()) {
             if (context.hasPartialFields()) {
@@ -118,10 +145,47 @@ public class ExportCollector extends Collector {
         }
     }
 
+    /**
+     * Export the buffered docs of the previous segment and start buffering
+     * the matches of the given one.
+     */
     @Override
     public void setNextReader(AtomicReaderContext context) throws IOException {
+        exportBufferedDocs();
+        this.arc = context;
+        this.currentReader = context.reader();
+        int maxDoc = currentReader.maxDoc();
+        if (matchingDocs == null || matchingDocs.length() < maxDoc) {
+            matchingDocs = new FixedBitSet(maxDoc);
+        }
+    }
+
+    /**
+     * Export all live docs of the given segment without running a query.
+     */
+    public void exportLiveDocs(AtomicReaderContext context) throws IOException {
+        exportBufferedDocs();
         this.arc = context;
         this.currentReader = context.reader();
+        Bits liveDocs = currentReader.getLiveDocs();
+        int maxDoc = currentReader.maxDoc();
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                exportDoc(doc);
+            }
+        }
+    }
+
+    /**
+     * Export the docs buffered for the current segment, needs to be called
+     * after the search has finished.
+     */
+    public void finish() throws IOException {
+        exportBufferedDocs();
+        if (recordWriter != null) {
+            // files without records still get a header
+            recordWriter.writeHeader();
+        }
     }
 
     @Override
@@ -137,8 +201,37 @@ public class ExportCollector extends Collector {
         return numExported;
     }
 
+    /**
+     * @return the nanoseconds this collector has been paused by the throttle
+     */
+    public long pausedNanos() {
+        return pausedNanos;
+    }
+
+    /**
+     * Matching docs are only buffered, their stored fields get read later on
+     * in increasing doc order. Like this all docs of a compressed stored
+     * fields block are read from a single decompressed block.
+     */
     @Override
     public void collect(int doc) throws IOException {
+        matchingDocs.set(doc);
+        bufferedDocs++;
+    }
+
+    private void exportBufferedDocs() throws IOException {
+        if (bufferedDocs == 0) {
+            return;
+        }
+        int maxDoc = currentReader.maxDoc();
+        for (int doc = matchingDocs.nextSetBit(0); doc != -1; doc = doc + 1 < maxDoc ? matchingDocs.nextSetBit(doc + 1) : -1) {
+            exportDoc(doc);
+        }
+        matchingDocs.clear(0, maxDoc);
+        bufferedDocs = 0;
+    }
+
+    private void exportDoc(int doc) throws IOException {
         fieldsVisitor.reset();
         currentReader.document(doc, fieldsVisitor);
 
@@ -164,8 +257,8 @@ public class ExportCollector extends Collector {
                 searchFields).sourceRef(fieldsVisitor.source());
 
 
+        // the hit context is only cached by the highlighter, so it is safe to reuse it
         for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
-            FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
             if (fetchSubPhase.hitExecutionNeeded(context)) {
                 hitContext.reset(searchHit, arc, doc, context.searcher().getIndexReader(), doc, fieldsVisitor);
                 fetchSubPhase.hitExecute(context, hitContext);
@@ -174,12 +267,50 @@ public class ExportCollector extends Collector {
 
         searchHit.shardTarget(context.shardTarget());
         exportFields.hit(searchHit);
-        XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(XContentType.JSON), out);
-        exportFields.toXContent(builder, ToXContent.EMPTY_PARAMS);
-        builder.flush();
-        out.write('\n');
-        out.flush();
+        if (recordWriter != null) {
+            int entry = recordWriter.entry(searchHit.getType());
+            exportFields.indexAndType(entry == 0);
+            recordOut.reset();
+            SmileRecordXContent.writeHeader(recordOut);
+            exportFields.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            builder.flush();
+            recordWriter.writeRecord(entry, recordOut.bytes());
+            pausedNanos += throttle.pause(recordOut.size(), 1);
+        } else {
+            // the output stream is block buffered, flushing the builder does not hit the output
+            long written = countingOut.count;
+            exportFields.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            builder.flush();
+            countingOut.write('\n');
+            pausedNanos += throttle.pause(countingOut.count - written, 1);
+        }
         numExported++;
     }
 
+    /**
+     * Counts the bytes of the exported docs for the throttle, flushing and
+     * closing are left to the owner of the wrapped stream.
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
 }
@@ -0,0 +1,155 @@
+package crate.elasticsearch.export;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+/**
+ * The thread pool shard exports run in, so exports do not occupy the
+ * threads of the search thread pool. The pool has a fixed number of
+ * threads, which limits the number of shards exported concurrently on a
+ * node. Waiting shards are started largest first, so the longest exports
+ * are not the last ones to begin.
+ * <p/>
+ * The pool is configured by the node settings:
+ * <ul>
+ * <li>``inout.export.threads``: the number of shards exported concurrently,
+ * defaults to half the number of processors</li>
+ * <li>``inout.export.queue_size``: the number of shards waiting to be
+ * exported before further shards get rejected, defaults to 100</li>
+ * </ul>
+ * The shard requests wait for their exports in threads of the generic
+ * pool. Shards are admitted by a semaphore, so at most ``queue_size``
+ * threads wait, however many shard requests arrive at the same time.
+ */
+public class ExportExecutor extends AbstractLifecycleComponent<ExportExecutor> {
+
+    public static final String THREAD_POOL_NAME = "inout_export";
+
+    private final int threads;
+    private final int queueSize;
+    private final Semaphore admitted;
+    private final AtomicLong sequence = new AtomicLong();
+    private ThreadPoolExecutor executor;
+
+    @Inject
+    public ExportExecutor(Settings settings) {
+        super(settings);
+        this.threads = settings.getAsInt("inout.export.threads",
+                Math.max(1, EsExecutors.boundedNumberOfProcessors(settings) / 2));
+        this.queueSize = settings.getAsInt("inout.export.queue_size", 100);
+        this.admitted = new Semaphore(threads + queueSize);
+    }
+
+    @Override
+    protected void doStart() throws ElasticsearchException {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                EsExecutors.daemonThreadFactory(settings, THREAD_POOL_NAME));
+        logger.debug("exporting up to {} shards concurrently, queue size {}", threads, queueSize);
+    }
+
+    @Override
+    protected void doStop() throws ElasticsearchException {
+        executor.shutdownNow();
+    }
+
+    @Override
+    protected void doClose() throws ElasticsearchException {
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of shards exported concurrently
+     */
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of shards waiting to be exported
+     */
+    public int waiting() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Export a shard in the pool and wait for the result.
+     *
+     * @param size   the size of the shard, larger shards are started first
+     * @param export the export of the shard
+     * @return the result of the export
+     * @throws EsRejectedExecutionException if too many shards are waiting
+     */
+    public <T> T execute(long size, Callable<T> export) throws ElasticsearchException {
+        if (!admitted.tryAcquire()) {
+            throw new EsRejectedExecutionException("rejected shard export, " + queueSize + " shards are waiting");
+        }
+        ShardExport<T> task = new ShardExport<T>(size, sequence.getAndIncrement(), export);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            throw new EsRejectedExecutionException("rejected shard export, the export pool is shut down");
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Interrupted while waiting for the shard export", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ElasticsearchException) {
+                throw (ElasticsearchException) e.getCause();
+            }
+            throw new ElasticsearchException("Failed to export shard", e.getCause());
+        }
+    }
+
+    /**
+     * A shard export ordered by size, descending, shards of the same size
+     * keep the order they were submitted in. The shard leaves the pool once
+     * the export is done or cancelled.
+     */
+    private class ShardExport<T> extends FutureTask<T> implements Comparable<ShardExport<?>> {
+
+        private final long size;
+        private final long sequence;
+
+        ShardExport(long size, long sequence, Callable<T> export) {
+            super(export);
+            this.size = size;
+            this.sequence = sequence;
+        }
+
+        @Override
+        protected void done() {
+            admitted.release();
+        }
+
+        @Override
+        public int compareTo(ShardExport<?> o) {
+            if (size != o.size) {
+                return size > o.size ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package crate.elasticsearch.export;
 
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedStreamInput;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.xcontent.*;
+import org.elasticsearch.index.mapper.internal.SourceFieldMapper;
 import org.elasticsearch.index.mapper.internal.TTLFieldMapper;
 import org.elasticsearch.index.mapper.internal.TimestampFieldMapper;
 import org.elasticsearch.search.SearchHitField;
@@ -15,10 +19,10 @@ public class ExportFields implements ToXContent {
 
     private final List<String> fields;
     private InternalSearchHit hit;
+    private boolean indexAndType = true;
     private final List<FieldExtractor> fieldExtractors;
 
     static final class Fields {
-        static final XContentBuilderString _SOURCE = new XContentBuilderString("_source");
         static final XContentBuilderString _TYPE = new XContentBuilderString("_type");
         static final XContentBuilderString _INDEX = new XContentBuilderString("_index");
         static final XContentBuilderString _ID = new XContentBuilderString("_id");
@@ -35,14 +39,42 @@ public class ExportFields implements ToXContent {
 
     class SourceFieldExtractor extends FieldExtractor {
 
+        /**
+         * Stored JSON sources are written as they are, compressed sources get
+         * decompressed while being streamed into the output. Sources of other
+         * content types are parsed and re-serialized.
+         */
         @Override
         public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            if (builder.generator() instanceof ExportJsonXContent.Generator) {
+                ExportJsonXContent.Generator generator = (ExportJsonXContent.Generator) builder.generator();
+                BytesReference source = hit.internalSourceRef();
+                Compressor compressor = CompressorFactory.compressor(source);
+                if (compressor == null) {
+                    if (XContentFactory.xContentType(source) == XContentType.JSON) {
+                        generator.writeRawValueField(SourceFieldMapper.NAME, source, builder.stream());
+                        return builder;
+                    }
+                } else {
+                    CompressedStreamInput input = compressor.streamInput(source.streamInput());
+                    try {
+                        XContentType contentType = XContentFactory.xContentType(input);
+                        input.resetToBufferStart();
+                        if (contentType == XContentType.JSON) {
+                            generator.writeRawValueField(SourceFieldMapper.NAME, input, builder.stream());
+                            return builder;
+                        }
+                    } finally {
+                        input.close();
+                    }
+                }
+            }
             BytesReference source = hit.sourceRef();
             XContentType contentType = XContentFactory.xContentType(source);
             XContentParser parser = XContentFactory.xContent(contentType).createParser(source);
             try {
                 parser.nextToken();
-                builder.field(Fields._SOURCE);
+                builder.field(SourceFieldMapper.NAME);
                 builder.copyCurrentStructure(parser);
             } finally {
                 parser.close();
@@ -82,6 +114,14 @@ public class ExportFields implements ToXContent {
         this.hit = hit;
     }
 
+    /**
+     * @param indexAndType false to leave out the ``_index`` and ``_type``
+     *                     fields of the hit, as they are written elsewhere
+     */
+    public void indexAndType(boolean indexAndType) {
+        this.indexAndType = indexAndType;
+    }
+
     public ExportFields(List<String> fields) {
         this.fields = fields;
         this.fieldExtractors = getFieldExtractors();
@@ -112,14 +152,14 @@ public class ExportFields implements ToXContent {
                     fc = new FieldExtractor() {
                         @Override
                         public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
-                            return builder.field(Fields._INDEX, hit.getIndex());
+                            return indexAndType ? builder.field(Fields._INDEX, hit.getIndex()) : builder;
                         }
                     };
                 } else if (fn.equals("_type")) {
                     fc = new FieldExtractor() {
                         @Override
                         public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
-                            return builder.field(Fields._TYPE, hit.getType());
+                            return indexAndType ? builder.field(Fields._TYPE, hit.getType()) : builder;
                         }
                     };
                 } else {
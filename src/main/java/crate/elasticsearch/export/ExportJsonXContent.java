@@ -0,0 +1,162 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.jackson.core.JsonEncoding;
+import org.elasticsearch.common.jackson.core.JsonFactory;
+import org.elasticsearch.common.jackson.core.JsonGenerator;
+import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentGenerator;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.common.xcontent.json.JsonXContentGenerator;
+
+/**
+ * JSON xcontent used to write export lines. Its generator is able to write
+ * already serialized JSON values like a stored _source without parsing
+ * them. Parsing is delegated to the default JSON xcontent.
+ */
+public class ExportJsonXContent implements XContent {
+
+    public static final ExportJsonXContent exportJsonXContent = new ExportJsonXContent();
+
+    private static final JsonFactory jsonFactory;
+
+    static {
+        jsonFactory = new JsonFactory();
+        jsonFactory.configure(JsonGenerator.Feature.QUOTE_FIELD_NAMES, true);
+        // a generator writes all lines of an export, the line breaks are
+        // written by the export
+        jsonFactory.setRootValueSeparator(null);
+    }
+
+    private ExportJsonXContent() {
+    }
+
+    @Override
+    public XContentType type() {
+        return XContentType.JSON;
+    }
+
+    @Override
+    public byte streamSeparator() {
+        return JsonXContent.jsonXContent.streamSeparator();
+    }
+
+    @Override
+    public XContentGenerator createGenerator(OutputStream os) throws IOException {
+        return new Generator(jsonFactory.createGenerator(os, JsonEncoding.UTF8));
+    }
+
+    @Override
+    public XContentGenerator createGenerator(Writer writer) throws IOException {
+        return new Generator(jsonFactory.createGenerator(writer));
+    }
+
+    @Override
+    public XContentParser createParser(String content) throws IOException {
+        return JsonXContent.jsonXContent.createParser(content);
+    }
+
+    @Override
+    public XContentParser createParser(InputStream is) throws IOException {
+        return JsonXContent.jsonXContent.createParser(is);
+    }
+
+    @Override
+    public XContentParser createParser(byte[] data) throws IOException {
+        return JsonXContent.jsonXContent.createParser(data);
+    }
+
+    @Override
+    public XContentParser createParser(byte[] data, int offset, int length) throws IOException {
+        return JsonXContent.jsonXContent.createParser(data, offset, length);
+    }
+
+    @Override
+    public XContentParser createParser(BytesReference bytes) throws IOException {
+        return JsonXContent.jsonXContent.createParser(bytes);
+    }
+
+    @Override
+    public XContentParser createParser(Reader reader) throws IOException {
+        return JsonXContent.jsonXContent.createParser(reader);
+    }
+
+    /**
+     * Generator which writes raw JSON values as field values. Line breaks
+     * are replaced by blanks, so every exported document stays on its own
+     * line. Line breaks within valid JSON are always whitespace, as they
+     * need to be escaped inside of strings.
+     */
+    public static class Generator extends JsonXContentGenerator {
+
+        private static final int BUFFER_LEN = 8192;
+
+        public Generator(JsonGenerator generator) {
+            super(generator);
+        }
+
+        /**
+         * Write a field with a serialized JSON value.
+         *
+         * @param fieldName the name of the field
+         * @param content   the JSON value
+         * @param bos       the stream the generator writes to
+         */
+        public void writeRawValueField(String fieldName, BytesReference content, OutputStream bos) throws IOException {
+            startRawValue(fieldName);
+            if (content.hasArray()) {
+                writeLine(content.array(), content.arrayOffset(), content.length(), bos);
+            } else {
+                byte[] bytes = content.toBytes();
+                writeLine(bytes, 0, bytes.length, bos);
+            }
+        }
+
+        /**
+         * Write a field with a serialized JSON value read from a stream.
+         *
+         * @param fieldName the name of the field
+         * @param content   the stream to read the JSON value from
+         * @param bos       the stream the generator writes to
+         */
+        public void writeRawValueField(String fieldName, InputStream content, OutputStream bos) throws IOException {
+            startRawValue(fieldName);
+            byte[] buffer = new byte[BUFFER_LEN];
+            int len;
+            while ((len = content.read(buffer)) != -1) {
+                writeLine(buffer, 0, len, bos);
+            }
+        }
+
+        /**
+         * Let the generator write the field name and the separators, so
+         * the following fields get separated correctly.
+         */
+        private void startRawValue(String fieldName) throws IOException {
+            generator.writeFieldName(fieldName);
+            generator.writeRawValue("");
+            generator.flush();
+        }
+
+        private void writeLine(byte[] bytes, int offset, int length, OutputStream bos) throws IOException {
+            int start = offset;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    bos.write(bytes, start, i - start);
+                    bos.write(' ');
+                    start = i + 1;
+                }
+            }
+            bos.write(bytes, start, end - start);
+        }
+    }
+}
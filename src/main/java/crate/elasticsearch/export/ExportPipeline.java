@@ -0,0 +1,391 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.lease.Releasable;
+
+/**
+ * An output stream which decouples encoding the exported docs from
+ * compressing and writing them. The written bytes are collected in blocks,
+ * which are handed over to a compressor stage and a writer stage running in
+ * their own threads. The stages are connected by bounded queues, so a slow
+ * output blocks the export once the queues are full.
+ * <p/>
+ * Calls to {@link #flush()} are ignored, see {@link BlockOutputStream}.
+ * Closing this stream waits for all blocks to be written, the wrapped
+ * stream stays open. If the stream is not closed, e.g. on failures, it must
+ * get released.
+ */
+public class ExportPipeline extends OutputStream implements Releasable {
+
+    public static final int DEFAULT_QUEUE_SIZE = 4;
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final Block EOF = new Block(0);
+
+    private static class Block {
+        final byte[] bytes;
+        int length;
+
+        Block(int size) {
+            bytes = new byte[size];
+        }
+    }
+
+    private final OutputStream out;
+    private final Compression compression;
+    private final int compressionLevel;
+    private final int compressionThreads;
+    private final Executor executor;
+    private final int blockSize;
+    private final int maxBlocks;
+    private final BlockingQueue<Block> freeBlocks;
+    private final BlockingQueue<Block> compressQueue;
+    private final BlockingQueue<Block> writeQueue;
+    private final CountDownLatch done;
+    private final PipelineStats stats = new PipelineStats();
+    private final long started = System.nanoTime();
+
+    private int numBlocks = 0;
+    private Block current;
+    private boolean closed = false;
+    private volatile Throwable failure;
+
+    /**
+     * Constructor, starts the stages.
+     *
+     * @param out         the stream to write to
+     * @param compression the compression format, null for no compression
+     * @param compressionLevel   the compression level
+     * @param compressionThreads the number of threads to compress with,
+     *                           see {@link ParallelGZIPOutputStream}
+     * @param blockSize   the size of the blocks handed over to the stages
+     * @param queueSize   the number of blocks a stage can fall behind
+     * @param executor    the executor to run the stages
+     */
+    public ExportPipeline(OutputStream out, Compression compression, int compressionLevel, int compressionThreads,
+                          int blockSize, int queueSize, Executor executor) {
+        this.out = out;
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.compressionThreads = compressionThreads;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        // every queue might be full while each stage works on its blocks
+        this.maxBlocks = 2 * queueSize + 4;
+        this.freeBlocks = new ArrayBlockingQueue<Block>(maxBlocks);
+        this.writeQueue = new ArrayBlockingQueue<Block>(queueSize);
+        this.done = new CountDownLatch(compression != null ? 2 : 1);
+        if (compression != null) {
+            compressQueue = new ArrayBlockingQueue<Block>(queueSize);
+            executor.execute(new Compressor());
+        } else {
+            compressQueue = writeQueue;
+        }
+        executor.execute(new Writer());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (current == null || current.length == blockSize) {
+            nextBlock();
+        }
+        current.bytes[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (current == null || current.length == blockSize) {
+                nextBlock();
+            }
+            int chunk = Math.min(len, blockSize - current.length);
+            System.arraycopy(b, off, current.bytes, current.length, chunk);
+            current.length += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Does nothing, see class documentation.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Hand over the remaining bytes and wait until the stages are done.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        checkFailure();
+        if (current != null && current.length > 0) {
+            idlePut(compressQueue, current);
+        }
+        current = null;
+        idlePut(compressQueue, EOF);
+        awaitStages();
+        stats.fetchBusyNanos = System.nanoTime() - started - stats.fetchIdleNanos;
+        checkFailure();
+    }
+
+    /**
+     * Stop the stages without writing the remaining bytes.
+     */
+    @Override
+    public boolean release() throws ElasticsearchException {
+        if (!closed) {
+            closed = true;
+            failure = new IOException("Export pipeline has been released");
+            current = null;
+            try {
+                compressQueue.put(EOF);
+                awaitStages();
+            } catch (IOException e) {
+                // the stages drain their queues once failed, so this is unlikely
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the busy and idle times of the stages
+     */
+    public PipelineStats stats() {
+        return stats;
+    }
+
+    private void nextBlock() throws IOException {
+        checkFailure();
+        if (current != null) {
+            idlePut(compressQueue, current);
+        }
+        current = takeFreeBlock(true);
+    }
+
+    private void idlePut(BlockingQueue<Block> queue, Block block) throws IOException {
+        long start = System.nanoTime();
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while handing over a block", e);
+        } finally {
+            stats.fetchIdleNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void awaitStages() throws IOException {
+        long start = System.nanoTime();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the export pipeline", e);
+        } finally {
+            stats.fetchIdleNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Export pipeline failed", failure);
+        }
+    }
+
+    /**
+     * Get an unused block, allocates new ones until the maximum number of
+     * blocks is reached.
+     */
+    private Block takeFreeBlock(boolean fetchStage) throws IOException {
+        Block block = freeBlocks.poll();
+        if (block == null) {
+            synchronized (freeBlocks) {
+                if (numBlocks < maxBlocks) {
+                    numBlocks++;
+                    return new Block(blockSize);
+                }
+            }
+            long start = System.nanoTime();
+            try {
+                block = freeBlocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a free block", e);
+            } finally {
+                if (fetchStage) {
+                    stats.fetchIdleNanos += System.nanoTime() - start;
+                } else {
+                    stats.compressIdleNanos += System.nanoTime() - start;
+                }
+            }
+        }
+        block.length = 0;
+        return block;
+    }
+
+    private void freeBlock(Block block) {
+        freeBlocks.offer(block);
+    }
+
+    /**
+     * Stage compressing the blocks of the export into new blocks.
+     */
+    private class Compressor implements Runnable {
+
+        private Block compressed;
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                OutputStream compressor = null;
+                try {
+                    compressor = compression.compress(new BlockSink(), compressionLevel, compressionThreads,
+                            executor);
+                } catch (IOException e) {
+                    failure = e;
+                }
+                while (true) {
+                    Block block = take();
+                    if (block == EOF) {
+                        break;
+                    }
+                    if (failure == null) {
+                        try {
+                            compressor.write(block.bytes, 0, block.length);
+                        } catch (Throwable t) {
+                            failure = t;
+                        }
+                    }
+                    freeBlock(block);
+                }
+                if (failure == null) {
+                    try {
+                        // closing the sink does nothing
+                        compressor.close();
+                        if (compressed != null && compressed.length > 0) {
+                            writeQueue.put(compressed);
+                        }
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                }
+                putEOF();
+            } finally {
+                stats.compressBusyNanos = System.nanoTime() - start - stats.compressIdleNanos;
+                done.countDown();
+            }
+        }
+
+        private Block take() {
+            long start = System.nanoTime();
+            try {
+                return compressQueue.take();
+            } catch (InterruptedException e) {
+                failure = e;
+                return EOF;
+            } finally {
+                stats.compressIdleNanos += System.nanoTime() - start;
+            }
+        }
+
+        private void putEOF() {
+            long start = System.nanoTime();
+            try {
+                writeQueue.put(EOF);
+            } catch (InterruptedException e) {
+                failure = e;
+            } finally {
+                stats.compressIdleNanos += System.nanoTime() - start;
+            }
+        }
+
+        /**
+         * Collects the compressed bytes into blocks for the writer stage.
+         */
+        private class BlockSink extends OutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (compressed == null || compressed.length == blockSize) {
+                        if (compressed != null) {
+                            long start = System.nanoTime();
+                            try {
+                                writeQueue.put(compressed);
+                            } catch (InterruptedException e) {
+                                throw new IOException("Interrupted while handing over a block", e);
+                            } finally {
+                                stats.compressIdleNanos += System.nanoTime() - start;
+                            }
+                        }
+                        compressed = takeFreeBlock(false);
+                    }
+                    int chunk = Math.min(len, blockSize - compressed.length);
+                    System.arraycopy(b, off, compressed.bytes, compressed.length, chunk);
+                    compressed.length += chunk;
+                    off += chunk;
+                    len -= chunk;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stage writing the blocks to the wrapped stream.
+     */
+    private class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                while (true) {
+                    Block block;
+                    long takeStart = System.nanoTime();
+                    try {
+                        block = writeQueue.take();
+                    } catch (InterruptedException e) {
+                        failure = e;
+                        break;
+                    } finally {
+                        stats.writeIdleNanos += System.nanoTime() - takeStart;
+                    }
+                    if (block == EOF) {
+                        break;
+                    }
+                    if (failure == null) {
+                        try {
+                            out.write(block.bytes, 0, block.length);
+                        } catch (Throwable t) {
+                            failure = t;
+                        }
+                    }
+                    freeBlock(block);
+                }
+            } finally {
+                stats.writeBusyNanos = System.nanoTime() - start - stats.writeIdleNanos;
+                done.countDown();
+            }
+        }
+    }
+}
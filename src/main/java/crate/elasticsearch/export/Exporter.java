@@ -1,7 +1,11 @@
 package crate.elasticsearch.export;
 
 import crate.elasticsearch.action.export.ExportContext;
+import crate.elasticsearch.throttle.Throttle;
+import crate.elasticsearch.throttle.ThrottleStats;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
 import org.elasticsearch.action.admin.cluster.state.ClusterStateRequest;
 import org.elasticsearch.action.admin.cluster.state.ClusterStateResponse;
 import org.elasticsearch.client.ClusterAdminClient;
@@ -13,8 +17,10 @@ import org.elasticsearch.common.hppc.ObjectContainer;
 import org.elasticsearch.common.hppc.cursors.ObjectCursor;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Injector;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -22,15 +28,24 @@ import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.fetch.version.VersionFetchSubPhase;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to export data of given context
@@ -42,20 +57,40 @@ public class Exporter {
     public static class Result {
         public Output.Result outputResult;
         public long numExported;
+        public List<Result> parts = new ArrayList<Result>();
+        public PipelineStats pipelineStats;
+        public ThrottleStats throttleStats;
     }
 
     private final FetchSubPhase[] fetchSubPhases;
     private final Injector injector;
     private final SettingsFilter settingsFilter;
+    private final ThreadPool threadPool;
+    private final Throttle throttle;
+
+    /**
+     * The stripes taken by the striped exports and dumps of the node.
+     */
+    private final AtomicInteger stripes = new AtomicInteger();
 
     private ClusterAdminClient client;
 
     @Inject
     public Exporter(VersionFetchSubPhase versionPhase, Injector injector,
-            SettingsFilter settingsFilter) {
+            SettingsFilter settingsFilter, ThreadPool threadPool, Throttle throttle) {
         this.fetchSubPhases = new FetchSubPhase[]{versionPhase};
         this.injector = injector;
         this.settingsFilter = settingsFilter;
+        this.threadPool = threadPool;
+        this.throttle = throttle;
+    }
+
+    /**
+     * @return the counter striped exports and dumps take the data
+     *         locations of their parts from, round robin
+     */
+    public AtomicInteger stripes() {
+        return stripes;
     }
 
     /**
@@ -66,59 +101,236 @@ public class Exporter {
      */
     public void check(ExportContext context) throws ExportException {
         if (context.outputFile() != null) {
-            File outputFile = new File(context.outputFile());
-            File targetFolder = new File(outputFile.getParent());
-            if (!targetFolder.exists()) {
-                if(context.forceOverride())
-                    targetFolder.mkdirs();
-                else
-                    throw new ExportException(context, "Target folder " + outputFile.getParent() + " does not exist");
-            }
-            if (!targetFolder.canWrite()) {
-                throw new ExportException(context, "Insufficient permissions to write into " + outputFile.getParent());
+            // striped parts might be written to different data locations
+            for (int part = 0; part < Math.max(1, context.parallelism()); part++) {
+                File outputFile = new File(context.partOutputFile(part));
+                File targetFolder = new File(outputFile.getParent());
+                if (!targetFolder.exists()) {
+                    if(context.forceOverride())
+                        targetFolder.mkdirs();
+                    else
+                        throw new ExportException(context, "Target folder " + outputFile.getParent() + " does not exist");
+                }
+                if (!targetFolder.canWrite()) {
+                    throw new ExportException(context, "Insufficient permissions to write into " + outputFile.getParent());
+                }
             }
         }
     }
 
-    public Result execute(ExportContext context) {
+    public Result execute(final ExportContext context) {
+        final List<List<AtomicReaderContext>> partLeaves = splitLeaves(
+                context.searcher().getIndexReader().leaves(), context.parallelism());
         if (context.settings() || context.mappings()) {
-            writeSettingsOrMappings(context);
+            for (int part = 0; part < partLeaves.size(); part++) {
+                writeSettingsOrMappings(context, context.partOutputFile(part));
+            }
         }
 
-        logger.info("exporting {}/{}", context.shardTarget().index(),
-                context.shardTarget().getShardId());
+        logger.info("exporting {}/{} in {} part(s)", context.shardTarget().index(),
+                context.shardTarget().getShardId(), partLeaves.size());
         Query query = context.query();
-
-        Output output = context.createOutput();
         context.version(true);
+
+        final boolean matchAll = Queries.isConstantMatchAllQuery(query);
+        final Weight weight;
         try {
-            output.open();
-        } catch (IOException e) {
-            throw new ExportException(context, "Failed to open output: ", e);
-        }
-        ExportCollector collector = new ExportCollector(context, output.getOutputStream(), fetchSubPhases);
-        try {
-            context.searcher().search(query, collector);
+            weight = matchAll ? null : context.searcher().createNormalizedWeight(query);
         } catch (IOException e) {
-            throw new ExportException(context, "Failed to fetch docs", e);
+            throw new ExportException(context, "Failed to create weight", e);
         }
+
+        // the collectors are created upfront, as they adapt the context
+        final Output[] outputs = new Output[partLeaves.size()];
+        final OutputStream[] streams = new OutputStream[partLeaves.size()];
+        final ExportCollector[] collectors = new ExportCollector[partLeaves.size()];
+        boolean exported = false;
         try {
-            output.close();
-        } catch (IOException e) {
-            throw new ExportException(context, "Failed to close output: ", e);
+            for (int part = 0; part < outputs.length; part++) {
+                // the pipeline compresses the output in a stage of its own
+                outputs[part] = context.createOutput(part, context.compression() != null && !context.pipeline(),
+                        threadPool.executor(ThreadPool.Names.GENERIC));
+                try {
+                    outputs[part].open();
+                } catch (IOException e) {
+                    throw new ExportException(context, "Failed to open output: ", e);
+                }
+                if (context.pipeline()) {
+                    streams[part] = new ExportPipeline(outputs[part].getOutputStream(), context.compression(),
+                            context.compressionLevel(), context.compressionThreads(),
+                            context.pipelineBlockSize(), context.pipelineQueueSize(),
+                            threadPool.executor(ThreadPool.Names.GENERIC));
+                } else {
+                    streams[part] = new BlockOutputStream(outputs[part].getOutputStream(),
+                            context.pageCacheRecycler(), BlockOutputStream.DEFAULT_BLOCK_SIZE);
+                }
+                try {
+                    collectors[part] = new ExportCollector(context, streams[part], fetchSubPhases, throttle);
+                } catch (IOException e) {
+                    throw new ExportException(context, "Failed to create collector", e);
+                }
+            }
+
+            // the first part gets exported by the current thread
+            List<FutureTask<Void>> futures = new ArrayList<FutureTask<Void>>(outputs.length - 1);
+            for (int part = 1; part < outputs.length; part++) {
+                final int p = part;
+                FutureTask<Void> future = new FutureTask<Void>(new Runnable() {
+                    @Override
+                    public void run() {
+                        SearchContext.setCurrent(context);
+                        try {
+                            exportPart(context, partLeaves.get(p), matchAll, weight, collectors[p], streams[p]);
+                        } finally {
+                            SearchContext.removeCurrent();
+                        }
+                    }
+                }, null);
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(future);
+                futures.add(future);
+            }
+            ExportException failure = null;
+            try {
+                exportPart(context, partLeaves.get(0), matchAll, weight, collectors[0], streams[0]);
+            } catch (ExportException e) {
+                failure = e;
+            }
+            for (FutureTask<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = new ExportException(context, "Interrupted while waiting for the export parts", e);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof ExportException ? (ExportException) e.getCause() :
+                                new ExportException(context, "Failed to export part", e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            exported = true;
+        } finally {
+            for (OutputStream out : streams) {
+                if (out != null) {
+                    ((Releasable) out).release();
+                }
+            }
+            if (!exported) {
+                // the outputs opened before the failure
+                abort(outputs, 0);
+            }
         }
+
         Result res = new Result();
-        res.outputResult = output.result();
-        res.numExported = collector.numExported();
+        long pausedNanos = 0;
+        for (int part = 0; part < outputs.length; part++) {
+            try {
+                outputs[part].close();
+            } catch (IOException e) {
+                abort(outputs, part + 1);
+                throw new ExportException(context, "Failed to close output: ", e);
+            }
+            Result partResult = new Result();
+            partResult.outputResult = outputs[part].result();
+            partResult.numExported = collectors[part].numExported();
+            res.numExported += partResult.numExported;
+            pausedNanos += collectors[part].pausedNanos();
+            if (streams[part] instanceof ExportPipeline) {
+                partResult.pipelineStats = ((ExportPipeline) streams[part]).stats();
+                if (res.pipelineStats == null) {
+                    res.pipelineStats = new PipelineStats();
+                }
+                res.pipelineStats.add(partResult.pipelineStats);
+            }
+            res.parts.add(partResult);
+        }
+        res.outputResult = res.parts.get(0).outputResult;
+        res.throttleStats = throttle.stats(pausedNanos);
         logger.info("exported {} docs from {}/{}",
-                collector.numExported(),
+                res.numExported,
                 context.shardTarget().index(),
                 context.shardTarget().getShardId());
 
         return res;
     }
 
-    private void writeSettingsOrMappings(ExportContext context) {
+    /**
+     * Abort the opened outputs starting with the given part, so no files
+     * or output commands are left open after a failed export.
+     */
+    private static void abort(Output[] outputs, int from) {
+        for (int part = from; part < outputs.length; part++) {
+            if (outputs[part] != null) {
+                outputs[part].abort();
+            }
+        }
+    }
+
+    /**
+     * Export the docs of the given segments.
+     */
+    private void exportPart(ExportContext context, List<AtomicReaderContext> leaves, boolean matchAll,
+            Weight weight, ExportCollector collector, OutputStream out) {
+        try {
+            if (matchAll) {
+                // no need to score anything, just walk the live docs
+                for (AtomicReaderContext leaf : leaves) {
+                    collector.exportLiveDocs(leaf);
+                }
+            } else {
+                context.searcher().search(leaves, weight, collector);
+            }
+            collector.finish();
+            out.close();
+        } catch (IOException e) {
+            throw new ExportException(context, "Failed to fetch docs", e);
+        }
+    }
+
+    /**
+     * Split the segments of a shard into the given number of parts holding
+     * about the same number of docs. The segments of a part keep their order.
+     * There are never more parts than segments, but always at least one.
+     */
+    static List<List<AtomicReaderContext>> splitLeaves(List<AtomicReaderContext> leaves, int parallelism) {
+        int numParts = Math.max(1, Math.min(parallelism, leaves.size()));
+        List<List<AtomicReaderContext>> parts = new ArrayList<List<AtomicReaderContext>>(numParts);
+        long[] partDocs = new long[numParts];
+        for (int i = 0; i < numParts; i++) {
+            parts.add(new ArrayList<AtomicReaderContext>());
+        }
+        List<AtomicReaderContext> bySize = new ArrayList<AtomicReaderContext>(leaves);
+        Collections.sort(bySize, new Comparator<AtomicReaderContext>() {
+            @Override
+            public int compare(AtomicReaderContext o1, AtomicReaderContext o2) {
+                return o2.reader().maxDoc() - o1.reader().maxDoc();
+            }
+        });
+        for (AtomicReaderContext leaf : bySize) {
+            int smallest = 0;
+            for (int i = 1; i < numParts; i++) {
+                if (partDocs[i] < partDocs[smallest]) {
+                    smallest = i;
+                }
+            }
+            parts.get(smallest).add(leaf);
+            partDocs[smallest] += leaf.reader().maxDoc();
+        }
+        for (List<AtomicReaderContext> part : parts) {
+            Collections.sort(part, new Comparator<AtomicReaderContext>() {
+                @Override
+                public int compare(AtomicReaderContext o1, AtomicReaderContext o2) {
+                    return o1.ord - o2.ord;
+                }
+            });
+        }
+        return parts;
+    }
+
+    private void writeSettingsOrMappings(ExportContext context, String outputFile) {
         if (client == null) {
             client = injector.getInstance(ClusterAdminClient.class);
         }
@@ -146,7 +358,7 @@ public class Exporter {
                 builder.endObject();
                 builder.endObject();
                 builder.endObject();
-                File settingsFile = new File(context.outputFile() + ".settings");
+                File settingsFile = new File(outputFile + ".settings");
                 if (!context.forceOverride() && settingsFile.exists()) {
                     throw new IOException("File exists: " + settingsFile.getAbsolutePath());
                 }
@@ -173,7 +385,7 @@ public class Exporter {
                 }
                 builder.endObject();
                 builder.endObject();
-                File mappingsFile = new File(context.outputFile() + ".mapping");
+                File mappingsFile = new File(outputFile + ".mapping");
                 if (!context.forceOverride() && mappingsFile.exists()) {
                     throw new IOException("File exists: " + mappingsFile.getAbsolutePath());
                 }
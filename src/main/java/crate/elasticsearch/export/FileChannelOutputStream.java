@@ -0,0 +1,173 @@
+package crate.elasticsearch.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An output stream writing a file through a {@link FileChannel} from a
+ * direct buffer. Writing from a heap array makes the channel copy the bytes
+ * into a temporary direct buffer of the size of the write, collecting them
+ * in a direct buffer of our own saves that copy and the temporary buffers.
+ * <p/>
+ * The file might be preallocated, it is extended by the given number of
+ * bytes whenever the writes reach its end and truncated to the written
+ * bytes on close. It might get synced to the disk on close and after every
+ * given number of bytes, so the dirty pages of a large export do not pile
+ * up in the page cache.
+ * <p/>
+ * Direct buffers are only freed by the garbage collector. The buffers of
+ * closed streams are kept in a pool of at most {@link #MAX_POOLED_BYTES}
+ * and reused by streams with a buffer of the same size.
+ */
+public class FileChannelOutputStream extends OutputStream {
+
+    /**
+     * The largest buffer of a stream.
+     */
+    public static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The size of all buffers kept for reuse.
+     */
+    static final long MAX_POOLED_BYTES = 64 * 1024 * 1024;
+
+    private static final List<ByteBuffer> pool = new ArrayList<ByteBuffer>();
+    private static long pooledBytes = 0;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final FileOptions options;
+    private long position = 0;
+    private long allocated = 0;
+    private long synced = 0;
+    private boolean closed = false;
+
+    public FileChannelOutputStream(File file, FileOptions options) throws IOException {
+        this.options = options;
+        this.buffer = acquireBuffer(options.bufferSize());
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+        } catch (IOException e) {
+            releaseBuffer(buffer);
+            if (raf != null) {
+                raf.close();
+            }
+            throw e;
+        }
+        this.file = raf;
+        this.channel = raf.getChannel();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            writeBuffer();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            int chunk = Math.min(len, buffer.remaining());
+            buffer.put(b, off, chunk);
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Write the buffered bytes to the file, like {@link java.io.FileOutputStream}
+     * flushing does not sync the file.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBuffer();
+            if (allocated > position) {
+                channel.truncate(position);
+            }
+            if (options.fsync()) {
+                channel.force(false);
+            }
+        } finally {
+            releaseBuffer(buffer);
+            file.close();
+        }
+    }
+
+    /**
+     * @return the number of bytes written to the file so far
+     */
+    public long position() {
+        return position;
+    }
+
+    private static synchronized ByteBuffer acquireBuffer(int size) {
+        if (size > MAX_BUFFER_SIZE) {
+            throw new IllegalArgumentException("buffer size " + size + " exceeds " + MAX_BUFFER_SIZE);
+        }
+        for (Iterator<ByteBuffer> i = pool.iterator(); i.hasNext(); ) {
+            ByteBuffer buffer = i.next();
+            if (buffer.capacity() == size) {
+                i.remove();
+                pooledBytes -= size;
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    private static synchronized void releaseBuffer(ByteBuffer buffer) {
+        if (pooledBytes + buffer.capacity() <= MAX_POOLED_BYTES) {
+            buffer.clear();
+            pool.add(buffer);
+            pooledBytes += buffer.capacity();
+        }
+    }
+
+    /**
+     * @return the size of the buffers kept for reuse
+     */
+    static synchronized long pooledBytes() {
+        return pooledBytes;
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        if (options.preallocate() > 0 && position + buffer.remaining() > allocated) {
+            allocated = position + buffer.remaining() + options.preallocate();
+            file.setLength(allocated);
+        }
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        if (options.fsync() && options.fsyncInterval() > 0 && position - synced >= options.fsyncInterval()) {
+            channel.force(false);
+            synced = position;
+        }
+    }
+}
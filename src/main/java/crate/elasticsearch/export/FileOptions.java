@@ -0,0 +1,105 @@
+package crate.elasticsearch.export;
+
+/**
+ * Options of the files written by exports and dumps.
+ */
+public class FileOptions {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Where relative output files are placed on nodes with more than one
+     * data location.
+     */
+    public enum Placement {
+
+        /**
+         * All files are placed in the first data location.
+         */
+        FIRST,
+
+        /**
+         * The files of the shards and parts are spread round robin over all
+         * data locations.
+         */
+        STRIPED;
+
+        /**
+         * @param name the name of the placement, case insensitive
+         * @return the placement or null if the name is unknown
+         */
+        public static Placement fromString(String name) {
+            for (Placement placement : values()) {
+                if (placement.name().equalsIgnoreCase(name)) {
+                    return placement;
+                }
+            }
+            return null;
+        }
+    }
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private long preallocate = 0;
+    private boolean fsync = false;
+    private long fsyncInterval = 0;
+    private Placement placement = Placement.FIRST;
+
+    /**
+     * @return the size of the direct buffer the file gets written from
+     */
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    public FileOptions bufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * @return the number of bytes the file gets extended by ahead of the
+     *         writes, 0 if the file is not preallocated
+     */
+    public long preallocate() {
+        return preallocate;
+    }
+
+    public FileOptions preallocate(long preallocate) {
+        this.preallocate = preallocate;
+        return this;
+    }
+
+    /**
+     * @return whether the file gets synced to the disk on close
+     */
+    public boolean fsync() {
+        return fsync;
+    }
+
+    public FileOptions fsync(boolean fsync) {
+        this.fsync = fsync;
+        return this;
+    }
+
+    /**
+     * @return the number of bytes written between syncs, 0 if the file only
+     *         gets synced on close
+     */
+    public long fsyncInterval() {
+        return fsyncInterval;
+    }
+
+    public FileOptions fsyncInterval(long fsyncInterval) {
+        this.fsyncInterval = fsyncInterval;
+        return this;
+    }
+
+    public Placement placement() {
+        return placement;
+    }
+
+    public FileOptions placement(Placement placement) {
+        this.placement = placement;
+        return this;
+    }
+}
@@ -0,0 +1,43 @@
+package crate.elasticsearch.export;
+
+/**
+ * Formats of exported and imported files.
+ */
+public enum Format {
+
+    /**
+     * One JSON object per line.
+     */
+    JSON("json"),
+
+    /**
+     * Length prefixed SMILE records, see {@link SmileRecordWriter}.
+     */
+    SMILE("smile");
+
+    private final String extension;
+
+    Format(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the file name extension of the format, without the dot
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * @param name the name of the format, case insensitive
+     * @return the format or null if the name is unknown
+     */
+    public static Format fromString(String name) {
+        for (Format format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
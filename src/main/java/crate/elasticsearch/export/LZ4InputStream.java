@@ -0,0 +1,142 @@
+package crate.elasticsearch.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * An input stream decompressing streams written by {@link LZ4OutputStream}.
+ * Concatenated streams are read as one stream, like gzip members.
+ */
+public class LZ4InputStream extends InputStream {
+
+    private final InputStream in;
+    private final Decompressor decompressor = CompressionMode.FAST.newDecompressor();
+    private final BytesRef bytes = new BytesRef();
+    private byte[] compressed = new byte[0];
+    private int pos = 0;
+    private boolean eof = false;
+
+    public LZ4InputStream(InputStream in) throws IOException {
+        this.in = in;
+        if (!readMagic()) {
+            throw new EOFException("Empty LZ4 stream");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureBytes()) {
+            return -1;
+        }
+        return bytes.bytes[bytes.offset + pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureBytes()) {
+            return -1;
+        }
+        int chunk = Math.min(len, bytes.length - pos);
+        System.arraycopy(bytes.bytes, bytes.offset + pos, b, off, chunk);
+        pos += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return bytes.length - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean ensureBytes() throws IOException {
+        while (pos == bytes.length) {
+            if (eof || !nextBlock()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean nextBlock() throws IOException {
+        int length = readVInt();
+        while (length == 0) {
+            // end of a stream, another one might follow
+            if (!readMagic()) {
+                eof = true;
+                return false;
+            }
+            length = readVInt();
+        }
+        int compressedLength = readVInt();
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        readFully(compressed, compressedLength);
+        decompressor.decompress(new ByteArrayDataInput(compressed, 0, compressedLength), length, 0, length, bytes);
+        pos = 0;
+        return true;
+    }
+
+    /**
+     * @return false if the wrapped stream is at its end
+     */
+    private boolean readMagic() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            return false;
+        }
+        byte[] magic = new byte[LZ4OutputStream.MAGIC.length];
+        magic[0] = (byte) b;
+        for (int i = 1; i < magic.length; i++) {
+            magic[i] = (byte) readByte();
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (magic[i] != LZ4OutputStream.MAGIC[i]) {
+                throw new IOException("Not in LZ4 format");
+            }
+        }
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Unexpected end of LZ4 stream");
+        }
+        return b;
+    }
+
+    private int readVInt() throws IOException {
+        int b = readByte();
+        int i = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = readByte();
+            i |= (b & 0x7F) << shift;
+        }
+        return i;
+    }
+
+    private void readFully(byte[] b, int len) throws IOException {
+        int off = 0;
+        while (off < len) {
+            int read = in.read(b, off, len - off);
+            if (read == -1) {
+                throw new EOFException("Unexpected end of LZ4 stream");
+            }
+            off += read;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.store.ByteArrayDataOutput;
+
+/**
+ * An output stream compressing the written bytes with the LZ4 compression
+ * of Lucene. The bytes are compressed in blocks, the stream has the format:
+ * <p/>
+ * <pre>
+ * stream: MAGIC block* 0
+ * block:  vint(uncompressed length) vint(compressed length) compressed bytes
+ * </pre>
+ * Compression levels up to 5 use the fast LZ4 compression, higher levels
+ * the high compression variant, both get read by {@link LZ4InputStream}.
+ * Closing this stream closes the wrapped stream.
+ */
+public class LZ4OutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    static final byte[] MAGIC = {'L', 'Z', '4', 'B'};
+
+    private final OutputStream out;
+    private final Compressor compressor;
+    private final byte[] block;
+    private final byte[] compressed;
+    private final ByteArrayDataOutput compressedOut;
+    private int blockLength = 0;
+    private boolean headerWritten = false;
+    private boolean closed = false;
+
+    public LZ4OutputStream(OutputStream out, int level) {
+        this(out, level, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out       the stream to write the compressed bytes to
+     * @param level     the compression level, 0 to 9 or -1 for the default
+     * @param blockSize the number of uncompressed bytes of a block
+     */
+    public LZ4OutputStream(OutputStream out, int level, int blockSize) {
+        this.out = out;
+        this.compressor = (level > 5 ? CompressionMode.FAST_DECOMPRESSION : CompressionMode.FAST).newCompressor();
+        this.block = new byte[blockSize];
+        // the worst case of LZ4 for incompressible input
+        this.compressed = new byte[blockSize + blockSize / 255 + 16];
+        this.compressedOut = new ByteArrayDataOutput(compressed);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (blockLength == block.length) {
+            writeBlock();
+        }
+        block[blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (blockLength == block.length) {
+                writeBlock();
+            }
+            int chunk = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, chunk);
+            blockLength += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Compress the pending bytes into a block and flush the wrapped stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            writeHeader();
+            writeVInt(0);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockLength == 0) {
+            return;
+        }
+        writeHeader();
+        compressedOut.reset(compressed);
+        compressor.compress(block, 0, blockLength, compressedOut);
+        writeVInt(blockLength);
+        writeVInt(compressedOut.getPosition());
+        out.write(compressed, 0, compressedOut.getPosition());
+        blockLength = 0;
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            out.write(MAGIC);
+            headerWritten = true;
+        }
+    }
+
+    private void writeVInt(int i) throws IOException {
+        while ((i & ~0x7F) != 0) {
+            out.write((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        out.write(i);
+    }
+}
@@ -1,10 +1,17 @@
 package crate.elasticsearch.export;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
 
 public abstract class Output {
 
     private Result result;
+    private Compression compression = Compression.GZIP;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int compressionThreads = 1;
+    private Executor compressionExecutor;
 
     public class Result {
         public int exit;
@@ -16,9 +23,44 @@ public abstract class Output {
 
     public abstract void close() throws java.io.IOException;
 
+    /**
+     * Release the resources of an output whose export failed, failures
+     * on closing it are ignored.
+     */
+    public void abort() {
+        try {
+            close();
+        } catch (IOException e) {
+        }
+    }
+
     public abstract OutputStream getOutputStream();
 
     public Result result() {
         return result;
     }
+
+    /**
+     * Set the options of the compression, must be called before opening
+     * the output.
+     *
+     * @param compression the compression format, defaults to gzip if null
+     * @param level    the compression level, see {@link Deflater}
+     * @param threads  the maximum number of blocks compressed concurrently
+     * @param executor the executor to compress the blocks, might be null
+     *                 if only one thread is given
+     */
+    public void compressionOptions(Compression compression, int level, int threads, Executor executor) {
+        this.compression = compression == null ? Compression.GZIP : compression;
+        this.compressionLevel = level;
+        this.compressionThreads = threads;
+        this.compressionExecutor = executor;
+    }
+
+    /**
+     * Wrap the given stream with a compressing stream of the configured format.
+     */
+    protected OutputStream compress(OutputStream os) throws IOException {
+        return compression.compress(os, compressionLevel, compressionThreads, compressionExecutor);
+    }
 }
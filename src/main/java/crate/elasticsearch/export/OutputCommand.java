@@ -3,7 +3,6 @@ package crate.elasticsearch.export;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
-import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -53,7 +52,7 @@ public class OutputCommand extends Output {
                 BUFFER_LEN);
         os = process.getOutputStream();
         if (compression) {
-            os = new GZIPOutputStream(os);
+            os = compress(os);
         }
     }
 
@@ -87,6 +86,32 @@ public class OutputCommand extends Output {
         }
     }
 
+    /**
+     * Destroy the process instead of waiting for it to consume what was
+     * written so far. The result holds the output read until then.
+     */
+    @Override
+    public void abort() {
+        if (process != null) {
+            process.destroy();
+            try {
+                os.close();
+            } catch (IOException e) {
+            }
+            result = new Result();
+            try {
+                result.exit = process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.exit = -1;
+            }
+            // children of the process might still hold its standard out
+            // and error, so their output is not waited for
+            result.stdOut = outputConsumer.getBufferedOutput();
+            result.stdErr = errorConsumer.getBufferedOutput();
+        }
+    }
+
     public Result result() {
         return result;
     }
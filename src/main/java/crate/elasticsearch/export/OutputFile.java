@@ -1,10 +1,8 @@
 package crate.elasticsearch.export;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 public class OutputFile extends Output {
 
@@ -13,11 +11,23 @@ public class OutputFile extends Output {
     private OutputStream os;
     private final boolean overwrite;
     private final boolean compression;
+    private final FileOptions options;
 
     public OutputFile(String path, boolean overwrite, boolean compression) {
+        this(path, overwrite, compression, new FileOptions());
+    }
+
+    /**
+     * @param path        the path of the file to write
+     * @param overwrite   whether an existing file gets overwritten
+     * @param compression whether the output gets compressed
+     * @param options     the buffer, preallocation and sync options of the file
+     */
+    public OutputFile(String path, boolean overwrite, boolean compression, FileOptions options) {
         this.path = path;
         this.overwrite = overwrite;
         this.compression = compression;
+        this.options = options;
     }
 
     @Override
@@ -26,9 +36,9 @@ public class OutputFile extends Output {
         if (!overwrite && outFile.exists()){
             throw new IOException("File exists: " +  path);
         }
-        os = new FileOutputStream(outFile);
+        os = new FileChannelOutputStream(outFile, options);
         if (compression) {
-            os = new GZIPOutputStream(os);
+            os = compress(os);
         }
     }
 
@@ -0,0 +1,242 @@
+package crate.elasticsearch.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip output stream which cuts the written bytes into blocks and
+ * compresses the blocks concurrently. Every block is written as a gzip
+ * member of its own, in the order of the blocks. Concatenated members are a
+ * valid gzip file, readable by ``gunzip`` and ``GZIPInputStream``.
+ * <p/>
+ * At most ``threads`` blocks get compressed at the same time, writing waits
+ * for the oldest block once the limit is reached. Closing this stream
+ * closes the wrapped stream, like ``GZIPOutputStream`` does.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b,  // magic number
+            Deflater.DEFLATED,  // compression method
+            0,                  // flags
+            0, 0, 0, 0,         // modification time
+            0,                  // extra flags
+            (byte) 0xff         // operating system unknown
+    };
+
+    private final OutputStream out;
+    private final int level;
+    private final int threads;
+    private final Executor executor;
+    private final int blockSize;
+    private final ArrayDeque<Future<Member>> pending = new ArrayDeque<Future<Member>>();
+    private final ArrayDeque<byte[]> freeBlocks = new ArrayDeque<byte[]>();
+
+    private byte[] block;
+    private int blockLength = 0;
+    private long membersWritten = 0;
+    private boolean closed = false;
+
+    /**
+     * Create a gzip stream which compresses on the given executor if more
+     * than one thread is given, a plain gzip stream otherwise.
+     *
+     * @param out      the stream to write the compressed bytes to
+     * @param level    the compression level, see {@link Deflater}
+     * @param threads  the maximum number of blocks compressed concurrently
+     * @param executor the executor to compress the blocks, might be null
+     *                 if only one thread is given
+     */
+    public static OutputStream gzip(OutputStream out, final int level, int threads, Executor executor)
+            throws IOException {
+        if (threads > 1 && executor != null) {
+            return new ParallelGZIPOutputStream(out, level, threads, executor, DEFAULT_BLOCK_SIZE);
+        }
+        return new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out       the stream to write the compressed bytes to
+     * @param level     the compression level, see {@link Deflater}
+     * @param threads   the maximum number of blocks compressed concurrently
+     * @param executor  the executor to compress the blocks
+     * @param blockSize the number of uncompressed bytes of a gzip member
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int level, int threads, Executor executor, int blockSize) {
+        this.out = out;
+        this.level = level;
+        this.threads = threads;
+        this.executor = executor;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (block == null || blockLength == blockSize) {
+            nextBlock();
+        }
+        block[blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (block == null || blockLength == blockSize) {
+                nextBlock();
+            }
+            int chunk = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, chunk);
+            blockLength += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Write the members which are already compressed. Like
+     * ``GZIPOutputStream`` this does not compress the pending bytes.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+            writeMember();
+        }
+        out.flush();
+    }
+
+    /**
+     * Compress the remaining bytes, write all members and close the wrapped
+     * stream. An empty stream results in one empty member.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0 || membersWritten + pending.size() == 0) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeMember();
+            }
+        } finally {
+            for (Future<Member> member : pending) {
+                member.cancel(false);
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * @return the number of gzip members written so far
+     */
+    public long membersWritten() {
+        return membersWritten;
+    }
+
+    private void nextBlock() throws IOException {
+        if (block != null) {
+            submitBlock();
+        }
+        block = freeBlocks.isEmpty() ? new byte[blockSize] : freeBlocks.poll();
+        blockLength = 0;
+    }
+
+    private void submitBlock() throws IOException {
+        while (pending.size() >= threads) {
+            writeMember();
+        }
+        final byte[] bytes = block == null ? new byte[0] : block;
+        final int length = blockLength;
+        FutureTask<Member> task = new FutureTask<Member>(new Callable<Member>() {
+            @Override
+            public Member call() throws Exception {
+                return new Member(bytes, compress(bytes, length, level));
+            }
+        });
+        executor.execute(task);
+        pending.add(task);
+        block = null;
+        blockLength = 0;
+    }
+
+    private void writeMember() throws IOException {
+        Member member;
+        try {
+            member = pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a compressed block", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress block", e.getCause());
+        }
+        out.write(member.compressed);
+        membersWritten++;
+        if (member.block.length == blockSize) {
+            freeBlocks.add(member.block);
+        }
+    }
+
+    /**
+     * Compress the bytes into a complete gzip member.
+     */
+    static byte[] compress(byte[] bytes, int length, int level) throws IOException {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(bytes, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + 64);
+            member.write(HEADER);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buffer);
+                member.write(buffer, 0, len);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, length);
+            writeInt(member, (int) crc.getValue());
+            writeInt(member, length);
+            return member.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeInt(OutputStream out, int i) throws IOException {
+        // gzip uses little endian byte order
+        out.write(i & 0xff);
+        out.write((i >> 8) & 0xff);
+        out.write((i >> 16) & 0xff);
+        out.write((i >> 24) & 0xff);
+    }
+
+    private static class Member {
+        final byte[] block;
+        final byte[] compressed;
+
+        Member(byte[] block, byte[] compressed) {
+            this.block = block;
+            this.compressed = compressed;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * Busy and idle times of the stages of an {@link ExportPipeline}. A stage
+ * is idle while it waits for blocks to process or for a following stage to
+ * accept its blocks.
+ */
+public class PipelineStats implements Streamable, ToXContent {
+
+    long fetchBusyNanos;
+    long fetchIdleNanos;
+    long compressBusyNanos;
+    long compressIdleNanos;
+    long writeBusyNanos;
+    long writeIdleNanos;
+
+    /**
+     * Add the times of another pipeline, e.g. of another export part.
+     */
+    public void add(PipelineStats other) {
+        fetchBusyNanos += other.fetchBusyNanos;
+        fetchIdleNanos += other.fetchIdleNanos;
+        compressBusyNanos += other.compressBusyNanos;
+        compressIdleNanos += other.compressIdleNanos;
+        writeBusyNanos += other.writeBusyNanos;
+        writeIdleNanos += other.writeIdleNanos;
+    }
+
+    public static PipelineStats readPipelineStats(StreamInput in) throws IOException {
+        PipelineStats stats = new PipelineStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        fetchBusyNanos = in.readVLong();
+        fetchIdleNanos = in.readVLong();
+        compressBusyNanos = in.readVLong();
+        compressIdleNanos = in.readVLong();
+        writeBusyNanos = in.readVLong();
+        writeIdleNanos = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(fetchBusyNanos);
+        out.writeVLong(fetchIdleNanos);
+        out.writeVLong(compressBusyNanos);
+        out.writeVLong(compressIdleNanos);
+        out.writeVLong(writeBusyNanos);
+        out.writeVLong(writeIdleNanos);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("pipeline");
+        stage(builder, "fetch", fetchBusyNanos, fetchIdleNanos);
+        stage(builder, "compress", compressBusyNanos, compressIdleNanos);
+        stage(builder, "write", writeBusyNanos, writeIdleNanos);
+        builder.endObject();
+        return builder;
+    }
+
+    private void stage(XContentBuilder builder, String name, long busyNanos, long idleNanos) throws IOException {
+        builder.startObject(name);
+        builder.field("busy_millis", TimeUnit.NANOSECONDS.toMillis(busyNanos));
+        builder.field("idle_millis", TimeUnit.NANOSECONDS.toMillis(idleNanos));
+        builder.endObject();
+    }
+}
@@ -0,0 +1,109 @@
+package crate.elasticsearch.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+/**
+ * Reads the records of files written by {@link SmileRecordWriter}. The
+ * bytes of a record are only valid until the next record is read.
+ */
+public class SmileRecordReader {
+
+    private final StreamInput in;
+    private final String[] indices;
+    private final String[] types;
+    private byte[] buffer = new byte[1024];
+    private int length = 0;
+    private int entry = 0;
+
+    /**
+     * Constructor, reads the header of the file.
+     *
+     * @param in the stream to read, should be buffered
+     */
+    public SmileRecordReader(InputStream in) throws IOException {
+        this.in = new InputStreamStreamInput(in);
+        byte[] magic = new byte[SmileRecordWriter.MAGIC.length];
+        try {
+            this.in.readBytes(magic, 0, magic.length);
+        } catch (EOFException e) {
+            throw new EOFException("Empty SMILE record file");
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (magic[i] != SmileRecordWriter.MAGIC[i]) {
+                throw new IOException("Not in SMILE record format");
+            }
+        }
+        int version = this.in.readVInt();
+        if (version != SmileRecordWriter.VERSION) {
+            throw new IOException("Unsupported SMILE record format version " + version);
+        }
+        int entries = this.in.readVInt();
+        // entry 0 has neither an index nor a type
+        indices = new String[entries + 1];
+        types = new String[entries + 1];
+        for (int i = 1; i <= entries; i++) {
+            indices[i] = this.in.readOptionalString();
+            types[i] = this.in.readOptionalString();
+        }
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return false if the end of the file has been reached
+     */
+    public boolean next() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            return false;
+        }
+        entry = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = in.readByte();
+            entry |= (b & 0x7F) << shift;
+        }
+        if (entry >= indices.length) {
+            throw new IOException("Unknown dictionary entry " + entry + " in SMILE record");
+        }
+        length = in.readVInt();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readBytes(buffer, 0, length);
+        return true;
+    }
+
+    /**
+     * @return the index of the current record, null if the record does not
+     *         refer to an index of the dictionary
+     */
+    public String index() {
+        return indices[entry];
+    }
+
+    /**
+     * @return the type of the current record, null if the record does not
+     *         refer to a type of the dictionary
+     */
+    public String type() {
+        return types[entry];
+    }
+
+    /**
+     * @return the SMILE encoded object of the current record
+     */
+    public BytesReference object() {
+        return new BytesArray(buffer, 0, length);
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,103 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+/**
+ * Writes exported objects as length prefixed SMILE records. The
+ * ``_index`` and ``_type`` of the objects are not written into every
+ * record, but into a dictionary in the header of the file:
+ * <p/>
+ * <pre>
+ * file:   MAGIC vint(version) vint(entry count) entry* record*
+ * entry:  optional string(index) optional string(type)
+ * record: vint(entry) vint(length) SMILE object
+ * </pre>
+ * Records of entry 0 do not refer to the dictionary, they contain the
+ * ``_index`` and ``_type`` fields like a JSON line does. The entries are
+ * numbered from 1 in the order of the header.
+ */
+public class SmileRecordWriter {
+
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC = {'S', 'M', 'R', 'F'};
+
+    private final StreamOutput out;
+    private final List<String[]> entries = new ArrayList<String[]>();
+    private final Map<String, Integer> typeEntries = new HashMap<String, Integer>();
+    private int indexEntry = 0;
+    private boolean headerWritten = false;
+
+    /**
+     * Constructor. The dictionary holds an entry for every given type.
+     *
+     * @param out       the stream to write the records to
+     * @param index     the index of the exported objects
+     * @param types     the types of the exported objects known upfront
+     * @param withIndex whether the objects contain the ``_index`` field
+     * @param withType  whether the objects contain the ``_type`` field
+     */
+    public SmileRecordWriter(OutputStream out, String index, Collection<String> types,
+            boolean withIndex, boolean withType) {
+        this.out = new OutputStreamStreamOutput(out);
+        if (withType) {
+            for (String type : types) {
+                entries.add(new String[]{withIndex ? index : null, type});
+                typeEntries.put(type, entries.size());
+            }
+        } else if (withIndex) {
+            entries.add(new String[]{index, null});
+            indexEntry = entries.size();
+        }
+    }
+
+    /**
+     * @param type the type of an exported object
+     * @return the dictionary entry of the object, 0 if the object has to
+     *         contain its ``_index`` and ``_type`` fields
+     */
+    public int entry(String type) {
+        Integer entry = typeEntries.get(type);
+        return entry == null ? indexEntry : entry;
+    }
+
+    /**
+     * Write the header, if not done yet.
+     */
+    public void writeHeader() throws IOException {
+        if (headerWritten) {
+            return;
+        }
+        headerWritten = true;
+        out.writeBytes(MAGIC);
+        out.writeVInt(VERSION);
+        out.writeVInt(entries.size());
+        for (String[] entry : entries) {
+            out.writeOptionalString(entry[0]);
+            out.writeOptionalString(entry[1]);
+        }
+    }
+
+    /**
+     * Write a record, the header gets written before the first one.
+     *
+     * @param entry  the dictionary entry of the object
+     * @param object the SMILE encoded object
+     */
+    public void writeRecord(int entry, BytesReference object) throws IOException {
+        writeHeader();
+        out.writeVInt(entry);
+        out.writeVInt(object.length());
+        object.writeTo(out);
+    }
+}
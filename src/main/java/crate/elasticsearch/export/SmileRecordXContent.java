@@ -0,0 +1,110 @@
+package crate.elasticsearch.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.jackson.dataformat.smile.SmileConstants;
+import org.elasticsearch.common.jackson.dataformat.smile.SmileFactory;
+import org.elasticsearch.common.jackson.dataformat.smile.SmileGenerator;
+import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentGenerator;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.smile.SmileXContent;
+import org.elasticsearch.common.xcontent.smile.SmileXContentGenerator;
+
+/**
+ * SMILE xcontent used to write the records of SMILE exports with a single
+ * generator per shard. Every record has to be readable on its own, so the
+ * generator does not refer back to names of previous records and the
+ * header is written by {@link #writeHeader(OutputStream)} at the start of
+ * every record instead of once by the generator. Parsing is delegated to
+ * the default SMILE xcontent.
+ */
+public class SmileRecordXContent implements XContent {
+
+    public static final SmileRecordXContent smileRecordXContent = new SmileRecordXContent();
+
+    private static final SmileFactory smileFactory;
+
+    /**
+     * The header of a record without shared names and values and without
+     * raw binary. Binary values are 7 bit encoded, as the generator has
+     * no header telling the parser about raw binary.
+     */
+    private static final byte[] HEADER = {SmileConstants.HEADER_BYTE_1, SmileConstants.HEADER_BYTE_2,
+            SmileConstants.HEADER_BYTE_3, (byte) (SmileConstants.HEADER_VERSION_0 << 4)};
+
+    static {
+        smileFactory = new SmileFactory();
+        smileFactory.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, true);
+        smileFactory.configure(SmileGenerator.Feature.WRITE_HEADER, false);
+        smileFactory.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, false);
+        smileFactory.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, false);
+    }
+
+    private SmileRecordXContent() {
+    }
+
+    /**
+     * Write the SMILE header of a record, needs to be called before the
+     * generator writes the record.
+     */
+    public static void writeHeader(OutputStream out) throws IOException {
+        out.write(HEADER);
+    }
+
+    @Override
+    public XContentType type() {
+        return XContentType.SMILE;
+    }
+
+    @Override
+    public byte streamSeparator() {
+        return SmileXContent.smileXContent.streamSeparator();
+    }
+
+    @Override
+    public XContentGenerator createGenerator(OutputStream os) throws IOException {
+        return new SmileXContentGenerator(smileFactory.createGenerator(os));
+    }
+
+    @Override
+    public XContentGenerator createGenerator(Writer writer) throws IOException {
+        return new SmileXContentGenerator(smileFactory.createGenerator(writer));
+    }
+
+    @Override
+    public XContentParser createParser(String content) throws IOException {
+        return SmileXContent.smileXContent.createParser(content);
+    }
+
+    @Override
+    public XContentParser createParser(InputStream is) throws IOException {
+        return SmileXContent.smileXContent.createParser(is);
+    }
+
+    @Override
+    public XContentParser createParser(byte[] data) throws IOException {
+        return SmileXContent.smileXContent.createParser(data);
+    }
+
+    @Override
+    public XContentParser createParser(byte[] data, int offset, int length) throws IOException {
+        return SmileXContent.smileXContent.createParser(data, offset, length);
+    }
+
+    @Override
+    public XContentParser createParser(BytesReference bytes) throws IOException {
+        return SmileXContent.smileXContent.createParser(bytes);
+    }
+
+    @Override
+    public XContentParser createParser(Reader reader) throws IOException {
+        return SmileXContent.smileXContent.createParser(reader);
+    }
+}
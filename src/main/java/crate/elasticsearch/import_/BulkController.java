@@ -0,0 +1,141 @@
+package crate.elasticsearch.import_;
+
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Decides the size and the concurrency of the bulk requests of an import
+ * and the delay of retries. Without the ``adaptive`` option the configured
+ * values are kept.
+ * <p/>
+ * Adaptive bulks follow the latency and the rejections of the cluster.
+ * A bulk with rejected objects halves the size and the concurrency, a bulk
+ * slower than the target latency shrinks the size by a quarter. After
+ * {@link #INCREASE_AFTER} bulks in a row below the target latency without
+ * rejections, the size grows by a quarter and the concurrency by one. The
+ * size stays between {@link #MIN_SIZE} and four times the configured size,
+ * the concurrency between 1 and twice the configured concurrency.
+ */
+public class BulkController {
+
+    static final long MIN_SIZE = 256 * 1024;
+    static final int INCREASE_AFTER = 4;
+    static final int MAX_BACKOFF_DOUBLINGS = 10;
+
+    private final BulkOptions options;
+    private final long minSize;
+    private final long maxSize;
+    private final int maxConcurrentRequests;
+
+    private volatile long size;
+    private volatile int concurrentRequests;
+
+    private int fastBulks = 0;
+    private long bulks = 0;
+    private long retries = 0;
+    private long rejected = 0;
+    private long adjustments = 0;
+    private long latencyNanos = 0;
+
+    public BulkController(BulkOptions options) {
+        this.options = options;
+        this.size = options.size();
+        this.concurrentRequests = Math.max(1, options.concurrentRequests());
+        this.minSize = Math.min(options.size(), MIN_SIZE);
+        this.maxSize = options.size() * 4;
+        this.maxConcurrentRequests = concurrentRequests * 2;
+    }
+
+    /**
+     * @return the maximum number of objects of a bulk
+     */
+    public int actions() {
+        return options.actions();
+    }
+
+    /**
+     * @return the number of bytes a bulk gets sent at
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bulks of the import in flight at the same time
+     */
+    public int concurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public TimeValue flushInterval() {
+        return options.flushInterval();
+    }
+
+    public int maxRetries() {
+        return options.maxRetries();
+    }
+
+    /**
+     * @param attempt the number of the retry, starting with 1
+     * @return the delay of the retry, doubling with every attempt
+     */
+    public TimeValue backoff(int attempt) {
+        int doublings = Math.min(attempt - 1, MAX_BACKOFF_DOUBLINGS);
+        return TimeValue.timeValueMillis(options.backoff().millis() << doublings);
+    }
+
+    /**
+     * Record the outcome of a bulk request, retries included.
+     *
+     * @param latencyNanos the time the request took
+     * @param rejected     the number of objects rejected by the cluster
+     */
+    public synchronized void onBulk(long latencyNanos, int rejected) {
+        bulks++;
+        this.latencyNanos += latencyNanos;
+        if (!options.adaptive()) {
+            return;
+        }
+        if (rejected > 0) {
+            fastBulks = 0;
+            adjust(size / 2, concurrentRequests / 2);
+        } else if (latencyNanos > options.targetLatency().nanos()) {
+            fastBulks = 0;
+            adjust(size - size / 4, concurrentRequests);
+        } else if (++fastBulks >= INCREASE_AFTER) {
+            fastBulks = 0;
+            adjust(size + size / 4, concurrentRequests + 1);
+        }
+    }
+
+    /**
+     * Record objects sent again after a rejection.
+     */
+    public synchronized void onRetry(int count) {
+        retries += count;
+    }
+
+    /**
+     * Record objects still rejected after the last retry.
+     */
+    public synchronized void onRejected(int count) {
+        rejected += count;
+    }
+
+    private void adjust(long newSize, int newConcurrentRequests) {
+        newSize = Math.max(minSize, Math.min(maxSize, newSize));
+        newConcurrentRequests = Math.max(1, Math.min(maxConcurrentRequests, newConcurrentRequests));
+        if (newSize != size || newConcurrentRequests != concurrentRequests) {
+            size = newSize;
+            concurrentRequests = newConcurrentRequests;
+            adjustments++;
+        }
+    }
+
+    public synchronized BulkStats stats() {
+        long avgLatencyMillis = bulks == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(latencyNanos / bulks);
+        return new BulkStats(options.adaptive(), size, concurrentRequests, bulks, retries, rejected, adjustments,
+                avgLatencyMillis);
+    }
+}
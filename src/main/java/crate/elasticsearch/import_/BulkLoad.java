@@ -0,0 +1,170 @@
+package crate.elasticsearch.import_;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.indices.IndexMissingException;
+
+/**
+ * The indices switched to bulk load settings by an import.
+ * <p/>
+ * Every node switches the indices it creates or imports into to a
+ * disabled refresh and no replicas. The index is marked with the id of
+ * the import and its original settings in the same settings update, so
+ * the node the import was requested on restores exactly the indices
+ * switched by the import, even if the node switching them fails. Indices
+ * already having the bulk load settings without being switched by the
+ * import, e.g. by another client or a concurrent import, are left alone.
+ */
+public class BulkLoad {
+
+    public static final String REFRESH_INTERVAL = "index.refresh_interval";
+    public static final String NUMBER_OF_REPLICAS = IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+    public static final String DEFAULT_REFRESH_INTERVAL = "1s";
+
+    /**
+     * The id of the import which switched an index, empty once restored.
+     */
+    public static final String IMPORT_ID = "index.inout.bulk_load.import_id";
+    public static final String ORIGINAL_REFRESH_INTERVAL = "index.inout.bulk_load.refresh_interval";
+    public static final String ORIGINAL_NUMBER_OF_REPLICAS = "index.inout.bulk_load.number_of_replicas";
+
+    /**
+     * The settings of the indices during a bulk load.
+     */
+    public static final Settings SETTINGS = settingsBuilder()
+            .put(REFRESH_INTERVAL, "-1")
+            .put(NUMBER_OF_REPLICAS, 0)
+            .build();
+
+    private final String importId;
+    private final ConcurrentMap<String, Boolean> resolved = ConcurrentCollections.newConcurrentMap();
+
+    public BulkLoad(String importId) {
+        this.importId = importId;
+    }
+
+    /**
+     * Switch the settings of an index created by the import.
+     *
+     * @param index    the index to create
+     * @param settings the settings the index was dumped with
+     * @return the settings to create the index with
+     */
+    public Settings created(String index, Settings settings) {
+        resolved.put(index, Boolean.TRUE);
+        return settingsBuilder().put(settings)
+                .put(switched(settings.get(REFRESH_INTERVAL), settings.get(NUMBER_OF_REPLICAS)))
+                .build();
+    }
+
+    /**
+     * Switch the settings of an index objects are imported into, once it
+     * exists. Indices created by the bulk requests get switched with the
+     * objects following their creation. Objects of other threads are not
+     * held up while the settings get updated.
+     */
+    public void touch(String index, Client client, ClusterState state) {
+        if (resolved.putIfAbsent(index, Boolean.TRUE) != null) {
+            return;
+        }
+        String concreteIndex;
+        try {
+            concreteIndex = state.metaData().concreteIndex(index);
+        } catch (IndexMissingException e) {
+            resolved.remove(index);
+            return;
+        } catch (ElasticsearchIllegalArgumentException e) {
+            // an alias of more than one index, the bulk requests fail
+            return;
+        }
+        IndexMetaData metaData = state.metaData().index(concreteIndex);
+        if (switched(metaData)) {
+            // by another node of the import, another import or another client
+            return;
+        }
+        Settings settings = switched(metaData.settings().get(REFRESH_INTERVAL),
+                String.valueOf(metaData.numberOfReplicas()));
+        client.admin().indices().prepareUpdateSettings(concreteIndex).setSettings(settings).execute().actionGet();
+    }
+
+    private static boolean switched(IndexMetaData metaData) {
+        return "-1".equals(metaData.settings().get(REFRESH_INTERVAL)) && metaData.numberOfReplicas() == 0;
+    }
+
+    /**
+     * The bulk load settings marked with the import and the original
+     * settings, empty if not set.
+     */
+    private Settings switched(String refreshInterval, String numberOfReplicas) {
+        return settingsBuilder()
+                .put(SETTINGS)
+                .put(IMPORT_ID, importId)
+                .put(ORIGINAL_REFRESH_INTERVAL, refreshInterval == null ? "" : refreshInterval)
+                .put(ORIGINAL_NUMBER_OF_REPLICAS, numberOfReplicas == null ? "" : numberOfReplicas)
+                .build();
+    }
+
+    /**
+     * Restore the original settings of the indices switched by the import,
+     * optimize them and wait for their health. Indices created without a
+     * refresh interval or number of replicas get the defaults.
+     *
+     * @param state           the state of the cluster after the import
+     * @param defaultReplicas the number of replicas of indices created
+     *                        without a number of replicas
+     */
+    public BulkLoadStats finish(Client client, ClusterState state, BulkLoadOptions options, int defaultReplicas) {
+        List<String> restored = new ArrayList<String>();
+        List<String> failed = new ArrayList<String>();
+        for (IndexMetaData metaData : state.metaData()) {
+            Settings current = metaData.settings();
+            if (!importId.equals(current.get(IMPORT_ID))) {
+                continue;
+            }
+            String index = metaData.index();
+            String refreshInterval = current.get(ORIGINAL_REFRESH_INTERVAL);
+            String numberOfReplicas = current.get(ORIGINAL_NUMBER_OF_REPLICAS);
+            Settings settings = settingsBuilder()
+                    .put(REFRESH_INTERVAL, Strings.hasLength(refreshInterval) ? refreshInterval : DEFAULT_REFRESH_INTERVAL)
+                    .put(NUMBER_OF_REPLICAS, Strings.hasLength(numberOfReplicas) ?
+                            Integer.parseInt(numberOfReplicas) : defaultReplicas)
+                    .put(IMPORT_ID, "")
+                    .build();
+            try {
+                client.admin().indices().prepareUpdateSettings(index).setSettings(settings).execute().actionGet();
+                restored.add(index);
+            } catch (IndexMissingException e) {
+                // deleted during the import
+            } catch (ElasticsearchException e) {
+                failed.add(index);
+            }
+        }
+        String[] indices = restored.toArray(new String[restored.size()]);
+        String[] notRestored = failed.toArray(new String[failed.size()]);
+        if (indices.length == 0) {
+            return new BulkLoadStats(indices, notRestored, false, null, false);
+        }
+        boolean optimized = false;
+        if (options.maxNumSegments() > 0) {
+            client.admin().indices().prepareOptimize(indices).setMaxNumSegments(options.maxNumSegments())
+                    .setWaitForMerge(true).execute().actionGet();
+            optimized = true;
+        }
+        ClusterHealthResponse health = client.admin().cluster().prepareHealth(indices)
+                .setWaitForStatus(options.waitForStatus()).setTimeout(options.timeout()).execute().actionGet();
+        return new BulkLoadStats(indices, notRestored, optimized, health.getStatus(), health.isTimedOut());
+    }
+}
@@ -0,0 +1,55 @@
+package crate.elasticsearch.import_;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Options of a bulk load, the settings of the indices are restored after
+ * the import, the indices optionally optimized and their health awaited.
+ */
+public class BulkLoadOptions {
+
+    public static final ClusterHealthStatus DEFAULT_WAIT_FOR_STATUS = ClusterHealthStatus.GREEN;
+    public static final TimeValue DEFAULT_TIMEOUT = TimeValue.timeValueSeconds(30);
+
+    private int maxNumSegments = 0;
+    private ClusterHealthStatus waitForStatus = DEFAULT_WAIT_FOR_STATUS;
+    private TimeValue timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * @return the number of segments the indices get optimized to, 0 to
+     *         not optimize them
+     */
+    public int maxNumSegments() {
+        return maxNumSegments;
+    }
+
+    public BulkLoadOptions maxNumSegments(int maxNumSegments) {
+        this.maxNumSegments = maxNumSegments;
+        return this;
+    }
+
+    /**
+     * @return the health status of the indices to wait for
+     */
+    public ClusterHealthStatus waitForStatus() {
+        return waitForStatus;
+    }
+
+    public BulkLoadOptions waitForStatus(ClusterHealthStatus waitForStatus) {
+        this.waitForStatus = waitForStatus;
+        return this;
+    }
+
+    /**
+     * @return the maximum time to wait for the health status
+     */
+    public TimeValue timeout() {
+        return timeout;
+    }
+
+    public BulkLoadOptions timeout(TimeValue timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+}
@@ -0,0 +1,108 @@
+package crate.elasticsearch.import_;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * The indices of a bulk load with their settings restored, the indices
+ * whose settings could not be restored, whether they got optimized and the
+ * health status they reached.
+ */
+public class BulkLoadStats implements Streamable, ToXContent {
+
+    private String[] indices;
+    private String[] notRestored;
+    private boolean optimized;
+    private ClusterHealthStatus status;
+    private boolean timedOut;
+
+    BulkLoadStats() {
+    }
+
+    public BulkLoadStats(String[] indices, String[] notRestored, boolean optimized, ClusterHealthStatus status,
+                         boolean timedOut) {
+        this.indices = indices;
+        this.notRestored = notRestored;
+        this.optimized = optimized;
+        this.status = status;
+        this.timedOut = timedOut;
+    }
+
+    public String[] indices() {
+        return indices;
+    }
+
+    /**
+     * @return the indices still having the bulk load settings
+     */
+    public String[] notRestored() {
+        return notRestored;
+    }
+
+    public boolean optimized() {
+        return optimized;
+    }
+
+    /**
+     * @return the health status of the indices, null if there are none
+     */
+    public ClusterHealthStatus status() {
+        return status;
+    }
+
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    public static BulkLoadStats readBulkLoadStats(StreamInput in) throws IOException {
+        BulkLoadStats stats = new BulkLoadStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        indices = in.readStringArray();
+        notRestored = in.readStringArray();
+        optimized = in.readBoolean();
+        status = in.readBoolean() ? ClusterHealthStatus.fromValue(in.readByte()) : null;
+        timedOut = in.readBoolean();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeStringArray(indices);
+        out.writeStringArray(notRestored);
+        out.writeBoolean(optimized);
+        if (status == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeByte(status.value());
+        }
+        out.writeBoolean(timedOut);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("bulk_load");
+        builder.array("indices", indices);
+        if (notRestored.length > 0) {
+            builder.array("not_restored", notRestored);
+        }
+        builder.field("optimized", optimized);
+        if (status != null) {
+            builder.field("status", status.name().toLowerCase(Locale.ROOT));
+        }
+        builder.field("timed_out", timedOut);
+        builder.endObject();
+        return builder;
+    }
+}
@@ -0,0 +1,130 @@
+package crate.elasticsearch.import_;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Options of the bulk requests imports index the objects with.
+ */
+public class BulkOptions {
+
+    public static final int DEFAULT_ACTIONS = 10000;
+    public static final ByteSizeValue DEFAULT_SIZE = new ByteSizeValue(5, ByteSizeUnit.MB);
+    public static final TimeValue DEFAULT_FLUSH_INTERVAL = TimeValue.timeValueSeconds(5);
+    public static final int DEFAULT_CONCURRENT_REQUESTS = 4;
+    public static final TimeValue DEFAULT_TARGET_LATENCY = TimeValue.timeValueSeconds(1);
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final TimeValue DEFAULT_BACKOFF = TimeValue.timeValueMillis(100);
+
+    private int actions = DEFAULT_ACTIONS;
+    private long size = DEFAULT_SIZE.bytes();
+    private TimeValue flushInterval = DEFAULT_FLUSH_INTERVAL;
+    private int concurrentRequests = DEFAULT_CONCURRENT_REQUESTS;
+    private boolean adaptive = false;
+    private TimeValue targetLatency = DEFAULT_TARGET_LATENCY;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private TimeValue backoff = DEFAULT_BACKOFF;
+
+    /**
+     * @return the maximum number of objects of a bulk request
+     */
+    public int actions() {
+        return actions;
+    }
+
+    public BulkOptions actions(int actions) {
+        this.actions = actions;
+        return this;
+    }
+
+    /**
+     * @return the number of bytes a bulk request gets sent at, the initial
+     *         size if the bulks are adaptive
+     */
+    public long size() {
+        return size;
+    }
+
+    public BulkOptions size(long size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * @return the interval pending objects get sent at, even if the bulk is
+     *         not full
+     */
+    public TimeValue flushInterval() {
+        return flushInterval;
+    }
+
+    public BulkOptions flushInterval(TimeValue flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    /**
+     * @return the number of bulk requests of an import on a node in flight
+     *         at the same time, the initial number if the bulks are adaptive
+     */
+    public int concurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public BulkOptions concurrentRequests(int concurrentRequests) {
+        this.concurrentRequests = concurrentRequests;
+        return this;
+    }
+
+    /**
+     * @return whether the size and the concurrency of the bulks adapt to
+     *         their latency and rejections
+     */
+    public boolean adaptive() {
+        return adaptive;
+    }
+
+    public BulkOptions adaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * @return the latency adaptive bulks grow up to
+     */
+    public TimeValue targetLatency() {
+        return targetLatency;
+    }
+
+    public BulkOptions targetLatency(TimeValue targetLatency) {
+        this.targetLatency = targetLatency;
+        return this;
+    }
+
+    /**
+     * @return the number of times rejected objects are sent again, before
+     *         they are counted as failures
+     */
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    public BulkOptions maxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * @return the delay of the first retry, it doubles with every further
+     *         retry
+     */
+    public TimeValue backoff() {
+        return backoff;
+    }
+
+    public BulkOptions backoff(TimeValue backoff) {
+        this.backoff = backoff;
+        return this;
+    }
+}
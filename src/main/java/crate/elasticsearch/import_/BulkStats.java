@@ -0,0 +1,105 @@
+package crate.elasticsearch.import_;
+
+import java.io.IOException;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * The bulk size and concurrency of an import at its end, together with
+ * the number of bulks, retries and adjustments made.
+ */
+public class BulkStats implements Streamable, ToXContent {
+
+    private boolean adaptive;
+    private long sizeInBytes;
+    private int concurrentRequests;
+    private long bulks;
+    private long retries;
+    private long rejected;
+    private long adjustments;
+    private long avgLatencyMillis;
+
+    BulkStats() {
+    }
+
+    public BulkStats(boolean adaptive, long sizeInBytes, int concurrentRequests, long bulks, long retries,
+                     long rejected, long adjustments, long avgLatencyMillis) {
+        this.adaptive = adaptive;
+        this.sizeInBytes = sizeInBytes;
+        this.concurrentRequests = concurrentRequests;
+        this.bulks = bulks;
+        this.retries = retries;
+        this.rejected = rejected;
+        this.adjustments = adjustments;
+        this.avgLatencyMillis = avgLatencyMillis;
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public int concurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public long bulks() {
+        return bulks;
+    }
+
+    public long retries() {
+        return retries;
+    }
+
+    public long rejected() {
+        return rejected;
+    }
+
+    public static BulkStats readBulkStats(StreamInput in) throws IOException {
+        BulkStats stats = new BulkStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        adaptive = in.readBoolean();
+        sizeInBytes = in.readVLong();
+        concurrentRequests = in.readVInt();
+        bulks = in.readVLong();
+        retries = in.readVLong();
+        rejected = in.readVLong();
+        adjustments = in.readVLong();
+        avgLatencyMillis = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeBoolean(adaptive);
+        out.writeVLong(sizeInBytes);
+        out.writeVInt(concurrentRequests);
+        out.writeVLong(bulks);
+        out.writeVLong(retries);
+        out.writeVLong(rejected);
+        out.writeVLong(adjustments);
+        out.writeVLong(avgLatencyMillis);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("bulk");
+        builder.field("adaptive", adaptive);
+        builder.field("size_in_bytes", sizeInBytes);
+        builder.field("concurrent_requests", concurrentRequests);
+        builder.field("bulks", bulks);
+        builder.field("retries", retries);
+        builder.field("rejected", rejected);
+        builder.field("adjustments", adjustments);
+        builder.field("avg_latency_millis", avgLatencyMillis);
+        builder.endObject();
+        return builder;
+    }
+}
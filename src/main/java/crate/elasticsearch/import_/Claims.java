@@ -0,0 +1,195 @@
+package crate.elasticsearch.import_;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.base.Charsets;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * The claims of the files and ranges of a shared import. A node claims a
+ * unit by creating its claim file, holding the id of the node, in the
+ * ``_claims/<import id>`` directory next to the file. Creating a file is
+ * atomic on shared file systems, so a unit gets claimed by exactly one
+ * node. Once the objects of a unit are indexed the node marks it done.
+ * <p/>
+ * When all nodes are done, the node the import was requested on collects
+ * the units claimed but not done, e.g. by a node which failed, and deletes
+ * the claims of the import.
+ */
+public class Claims {
+
+    /**
+     * The directory next to the import files holding the claims of shared
+     * imports.
+     */
+    public static final String DIRECTORY = "_claims";
+
+    static final String DONE_SUFFIX = ".done";
+
+    private Claims() {
+    }
+
+    private static File claimsDirectory(File directory, String importId) {
+        return new File(new File(directory, DIRECTORY), importId);
+    }
+
+    private static File claimFile(File file, FileRange range, String importId) {
+        String name = range == null ? file.getName() : file.getName() + "@" + range.start() + "-" + range.end();
+        return new File(claimsDirectory(file.getParentFile(), importId), name);
+    }
+
+    /**
+     * Claim a file or a range of it.
+     *
+     * @param range  the range of the file, null for the whole file
+     * @param nodeId the id of the claiming node
+     * @return true if the unit was claimed by the given node
+     */
+    public static boolean claim(File file, FileRange range, String importId, String nodeId) {
+        File claim = claimFile(file, range, importId);
+        claim.getParentFile().mkdirs();
+        try {
+            if (!claim.createNewFile()) {
+                return false;
+            }
+            OutputStream out = new FileOutputStream(claim);
+            try {
+                out.write(nodeId.getBytes(Charsets.UTF_8));
+            } finally {
+                out.close();
+            }
+            return true;
+        } catch (IOException e) {
+            throw new ElasticsearchException("Failed to claim " + (range == null ? file.getPath() : range), e);
+        }
+    }
+
+    /**
+     * Mark a claimed file or range as done.
+     */
+    public static void done(File file, FileRange range, String importId) {
+        File claim = claimFile(file, range, importId);
+        File done = new File(claim.getParentFile(), claim.getName() + DONE_SUFFIX);
+        try {
+            done.createNewFile();
+        } catch (IOException e) {
+            throw new ElasticsearchException("Failed to mark " + claim.getName() + " as done", e);
+        }
+    }
+
+    /**
+     * Collect the units claimed but not done and delete the claims of the
+     * import. The claims directory is deleted as well once it is empty.
+     *
+     * @param directories the directories of the import
+     * @return the units which have not been done
+     */
+    public static List<Unfinished> finish(Collection<File> directories, String importId) {
+        List<Unfinished> unfinished = new ArrayList<Unfinished>();
+        for (File directory : directories) {
+            File claims = claimsDirectory(directory, importId);
+            File[] files = claims.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File claim : files) {
+                if (!claim.getName().endsWith(DONE_SUFFIX)
+                        && !new File(claims, claim.getName() + DONE_SUFFIX).exists()) {
+                    unfinished.add(new Unfinished(new File(directory, claim.getName()).getPath(), readNodeId(claim)));
+                }
+            }
+            for (File claim : files) {
+                claim.delete();
+            }
+            claims.delete();
+            // fails if other imports still hold claims
+            claims.getParentFile().delete();
+        }
+        return unfinished;
+    }
+
+    private static String readNodeId(File claim) {
+        try {
+            InputStream in = new FileInputStream(claim);
+            try {
+                return new String(Streams.copyToByteArray(in), Charsets.UTF_8);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A file or range claimed by a node which did not finish it.
+     */
+    public static class Unfinished implements Streamable, ToXContent {
+
+        private String unit;
+        private String nodeId;
+
+        Unfinished() {
+        }
+
+        public Unfinished(String unit, String nodeId) {
+            this.unit = unit;
+            this.nodeId = nodeId;
+        }
+
+        /**
+         * @return the path of the file, followed by ``@start-end`` for a range
+         */
+        public String unit() {
+            return unit;
+        }
+
+        /**
+         * @return the id of the node which claimed the unit, null if unknown
+         */
+        public String nodeId() {
+            return nodeId;
+        }
+
+        public static Unfinished readUnfinished(StreamInput in) throws IOException {
+            Unfinished unfinished = new Unfinished();
+            unfinished.readFrom(in);
+            return unfinished;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            unit = in.readString();
+            nodeId = in.readOptionalString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(unit);
+            out.writeOptionalString(nodeId);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("file_name", unit);
+            builder.field("node_id", nodeId);
+            builder.endObject();
+            return builder;
+        }
+    }
+}
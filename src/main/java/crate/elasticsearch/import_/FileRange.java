@@ -0,0 +1,334 @@
+package crate.elasticsearch.import_;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import crate.elasticsearch.export.Compression;
+
+/**
+ * A byte range of an import file, the ranges of a file get imported
+ * concurrently.
+ * <p/>
+ * Uncompressed files are split right after a newline, so every range
+ * holds whole lines. Gzip files are split at the start of a gzip member, as
+ * written by a parallel gzip export. Members are not aligned to lines, so
+ * a range skips the line it starts in and completes its last line from the
+ * following members instead. Every line is read by exactly one range.
+ */
+public class FileRange {
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The gzip member header written by
+     * {@link crate.elasticsearch.export.ParallelGZIPOutputStream}.
+     */
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final File file;
+    private final Compression compression;
+    private final long start;
+    private final long end;
+
+    FileRange(File file, Compression compression, long start, long end) {
+        this.file = file;
+        this.compression = compression;
+        this.start = start;
+        this.end = end;
+    }
+
+    public long start() {
+        return start;
+    }
+
+    public long end() {
+        return end;
+    }
+
+    public long length() {
+        return end - start;
+    }
+
+    /**
+     * Split a file into ranges of about the given size. Files which cannot
+     * be split, like lz4 compressed files or gzip files of a single member,
+     * result in a single range.
+     *
+     * @param file        the file to split
+     * @param compression the compression of the file, null if uncompressed
+     * @param rangeSize   the minimum size of a range
+     * @return the ranges in the order of the file
+     */
+    public static List<FileRange> split(File file, Compression compression, long rangeSize) throws IOException {
+        long length = file.length();
+        List<FileRange> ranges = new ArrayList<FileRange>();
+        int count = (int) Math.min(Integer.MAX_VALUE, length / Math.max(1, rangeSize));
+        if (count < 2 || (compression != null && compression != Compression.GZIP)) {
+            ranges.add(new FileRange(file, compression, 0, length));
+            return ranges;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (compression == Compression.GZIP && !startsWithMember(raf)) {
+                // a gzip file of a single member
+                ranges.add(new FileRange(file, compression, 0, length));
+                return ranges;
+            }
+            long start = 0;
+            for (int i = 1; i < count; i++) {
+                long target = Math.max(start + 1, length / count * i);
+                long boundary = compression == null ? nextLine(raf, target - 1) : nextMember(raf, target);
+                if (boundary >= length) {
+                    break;
+                }
+                ranges.add(new FileRange(file, compression, start, boundary));
+                start = boundary;
+            }
+            ranges.add(new FileRange(file, compression, start, length));
+        } finally {
+            raf.close();
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the position after the next newline from the given position
+     * on, the file length if there is none
+     */
+    private static long nextLine(RandomAccessFile raf, long pos) throws IOException {
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        raf.seek(pos);
+        int read;
+        while ((read = raf.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return raf.length();
+    }
+
+    /**
+     * @return the position of the next gzip member header from the given
+     * position on, the file length if there is none
+     */
+    private static long nextMember(RandomAccessFile raf, long pos) throws IOException {
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        long length = raf.length();
+        while (pos < length) {
+            raf.seek(pos);
+            int read = raf.read(buffer);
+            if (read < GZIP_HEADER.length) {
+                break;
+            }
+            for (int i = 0; i <= read - GZIP_HEADER.length; i++) {
+                if (isHeader(buffer, i) && isMember(raf, pos + i)) {
+                    return pos + i;
+                }
+            }
+            // the header might cross the end of the buffer
+            pos += read - GZIP_HEADER.length + 1;
+        }
+        return length;
+    }
+
+    private static boolean startsWithMember(RandomAccessFile raf) throws IOException {
+        byte[] header = new byte[GZIP_HEADER.length];
+        raf.seek(0);
+        return raf.read(header) == header.length && isHeader(header, 0);
+    }
+
+    private static boolean isHeader(byte[] buffer, int off) {
+        for (int i = 0; i < GZIP_HEADER.length; i++) {
+            if (buffer[off + i] != GZIP_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that the deflated data after a header candidate inflates, so
+     * compressed bytes looking like a header do not split the file.
+     */
+    private static boolean isMember(RandomAccessFile raf, long pos) throws IOException {
+        byte[] deflated = new byte[8192];
+        raf.seek(pos + GZIP_HEADER.length);
+        int read = raf.read(deflated);
+        if (read <= 0) {
+            return false;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(deflated, 0, read);
+            byte[] inflated = new byte[8192];
+            while (!inflater.finished() && !inflater.needsInput()) {
+                if (inflater.inflate(inflated) == 0 && inflater.needsDictionary()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            inflater.end();
+            raf.seek(pos);
+        }
+    }
+
+    /**
+     * Open the uncompressed lines of this range.
+     */
+    public InputStream open() throws IOException {
+        if (compression == null) {
+            return new BufferedInputStream(new BoundedInputStream(file, start, end));
+        }
+        return new MemberRangeInputStream();
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath() + "[" + start + "-" + end + "]";
+    }
+
+    /**
+     * The uncompressed bytes of the members of a range, without the line
+     * the range starts in, completed by the rest of the last line.
+     */
+    private class MemberRangeInputStream extends InputStream {
+
+        private final InputStream range;
+        private InputStream tail;
+        private boolean skipping = start > 0;
+        private boolean inTail = false;
+        private boolean done = false;
+
+        MemberRangeInputStream() throws IOException {
+            range = compression.decompress(new BufferedInputStream(new BoundedInputStream(file, start, end)));
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (skipping) {
+                int c = range.read();
+                if (c == -1) {
+                    // no line starts in this range
+                    done = true;
+                    skipping = false;
+                } else if (c == '\n') {
+                    skipping = false;
+                }
+            }
+            if (done) {
+                return -1;
+            }
+            if (!inTail) {
+                int read = range.read(b, off, len);
+                if (read != -1) {
+                    return read;
+                }
+                inTail = true;
+                if (end >= file.length()) {
+                    done = true;
+                    return -1;
+                }
+                tail = compression.decompress(new BufferedInputStream(new BoundedInputStream(file, end, file.length())));
+            }
+            // the rest of the last line is in the following members
+            int c = tail.read();
+            if (c == -1 || c == '\n') {
+                done = true;
+            }
+            if (c == -1) {
+                return -1;
+            }
+            b[off] = (byte) c;
+            return 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                range.close();
+            } finally {
+                if (tail != null) {
+                    tail.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * The bytes of a file from a start position up to an end position.
+     */
+    private static class BoundedInputStream extends InputStream {
+
+        private final FileInputStream in;
+        private long remaining;
+
+        BoundedInputStream(File file, long start, long end) throws IOException {
+            this.in = new FileInputStream(file);
+            this.in.getChannel().position(start);
+            this.remaining = end - start;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        /**
+         * Gzip streams only look for a following member if bytes are
+         * available.
+         */
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(remaining, in.available());
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -1,86 +1,50 @@
 package crate.elasticsearch.import_;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicLong;
-
 import org.elasticsearch.action.bulk.BulkItemResponse;
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.common.util.concurrent.BaseFuture;
 
 import crate.elasticsearch.import_.Importer.ImportCounts;
 
-public class ImportBulkListener extends BaseFuture<ImportBulkListener> implements BulkProcessor.Listener {
+/**
+ * Counts the outcome of the objects of a file or a range of it. The bulks
+ * of an import hold the objects of many files, every object is attributed
+ * to the listener of its file.
+ */
+public class ImportBulkListener {
 
-    private AtomicLong bulksInProgress = new AtomicLong();
-    private ImportCounts counts = new ImportCounts();
+    private final ImportCounts counts = new ImportCounts();
 
     public ImportBulkListener(String fileName) {
         counts.fileName = fileName;
     }
 
-    @Override
-    public ImportBulkListener get() throws InterruptedException,
-            ExecutionException {
-        if (bulksInProgress.get() == 0) {
-            return this;
-        }
-        return super.get();
-    }
-
-    public void addFailure() {
+    public synchronized void addFailure() {
         counts.failures++;
     }
 
-    public void addDelete() {
+    public synchronized void addDelete() {
         counts.deletes++;
     }
 
-    public ImportCounts importCounts() {
-        return counts;
-    }
-
-    @Override
-    public void beforeBulk(long executionId, BulkRequest request) {
-        bulksInProgress.incrementAndGet();
+    public synchronized void addInvalid() {
+        counts.invalid++;
     }
 
-    @Override
-    public void afterBulk(long executionId, BulkRequest request,
-            BulkResponse response) {
-        bulksInProgress.decrementAndGet();
-        if (response.hasFailures()) {
-            for (BulkItemResponse item : response.getItems()) {
-                if (item.isFailed()) {
-                    counts.failures++;
-                } else {
-                    counts.successes++;
-                }
-            }
+    /**
+     * Count the outcome of an object sent with a bulk.
+     */
+    public synchronized void onItem(BulkItemResponse item) {
+        if (item.isFailed()) {
+            counts.failures++;
         } else {
-            counts.successes += response.getItems().length;
+            counts.successes++;
         }
-        checkRelease();
     }
 
-    @Override
-    public void afterBulk(long executionId, BulkRequest request,
-            Throwable failure) {
-        bulksInProgress.decrementAndGet();
-        counts.failures += request.requests().size();
-        failure.printStackTrace();
-        checkRelease();
-    }
-
-    private void checkRelease() {
-        if (bulksInProgress.get() == 0) {
-            this.set(this);
-        }
-    }
-
-    public void addInvalid() {
-        counts.invalid++;
+    /**
+     * @return the counts of the file, complete once the bulks of the import
+     * are done
+     */
+    public synchronized ImportCounts importCounts() {
+        return counts;
     }
-
-}
\ No newline at end of file
+}
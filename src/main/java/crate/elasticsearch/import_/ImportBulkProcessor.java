@@ -0,0 +1,272 @@
+package crate.elasticsearch.import_;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.threadpool.ThreadPool;
+
+/**
+ * Collects the index requests of an import into bulk requests, like the
+ * BulkProcessor of Elasticsearch, with the size and concurrency decided by
+ * a {@link BulkController}. The objects of all files of an import share
+ * the bulks, so the bulks stay full however small the files are.
+ * <p/>
+ * Objects rejected by the cluster are sent again after the delay of the
+ * controller, up to its maximum number of retries. The final outcome of
+ * every object is passed to the listener of the file it was read from.
+ */
+public class ImportBulkProcessor {
+
+    private final Client client;
+    private final ThreadPool threadPool;
+    private final BulkController controller;
+    private final ScheduledFuture<?> scheduledFlush;
+
+    private BulkRequest bulkRequest = new BulkRequest();
+    private List<ImportBulkListener> listeners = new ArrayList<ImportBulkListener>();
+    private int inFlight = 0;
+    private boolean closed = false;
+
+    public ImportBulkProcessor(Client client, ThreadPool threadPool, BulkController controller) {
+        this.client = client;
+        this.threadPool = threadPool;
+        this.controller = controller;
+        if (controller.flushInterval() != null && controller.flushInterval().millis() > 0) {
+            this.scheduledFlush = threadPool.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flushIfIdle();
+                }
+            }, controller.flushInterval());
+        } else {
+            this.scheduledFlush = null;
+        }
+    }
+
+    /**
+     * Add an index request, waits while the maximum number of bulks is in
+     * flight and the bulk is full.
+     *
+     * @param listener the listener of the file the request was read from
+     */
+    public synchronized void add(IndexRequest request, ImportBulkListener listener) {
+        if (closed) {
+            throw new ElasticsearchException("Bulk processor already closed");
+        }
+        bulkRequest.add(request);
+        listeners.add(listener);
+        if (bulkRequest.numberOfActions() >= controller.actions()
+                || bulkRequest.estimatedSizeInBytes() >= controller.size()) {
+            execute();
+        }
+    }
+
+    /**
+     * Send the pending requests without waiting for their responses.
+     */
+    public synchronized void flush() {
+        if (!closed && bulkRequest.numberOfActions() > 0) {
+            execute();
+        }
+    }
+
+    /**
+     * Send the pending requests and wait for all bulks in flight,
+     * retries included.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        if (bulkRequest.numberOfActions() > 0) {
+            execute();
+        }
+        while (inFlight > 0) {
+            await();
+        }
+    }
+
+    private synchronized void flushIfIdle() {
+        if (!closed && bulkRequest.numberOfActions() > 0 && inFlight < controller.concurrentRequests()) {
+            execute();
+        }
+    }
+
+    private void execute() {
+        BulkRequest request = bulkRequest;
+        List<ImportBulkListener> requestListeners = listeners;
+        bulkRequest = new BulkRequest();
+        listeners = new ArrayList<ImportBulkListener>();
+        while (inFlight >= controller.concurrentRequests()) {
+            await();
+        }
+        inFlight++;
+        new Bulk(request, requestListeners).start();
+    }
+
+    private void await() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Interrupted while waiting for bulk requests", e);
+        }
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Item failures only carry the message of the exception, rejections
+     * share their status with other unavailable shards.
+     */
+    static boolean isRejection(BulkItemResponse.Failure failure) {
+        return failure.getMessage() != null && failure.getMessage().contains(EsRejectedExecutionException.class.getSimpleName());
+    }
+
+    /**
+     * A bulk request and the retries of its rejected objects.
+     */
+    private class Bulk implements ActionListener<BulkResponse> {
+
+        private final BulkRequest original;
+        private final List<ImportBulkListener> listeners;
+        private final BulkItemResponse[] results;
+        private int[] positions;
+        private int attempt = 0;
+        private long sent;
+
+        Bulk(BulkRequest original, List<ImportBulkListener> listeners) {
+            this.original = original;
+            this.listeners = listeners;
+            this.results = new BulkItemResponse[original.numberOfActions()];
+        }
+
+        void start() {
+            positions = new int[results.length];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = i;
+            }
+            send(original);
+        }
+
+        private void send(BulkRequest request) {
+            sent = System.nanoTime();
+            try {
+                client.bulk(request, this);
+            } catch (Throwable e) {
+                onFailure(e);
+            }
+        }
+
+        @Override
+        public void onResponse(BulkResponse response) {
+            long latency = System.nanoTime() - sent;
+            List<Integer> retry = new ArrayList<Integer>();
+            int rejected = 0;
+            for (BulkItemResponse item : response.getItems()) {
+                int position = positions[item.getItemId()];
+                if (item.isFailed() && isRejection(item.getFailure())) {
+                    rejected++;
+                    if (attempt < controller.maxRetries()) {
+                        retry.add(position);
+                        continue;
+                    }
+                    controller.onRejected(1);
+                }
+                results[position] = item.isFailed()
+                        ? new BulkItemResponse(position, item.getOpType(), item.getFailure())
+                        : new BulkItemResponse(position, item.getOpType(), item.getResponse());
+            }
+            controller.onBulk(latency, rejected);
+            if (retry.isEmpty()) {
+                finish();
+            } else {
+                retry(retry);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            long latency = System.nanoTime() - sent;
+            boolean rejection = ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException;
+            controller.onBulk(latency, rejection ? positions.length : 0);
+            if (rejection && attempt < controller.maxRetries()) {
+                List<Integer> retry = new ArrayList<Integer>(positions.length);
+                for (int position : positions) {
+                    retry.add(position);
+                }
+                retry(retry);
+                return;
+            }
+            if (rejection) {
+                controller.onRejected(positions.length);
+            }
+            for (int position : positions) {
+                ActionRequest request = original.requests().get(position);
+                String index = null;
+                String type = null;
+                String docId = null;
+                if (request instanceof IndexRequest) {
+                    IndexRequest indexRequest = (IndexRequest) request;
+                    index = indexRequest.index();
+                    type = indexRequest.type();
+                    docId = indexRequest.id();
+                }
+                results[position] = new BulkItemResponse(position, "index",
+                        new BulkItemResponse.Failure(index, type, docId, e));
+            }
+            finish();
+        }
+
+        private void retry(List<Integer> retry) {
+            attempt++;
+            controller.onRetry(retry.size());
+            final BulkRequest request = new BulkRequest();
+            positions = new int[retry.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = retry.get(i);
+                request.add(original.requests().get(positions[i]));
+            }
+            try {
+                threadPool.schedule(controller.backoff(attempt), ThreadPool.Names.GENERIC, new Runnable() {
+                    @Override
+                    public void run() {
+                        send(request);
+                    }
+                });
+            } catch (EsRejectedExecutionException e) {
+                // the node shuts down
+                attempt = controller.maxRetries();
+                onFailure(e);
+            }
+        }
+
+        private void finish() {
+            try {
+                for (int i = 0; i < results.length; i++) {
+                    listeners.get(i).onItem(results[i]);
+                }
+            } finally {
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package crate.elasticsearch.import_;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+/**
+ * The thread pool files get imported in by imports and restores with a
+ * ``parallelism`` greater than 1. The pool has a fixed number of threads,
+ * which limits the number of files imported concurrently on a node by all
+ * requests. Waiting files are started largest first, so the longest
+ * imports are not the last ones to begin.
+ * <p/>
+ * The pool is configured by the node settings:
+ * <ul>
+ * <li>``inout.import.threads``: the number of files imported concurrently,
+ * defaults to the number of processors</li>
+ * <li>``inout.import.queue_size``: the number of files waiting to be
+ * imported before further files get rejected, defaults to 10000</li>
+ * </ul>
+ */
+public class ImportExecutor extends AbstractLifecycleComponent<ImportExecutor> {
+
+    public static final String THREAD_POOL_NAME = "inout_import";
+
+    private final int threads;
+    private final int queueSize;
+    private final AtomicLong sequence = new AtomicLong();
+    private ThreadPoolExecutor executor;
+
+    @Inject
+    public ImportExecutor(Settings settings) {
+        super(settings);
+        this.threads = settings.getAsInt("inout.import.threads",
+                EsExecutors.boundedNumberOfProcessors(settings));
+        this.queueSize = settings.getAsInt("inout.import.queue_size", 10000);
+    }
+
+    @Override
+    protected void doStart() throws ElasticsearchException {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                EsExecutors.daemonThreadFactory(settings, THREAD_POOL_NAME));
+        logger.debug("importing up to {} files concurrently, queue size {}", threads, queueSize);
+    }
+
+    @Override
+    protected void doStop() throws ElasticsearchException {
+        executor.shutdownNow();
+    }
+
+    @Override
+    protected void doClose() throws ElasticsearchException {
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of files imported concurrently
+     */
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of files waiting to be imported
+     */
+    public int waiting() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Import files in the pool and wait for all of them. At most
+     * ``parallelism`` of the given files are submitted at once, the largest
+     * first, the next one gets submitted whenever one has finished.
+     *
+     * @param sizes       the sizes of the files, larger files are started first
+     * @param imports     the imports of the files
+     * @param parallelism the maximum number of the files imported concurrently
+     * @return the results of the imports, in the order of the given imports
+     * @throws EsRejectedExecutionException if too many files are waiting
+     */
+    public <T> List<T> executeAll(final long[] sizes, List<Callable<T>> imports, int parallelism)
+            throws ElasticsearchException {
+        List<Integer> order = new ArrayList<Integer>(imports.size());
+        for (int i = 0; i < imports.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                long s1 = sizes[o1];
+                long s2 = sizes[o2];
+                return s1 > s2 ? -1 : (s1 == s2 ? o1.compareTo(o2) : 1);
+            }
+        });
+
+        List<FileImport<T>> tasks = new ArrayList<FileImport<T>>(imports.size());
+        for (int i = 0; i < imports.size(); i++) {
+            tasks.add(null);
+        }
+        BlockingQueue<FileImport<T>> finished = new LinkedBlockingQueue<FileImport<T>>();
+        int submitted = 0;
+        int running = 0;
+        try {
+            while (submitted < order.size() || running > 0) {
+                while (submitted < order.size() && running < parallelism) {
+                    int i = order.get(submitted);
+                    if (executor.getQueue().size() >= queueSize) {
+                        throw new EsRejectedExecutionException("rejected file import, " + queueSize + " files are waiting");
+                    }
+                    FileImport<T> task = new FileImport<T>(sizes[i], sequence.getAndIncrement(), imports.get(i), finished);
+                    tasks.set(i, task);
+                    executor.execute(task);
+                    submitted++;
+                    running++;
+                }
+                finished.take();
+                running--;
+            }
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Interrupted while waiting for the file imports", e);
+        } catch (EsRejectedExecutionException e) {
+            cancel(tasks);
+            throw e;
+        }
+
+        List<T> results = new ArrayList<T>(tasks.size());
+        for (FileImport<T> task : tasks) {
+            try {
+                results.add(task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticsearchException("Interrupted while waiting for the file imports", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ElasticsearchException) {
+                    throw (ElasticsearchException) e.getCause();
+                }
+                throw new ElasticsearchException("Failed to import file", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static <T> void cancel(List<FileImport<T>> tasks) {
+        for (FileImport<T> task : tasks) {
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A file import ordered by size, descending, files of the same size
+     * keep the order they were submitted in. Finished imports put
+     * themselves into the given queue.
+     */
+    private static class FileImport<T> extends FutureTask<T> implements Comparable<FileImport<?>> {
+
+        private final long size;
+        private final long sequence;
+        private final BlockingQueue<FileImport<T>> finished;
+
+        FileImport(long size, long sequence, Callable<T> fileImport, BlockingQueue<FileImport<T>> finished) {
+            super(fileImport);
+            this.size = size;
+            this.sequence = sequence;
+            this.finished = finished;
+        }
+
+        @Override
+        protected void done() {
+            finished.add(this);
+        }
+
+        @Override
+        public int compareTo(FileImport<?> o) {
+            if (size != o.size) {
+                return size > o.size ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+}
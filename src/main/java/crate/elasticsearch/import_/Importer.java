@@ -1,5 +1,6 @@
 package crate.elasticsearch.import_;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -7,21 +8,25 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 
 import crate.elasticsearch.action.import_.ImportContext;
 import crate.elasticsearch.action.import_.NodeImportRequest;
+import crate.elasticsearch.export.Format;
+import crate.elasticsearch.export.SmileRecordReader;
+import crate.elasticsearch.throttle.Throttle;
+import crate.elasticsearch.throttle.ThrottleStats;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
 import org.elasticsearch.ElasticsearchParseException;
@@ -29,22 +34,23 @@ import org.elasticsearch.action.admin.cluster.state.ClusterStateRequest;
 import org.elasticsearch.action.admin.cluster.state.ClusterStateResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
-import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexRequest.OpType;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Requests;
+import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.hppc.cursors.ObjectCursor;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.jackson.core.JsonFactory;
+import org.elasticsearch.common.jackson.core.JsonParser;
+import org.elasticsearch.common.jackson.core.JsonToken;
 import org.elasticsearch.common.inject.Injector;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.ImmutableSettings.Builder;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.unit.ByteSizeUnit;
-import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -52,6 +58,8 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentParser.Token;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.common.xcontent.smile.SmileXContent;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.mapper.internal.IdFieldMapper;
 import org.elasticsearch.index.mapper.internal.IndexFieldMapper;
@@ -62,49 +70,55 @@ import org.elasticsearch.index.mapper.internal.TimestampFieldMapper;
 import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndexMissingException;
+import org.elasticsearch.threadpool.ThreadPool;
 
 public class Importer {
 
     private Client client;
     private final Injector injector;
+    private final Throttle throttle;
+    private final ImportExecutor importExecutor;
 
-    private final ByteSizeValue bulkByteSize = new ByteSizeValue(5, ByteSizeUnit.MB);
-    private final TimeValue flushInterval = TimeValue.timeValueSeconds(5);
-    private final int concurrentRequests = 4;
+    private final ThreadPool threadPool;
+    private final ClusterService clusterService;
+    private final int defaultReplicas;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
 
     @Inject
-    public Importer(Injector injector) {
+    public Importer(Settings settings, Injector injector, Throttle throttle, ImportExecutor importExecutor,
+                    ThreadPool threadPool, ClusterService clusterService) {
         this.injector = injector;
+        this.threadPool = threadPool;
+        this.clusterService = clusterService;
+        this.defaultReplicas = settings.getAsInt(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1);
+        this.throttle = throttle;
+        this.importExecutor = importExecutor;
     }
 
-    public Result execute(ImportContext context, NodeImportRequest request) {
+    public Result execute(final ImportContext context, final NodeImportRequest request) {
         if (this.client == null) {
             // Inject here to avoid injection loop in constructor
             this.client = injector.getInstance(Client.class);
         }
-        String index = request.index();
-        String type = request.type();
-        int bulkSize = request.bulkSize();
-        Result result = new Result();
+        final String index = request.index();
+        final String type = request.type();
+        final BulkController bulkController = new BulkController(context.bulkOptions());
+        final Result result = new Result();
+        if (context.bulkLoad() != null) {
+            result.bulkLoad = new BulkLoad(request.importId());
+        }
         Date start = new Date();
-        File dir = new File(context.directory());
-        if (dir.isDirectory()) {
-            File[] files;
-            if (context.file_pattern() == null) {
-                files = dir.listFiles();
-            } else {
-                final Pattern file_pattern = context.file_pattern();
-                files = dir.listFiles(new FilenameFilter() {
-                    @Override
-                    public boolean accept(File dir, String name) {
-                        Matcher m = file_pattern.matcher(name);
-                        if (m.find()) {
-                            return true;
-                        }
-                        return false;
-                    }
-                });
+        if (context.hasInputCmd()) {
+            ImportBulkProcessor bulkProcessor = new ImportBulkProcessor(client, threadPool, bulkController);
+            try {
+                result.importCounts.add(handleCommand(index, type, bulkProcessor, context, result));
+            } finally {
+                bulkProcessor.close();
             }
+        }
+        List<File> files = context.hasInputCmd() ? null : listFiles(context);
+        if (files != null) {
             // import settings according to the given data file pattern
             try {
             if (context.settings()) {
@@ -112,7 +126,7 @@ public class Importer {
                 for (File file : files) {
                     String fileName = file.getName();
                     if (!fileName.endsWith(".mapping") && !fileName.endsWith(".settings") && file.isFile() && file.canRead()) {
-                        loadSettings(file, createdSettings, index);
+                        loadSettings(file, createdSettings, index, result.bulkLoad);
                     }
                 }
             }
@@ -130,89 +144,426 @@ public class Importer {
                 throw new ElasticsearchException("::" ,e);
             }
             // import data according to the given data file pattern
+            List<File> dataFiles = new ArrayList<File>(files.size());
             for (File file : files) {
                 String fileName = file.getName();
                 if (!fileName.endsWith(".mapping") && !fileName.endsWith(".settings")) {
-                    ImportCounts counts = handleFile(file, index, type, bulkSize, context);
-                    if (counts != null) {
-                        result.importCounts.add(counts);
+                    dataFiles.add(file);
+                }
+            }
+            // large files are split into ranges, imported concurrently or
+            // claimed by different nodes of a shared import
+            boolean split = context.parallelism() > 1 || context.shared();
+            List<FileRange> ranges = new ArrayList<FileRange>();
+            List<Integer> rangeFiles = new ArrayList<Integer>();
+            List<Long> rangeSizes = new ArrayList<Long>();
+            for (int i = 0; i < dataFiles.size(); i++) {
+                File file = dataFiles.get(i);
+                List<FileRange> fileRanges = split ? splitFile(file, context) : null;
+                if (fileRanges == null) {
+                    ranges.add(null);
+                    rangeFiles.add(i);
+                    rangeSizes.add(file.length());
+                } else {
+                    for (FileRange range : fileRanges) {
+                        ranges.add(range);
+                        rangeFiles.add(i);
+                        rangeSizes.add(range.length());
+                    }
+                }
+            }
+            // all files feed the same bulks
+            final ImportBulkProcessor bulkProcessor = new ImportBulkProcessor(client, threadPool, bulkController);
+            final String nodeId = clusterService.localNode().id();
+            // the claimed units are done once their objects are indexed
+            final List<Integer> claimedUnits = new ArrayList<Integer>();
+            long[] sizes = new long[ranges.size()];
+            List<Callable<ImportCounts>> imports = new ArrayList<Callable<ImportCounts>>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                final int unit = i;
+                final File file = dataFiles.get(rangeFiles.get(i));
+                final FileRange range = ranges.get(i);
+                sizes[i] = rangeSizes.get(i);
+                imports.add(new Callable<ImportCounts>() {
+                    @Override
+                    public ImportCounts call() throws Exception {
+                        if (!context.shared()) {
+                            return handleFile(file, range, index, type, bulkProcessor, context, result);
+                        }
+                        if (!file.isFile() || !Claims.claim(file, range, request.importId(), nodeId)) {
+                            return null;
+                        }
+                        synchronized (result) {
+                            result.claimed++;
+                        }
+                        ImportCounts counts = handleFile(file, range, index, type, bulkProcessor, context, result);
+                        synchronized (result) {
+                            claimedUnits.add(unit);
+                        }
+                        return counts;
+                    }
+                });
+            }
+            List<ImportCounts> rangeCounts;
+            try {
+                if (context.parallelism() > 1) {
+                    // import the files in the import pool, the largest first
+                    rangeCounts = importExecutor.executeAll(sizes, imports, context.parallelism());
+                } else {
+                    rangeCounts = new ArrayList<ImportCounts>(imports.size());
+                    for (Callable<ImportCounts> fileImport : imports) {
+                        try {
+                            rangeCounts.add(fileImport.call());
+                        } catch (RuntimeException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            throw new ElasticsearchException("Failed to import", e);
+                        }
                     }
                 }
+            } finally {
+                bulkProcessor.close();
+            }
+            for (int unit : claimedUnits) {
+                Claims.done(dataFiles.get(rangeFiles.get(unit)), ranges.get(unit), request.importId());
+                result.completed++;
+            }
+            // roll the counts of the ranges up into the counts of their file
+            ImportCounts[] fileCounts = new ImportCounts[dataFiles.size()];
+            for (int i = 0; i < rangeCounts.size(); i++) {
+                ImportCounts counts = rangeCounts.get(i);
+                int file = rangeFiles.get(i);
+                if (counts == null) {
+                    continue;
+                } else if (fileCounts[file] == null) {
+                    fileCounts[file] = counts;
+                } else {
+                    fileCounts[file].add(counts);
+                }
+            }
+            for (ImportCounts counts : fileCounts) {
+                if (counts != null) {
+                    result.importCounts.add(counts);
+                }
+            }
+            if (context.shared()) {
+                result.sharedStats = new SharedStats(result.claimed, result.completed);
             }
         }
         result.took = new Date().getTime() - start.getTime();
+        result.throttleStats = throttle.stats(result.pausedNanos);
+        result.bulkStats = bulkController.stats();
         return result;
     }
 
-    private ImportCounts handleFile(File file, String index, String type, int bulkSize, ImportContext context) {
+    /**
+     * Restore the settings of the indices of a bulk load, on the node the
+     * import was requested on once all nodes are done.
+     *
+     * @param bulkLoad the bulk load of the import
+     */
+    public BulkLoadStats finishBulkLoad(BulkLoadOptions options, BulkLoad bulkLoad) {
+        if (this.client == null) {
+            this.client = injector.getInstance(Client.class);
+        }
+        return bulkLoad.finish(client, clusterService.state(), options, defaultReplicas);
+    }
+
+    /**
+     * List the files of the import directory in all data locations, as
+     * striped exports spread their files over them.
+     *
+     * @return the matching files or null if none of the directories exists
+     */
+    private List<File> listFiles(ImportContext context) {
+        List<File> files = null;
+        FilenameFilter filter = null;
+        if (context.file_pattern() != null) {
+            final Pattern file_pattern = context.file_pattern();
+            filter = new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    Matcher m = file_pattern.matcher(name);
+                    if (m.find()) {
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+        for (File dir : context.directories()) {
+            if (dir.isDirectory()) {
+                File[] dirFiles = filter == null ? dir.listFiles() : dir.listFiles(filter);
+                if (files == null) {
+                    files = new ArrayList<File>();
+                }
+                if (dirFiles != null) {
+                    files.addAll(Arrays.asList(dirFiles));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Split a JSON file into ranges, uncompressed files at newlines and gzip
+     * files at their members.
+     *
+     * @return the ranges or null if the file gets imported as a whole
+     */
+    private List<FileRange> splitFile(File file, ImportContext context) {
+        if (context.format() != Format.JSON || !file.isFile() || !file.canRead()) {
+            return null;
+        }
+        try {
+            List<FileRange> ranges = FileRange.split(file, context.compression(), context.rangeSize());
+            return ranges.size() > 1 ? ranges : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Import a file or a range of it into the bulks of the import. The
+     * counts of the file are complete once the bulk processor is closed.
+     *
+     * @param range the range of the file to import, null to import the whole file
+     */
+    private ImportCounts handleFile(File file, FileRange range, String index, String type, ImportBulkProcessor bulkProcessor, ImportContext context, Result result) {
         if (file.isFile() && file.canRead()) {
             ImportBulkListener bulkListener = new ImportBulkListener(file.getAbsolutePath());
-            BulkProcessor bulkProcessor = BulkProcessor.builder(client, bulkListener)
-                    .setBulkActions(bulkSize)
-                    .setBulkSize(bulkByteSize)
-                    .setFlushInterval(flushInterval)
-                    .setConcurrentRequests(concurrentRequests)
-                    .build();
+            InputStream is = null;
             try {
-                BufferedReader r;
-                if (context.compression()) {
-                    GZIPInputStream is = new GZIPInputStream(new FileInputStream(file));
-                    r = new BufferedReader(new InputStreamReader(is));
+                if (range != null) {
+                    is = range.open();
                 } else {
-                    r = new BufferedReader(new FileReader(file));
+                    is = new FileInputStream(file);
+                    if (context.compression() != null) {
+                        is = context.compression().decompress(is);
+                    }
                 }
-                String line;
-                while ((line = r.readLine()) != null) {
-                    IndexRequest indexRequest;
+                readObjects(is, index, type, bulkProcessor, bulkListener, context, result);
+            } catch (FileNotFoundException e) {
+                // Ignore not existing files, actually they should exist, as they are filtered before.
+            } catch (IOException e) {
+            } finally {
+                if (is != null) {
                     try {
-                        indexRequest = parseObject(line, context);
-                        if (indexRequest == null) {
-                            bulkListener.addDelete();
-                            continue;
-                        }
-                    } catch (ExpiredObjectException e) {
-                        bulkListener.addInvalid();
-                        continue;
-                    } catch (ObjectImportException e) {
-                        bulkListener.addFailure();
-                        continue;
+                        is.close();
+                    } catch (IOException e) {
                     }
+                }
+            }
+            return bulkListener.importCounts();
+        }
+        return null;
+    }
 
-                    indexRequest.opType(OpType.INDEX);
-                    if (index != null) {
-                        indexRequest.index(index);
-                    }
-                    if (type != null) {
-                        indexRequest.type(type);
-                    }
-                    if (indexRequest.type() != null && indexRequest.index() != null) {
-                        bulkProcessor.add(indexRequest);
+    /**
+     * Import the standard out of the input command. The counts are listed
+     * under the command, its exit code and standard error in the result.
+     */
+    private ImportCounts handleCommand(String index, String type, ImportBulkProcessor bulkProcessor, ImportContext context, Result result) {
+        InputCommand command;
+        String name;
+        if (context.inputCmd() != null) {
+            command = new InputCommand(context.inputCmd());
+            name = context.inputCmd();
+        } else {
+            command = new InputCommand(context.inputCmdArray());
+            name = context.inputCmdArray().toString();
+        }
+        ImportBulkListener bulkListener = new ImportBulkListener(name);
+        try {
+            command.open();
+        } catch (IOException e) {
+            throw new ElasticsearchException("Failed to start input_cmd " + name, e);
+        }
+        boolean read = false;
+        try {
+            InputStream is = command.getInputStream();
+            if (context.compression() != null) {
+                is = context.compression().decompress(is);
+            }
+            readObjects(is, index, type, bulkProcessor, bulkListener, context, result);
+            read = true;
+        } catch (IOException e) {
+            // the exit code and the standard error tell what went wrong
+        } finally {
+            if (read) {
+                try {
+                    command.close();
+                } catch (IOException e) {
+                }
+            } else {
+                // do not wait for the rest of the output of a failed import
+                command.abort();
+            }
+            result.inputCommand = command.result();
+        }
+        return bulkListener.importCounts();
+    }
+
+    /**
+     * Read the objects of a stream into the bulks of the import.
+     */
+    private void readObjects(InputStream is, String index, String type, ImportBulkProcessor bulkProcessor,
+                             ImportBulkListener bulkListener, ImportContext context, Result result) throws IOException {
+        long pausedNanos = 0;
+        LineReader lines = null;
+        SmileRecordReader records = null;
+        if (context.format() == Format.SMILE) {
+            records = new SmileRecordReader(new BufferedInputStream(is));
+        } else {
+            lines = new LineReader(is);
+        }
+        try {
+            while (true) {
+                IndexRequest indexRequest;
+                try {
+                    if (records != null) {
+                        if (!records.next()) {
+                            break;
+                        }
+                        pausedNanos += throttle.pause(records.object().length(), 1);
+                        indexRequest = parseRecord(records, context);
                     } else {
-                        bulkListener.addFailure();
+                        if (!lines.next()) {
+                            break;
+                        }
+                        pausedNanos += throttle.pause(lines.length() + 1, 1);
+                        indexRequest = parseLine(lines.bytes(), lines.offset(), lines.length(), context);
+                    }
+                    if (indexRequest == null) {
+                        bulkListener.addDelete();
+                        continue;
                     }
+                } catch (ExpiredObjectException e) {
+                    bulkListener.addInvalid();
+                    continue;
+                } catch (ObjectImportException e) {
+                    bulkListener.addFailure();
+                    continue;
+                }
 
+                indexRequest.opType(OpType.INDEX);
+                if (index != null) {
+                    indexRequest.index(index);
+                }
+                if (type != null) {
+                    indexRequest.type(type);
+                }
+                if (indexRequest.type() != null && indexRequest.index() != null) {
+                    if (result.bulkLoad != null) {
+                        result.bulkLoad.touch(indexRequest.index(), client, clusterService.state());
+                    }
+                    bulkProcessor.add(indexRequest, bulkListener);
+                } else {
+                    bulkListener.addFailure();
                 }
-            } catch (FileNotFoundException e) {
-                // Ignore not existing files, actually they should exist, as they are filtered before.
-            } catch (IOException e) {
-            } finally {
-                bulkProcessor.close();
             }
+        } finally {
+            synchronized (result) {
+                result.pausedNanos += pausedNanos;
+            }
+        }
+    }
+
+    /**
+     * Parse a JSON line. Without a script only the metadata fields get
+     * parsed, the bytes of the ``_source`` are passed on as they are.
+     */
+    private IndexRequest parseLine(byte[] bytes, int offset, int length, ImportContext importContext) throws ObjectImportException, ExpiredObjectException {
+        if (importContext.scriptString() != null) {
+            XContentParser parser;
             try {
-                bulkListener.get();
-            } catch (InterruptedException e1) {
-            } catch (ExecutionException e1) {
+                parser = JsonXContent.jsonXContent.createParser(bytes, offset, length);
+            } catch (IOException e) {
+                throw new ObjectImportException(e);
+            }
+            return parseObject(parser, new IndexRequest(), importContext);
+        }
+        IndexRequest indexRequest = new IndexRequest();
+        JsonParser parser = null;
+        try {
+            parser = jsonFactory.createParser(bytes, offset, length);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ObjectImportException(new ElasticsearchParseException("Line is not a JSON object"));
+            }
+            long ttl = 0;
+            int sourceStart = -1;
+            int sourceEnd = -1;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                token = parser.nextToken();
+                boolean number = token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT;
+                if (fieldName.equals(IdFieldMapper.NAME) && token == JsonToken.VALUE_STRING) {
+                    indexRequest.id(parser.getText());
+                } else if (fieldName.equals(IndexFieldMapper.NAME) && token == JsonToken.VALUE_STRING) {
+                    indexRequest.index(parser.getText());
+                } else if (fieldName.equals(TypeFieldMapper.NAME) && token == JsonToken.VALUE_STRING) {
+                    indexRequest.type(parser.getText());
+                } else if (fieldName.equals(RoutingFieldMapper.NAME) && token == JsonToken.VALUE_STRING) {
+                    indexRequest.routing(parser.getText());
+                } else if (fieldName.equals(TimestampFieldMapper.NAME) && number) {
+                    indexRequest.timestamp(String.valueOf(parser.getLongValue()));
+                } else if (fieldName.equals(TTLFieldMapper.NAME) && number) {
+                    ttl = parser.getLongValue();
+                } else if (fieldName.equals("_version") && number) {
+                    indexRequest.version(parser.getLongValue());
+                    indexRequest.versionType(VersionType.EXTERNAL);
+                } else if (fieldName.equals(SourceFieldMapper.NAME) && token == JsonToken.START_OBJECT) {
+                    // the parser is right behind the opening and the closing brace
+                    sourceStart = (int) parser.getCurrentLocation().getByteOffset() - 1;
+                    parser.skipChildren();
+                    sourceEnd = (int) parser.getCurrentLocation().getByteOffset();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new ObjectImportException(new ElasticsearchParseException("Line is not a JSON object"));
+            }
+            applyTTL(indexRequest, ttl);
+            if (sourceStart >= 0) {
+                // the line buffer gets reused, so the source is copied
+                indexRequest.source(Arrays.copyOfRange(bytes, offset + sourceStart, offset + sourceEnd));
+            } else {
+                indexRequest.source(new byte[0]);
+            }
+            return indexRequest;
+        } catch (IOException e) {
+            throw new ObjectImportException(e);
+        } finally {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                }
             }
-            return bulkListener.importCounts();
         }
-        return null;
     }
 
-    private IndexRequest parseObject(String line, ImportContext importContext) throws ObjectImportException, ExpiredObjectException {
-        XContentParser parser = null;
+    /**
+     * Parse the SMILE object of the current record, the index and type of
+     * the dictionary entry apply unless the object holds its own.
+     */
+    private IndexRequest parseRecord(SmileRecordReader records, ImportContext importContext) throws ObjectImportException, ExpiredObjectException {
+        XContentParser parser;
+        try {
+            parser = SmileXContent.smileXContent.createParser(records.object());
+        } catch (IOException e) {
+            throw new ObjectImportException(e);
+        }
+        IndexRequest indexRequest = new IndexRequest();
+        indexRequest.index(records.index());
+        indexRequest.type(records.type());
+        return parseObject(parser, indexRequest, importContext);
+    }
+
+    private IndexRequest parseObject(XContentParser parser, IndexRequest indexRequest, ImportContext importContext) throws ObjectImportException, ExpiredObjectException {
         try {
-            IndexRequest indexRequest = new IndexRequest();
-            parser = XContentFactory.xContent(line.getBytes()).createParser(line.getBytes());
             Token token;
             XContentBuilder sourceBuilder = XContentFactory.contentBuilder(XContentType.JSON);
             long ttl = 0;
@@ -242,72 +593,60 @@ public class Importer {
                     break;
                 }
             }
-            if (ttl > 0) {
-                String ts = indexRequest.timestamp();
-                long start;
-                if (ts != null) {
-                    start = Long.valueOf(ts);
-                } else {
-                    start = new Date().getTime();
-                }
-                ttl = ttl - start;
-                if (ttl > 0) {
-                    indexRequest.ttl(ttl);
-                } else {
-                    // object is invalid, do not import
-                    throw new ExpiredObjectException();
-                }
-            }
-            
+            applyTTL(indexRequest, ttl);
+
             if(importContext.scriptString()!=null){
                 Tuple<XContentType, Map<String, Object>> sourceAndContent = XContentHelper.convertToMap(sourceBuilder.bytes(), true);
-                importContext.executionContext().clear();
-                importContext.executionContext().put("_index", indexRequest.index());
-                importContext.executionContext().put("_type", indexRequest.type());
-                importContext.executionContext().put("_id", indexRequest.id());
-                importContext.executionContext().put("_version", indexRequest.version());
-                importContext.executionContext().put("_source", sourceAndContent.v2());
-                importContext.executionContext().put("_routing", indexRequest.routing());
-                importContext.executionContext().put("_parent", indexRequest.parent());
-                importContext.executionContext().put("_timestamp", indexRequest.timestamp());
-                importContext.executionContext().put("_ttl", indexRequest.ttl());
+                // the execution context and the script are shared by the files imported concurrently
+                synchronized (importContext) {
+                    importContext.executionContext().clear();
+                    importContext.executionContext().put("_index", indexRequest.index());
+                    importContext.executionContext().put("_type", indexRequest.type());
+                    importContext.executionContext().put("_id", indexRequest.id());
+                    importContext.executionContext().put("_version", indexRequest.version());
+                    importContext.executionContext().put("_source", sourceAndContent.v2());
+                    importContext.executionContext().put("_routing", indexRequest.routing());
+                    importContext.executionContext().put("_parent", indexRequest.parent());
+                    importContext.executionContext().put("_timestamp", indexRequest.timestamp());
+                    importContext.executionContext().put("_ttl", indexRequest.ttl());
 
-                try {
-                    importContext.executableScript().setNextVar("ctx", importContext.executionContext());
-                    importContext.executableScript().run();
-                    // we need to unwrap the ctx...
-                    importContext.executionContext().putAll((Map<String, Object>) importContext.executableScript().unwrap(importContext.executionContext()));
-                    indexRequest.source(sourceAndContent.v2());
-
-                    String operation = (String) importContext.executionContext().get("op");
-                    if (!(operation == null || "index".equals(operation)))  {
-                        return null;
-                    }
-
-                    Object fetchedTimestamp = importContext.executionContext().get("_timestamp");
-                    if (fetchedTimestamp != null) {
-                        if (fetchedTimestamp instanceof String) {
-                            indexRequest.timestamp(String.valueOf(TimeValue.parseTimeValue((String) fetchedTimestamp, null).millis()));
-                        } else {
-                            indexRequest.timestamp(fetchedTimestamp.toString());
+                    try {
+                        importContext.executableScript().setNextVar("ctx", importContext.executionContext());
+                        importContext.executableScript().run();
+                        // we need to unwrap the ctx...
+                        importContext.executionContext().putAll((Map<String, Object>) importContext.executableScript().unwrap(importContext.executionContext()));
+                        indexRequest.source(sourceAndContent.v2());
+
+                        String operation = (String) importContext.executionContext().get("op");
+                        if (!(operation == null || "index".equals(operation)))  {
+                            return null;
                         }
-                    }
-                    Object fetchedTTL = importContext.executionContext().get("_ttl");
-                    if (fetchedTTL != null) {
-                        Long newTtl = -1L;
-                        if (fetchedTTL instanceof Number) {
-                             newTtl = ((Number) fetchedTTL).longValue();
-
-                        } else {
-                            newTtl = TimeValue.parseTimeValue((String) fetchedTTL, null).millis();
+
+                        Object fetchedTimestamp = importContext.executionContext().get("_timestamp");
+                        if (fetchedTimestamp != null) {
+                            if (fetchedTimestamp instanceof String) {
+                                indexRequest.timestamp(String.valueOf(TimeValue.parseTimeValue((String) fetchedTimestamp, null).millis()));
+                            } else {
+                                indexRequest.timestamp(fetchedTimestamp.toString());
+                            }
                         }
-                        if (newTtl > 0) {
-                            indexRequest.ttl(newTtl);
+                        Object fetchedTTL = importContext.executionContext().get("_ttl");
+                        if (fetchedTTL != null) {
+                            Long newTtl = -1L;
+                            if (fetchedTTL instanceof Number) {
+                                 newTtl = ((Number) fetchedTTL).longValue();
+
+                            } else {
+                                newTtl = TimeValue.parseTimeValue((String) fetchedTTL, null).millis();
+                            }
+                            if (newTtl > 0) {
+                                indexRequest.ttl(newTtl);
+                            }
                         }
-                    }
 
-                } catch (Exception e) {
-                    throw new ElasticsearchIllegalArgumentException("failed to execute script", e);
+                    } catch (Exception e) {
+                        throw new ElasticsearchIllegalArgumentException("failed to execute script", e);
+                    }
                 }
                } else {
                    indexRequest.source(sourceBuilder);
@@ -318,10 +657,35 @@ public class Importer {
             throw new ObjectImportException(e);
         } catch (IOException e) {
             throw new ObjectImportException(e);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Set the remaining time to live of an object, given the exported
+     * expiration time stamp.
+     */
+    private void applyTTL(IndexRequest indexRequest, long ttl) throws ExpiredObjectException {
+        if (ttl > 0) {
+            String ts = indexRequest.timestamp();
+            long start;
+            if (ts != null) {
+                start = Long.valueOf(ts);
+            } else {
+                start = new Date().getTime();
+            }
+            ttl = ttl - start;
+            if (ttl > 0) {
+                indexRequest.ttl(ttl);
+            } else {
+                // object is invalid, do not import
+                throw new ExpiredObjectException();
+            }
         }
     }
 
-    private void loadSettings(File file, Set<String> createdSettings, String restrictedIndex) {
+    private void loadSettings(File file, Set<String> createdSettings, String restrictedIndex, BulkLoad bulkLoad) {
         File settingsFile = new File(file.getAbsolutePath() + ".settings");
         if (settingsFile.exists() && settingsFile.isFile() && settingsFile.canRead()) {
             Map<String, Object> map;
@@ -348,6 +712,9 @@ public class Importer {
                                     builder.loadFromSource(settingsBuilder.map((Map<String, Object>) settingsMap).string());
                                 }
                                 Settings settings = builder.build();
+                                if (bulkLoad != null) {
+                                    settings = bulkLoad.created(key, settings);
+                                }
                                 CreateIndexRequest cir = new CreateIndexRequest(key, settings);
                                 try {
                                     client.admin().indices().create(cir).actionGet();
@@ -500,6 +867,14 @@ public class Importer {
     public static class Result {
         public List<ImportCounts> importCounts = new ArrayList<Importer.ImportCounts>();
         public long took;
+        public long pausedNanos;
+        public ThrottleStats throttleStats;
+        public BulkStats bulkStats;
+        public SharedStats sharedStats;
+        public BulkLoad bulkLoad;
+        public InputCommand.Result inputCommand;
+        public int claimed;
+        public int completed;
     }
 
     public static class ImportCounts {
@@ -508,6 +883,16 @@ public class Importer {
         public int failures = 0;
         public int invalid = 0;
         public int deletes = 0;
+
+        /**
+         * Add the counts of another range of the same file.
+         */
+        public void add(ImportCounts other) {
+            successes += other.successes;
+            failures += other.failures;
+            invalid += other.invalid;
+            deletes += other.deletes;
+        }
     }
 
 }
@@ -0,0 +1,183 @@
+package crate.elasticsearch.import_;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.List;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import crate.elasticsearch.export.StreamConsumer;
+
+/**
+ * Start an OS Command as a process and read the objects to import from
+ * the process' standard out. Get standard error messages and the exit
+ * code when the process has finished.
+ */
+public class InputCommand {
+
+    private static final int BUFFER_LEN = 8192;
+
+    private final ProcessBuilder builder;
+    private Process process;
+    private StreamConsumer errorConsumer;
+    private InputStream inputStream;
+    private Result result;
+
+    /**
+     * Initialize the process builder with a single command.
+     */
+    public InputCommand(String command) {
+        builder = new ProcessBuilder(command);
+    }
+
+    /**
+     * Initialize the process with a command list.
+     */
+    public InputCommand(List<String> cmdArray) {
+        builder = new ProcessBuilder(cmdArray);
+    }
+
+    /**
+     * Start the process, its standard in gets closed right away.
+     */
+    public void open() throws IOException {
+        process = builder.start();
+        process.getOutputStream().close();
+        errorConsumer = new StreamConsumer(process.getErrorStream(), BUFFER_LEN);
+        inputStream = new LookaheadInputStream(process.getInputStream());
+    }
+
+    /**
+     * Get the input stream to read the process' standard out from, null
+     * if the process has not been started.
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Wait until the process is finished and close all resources. Output
+     * not read yet gets discarded, call it once the standard out is read.
+     */
+    public void close() throws IOException {
+        if (process != null) {
+            InputStream is = process.getInputStream();
+            try {
+                byte[] buffer = new byte[BUFFER_LEN];
+                while (is.read(buffer) != -1) {
+                    // let the process finish writing
+                }
+            } finally {
+                is.close();
+            }
+            finish(true);
+        }
+    }
+
+    /**
+     * Destroy the process and close all resources, called instead of
+     * {@link #close()} if the import of the standard out failed.
+     */
+    public void abort() {
+        if (process != null) {
+            process.destroy();
+            try {
+                process.getInputStream().close();
+            } catch (IOException e) {
+            }
+            // children of the process might still hold its standard error
+            finish(false);
+        }
+    }
+
+    /**
+     * @param waitForStdErr true to wait for the end of the standard error,
+     *                      false to take what was read so far
+     */
+    private void finish(boolean waitForStdErr) {
+        result = new Result();
+        try {
+            result.exit = process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            result.exit = -1;
+        }
+        if (waitForStdErr) {
+            errorConsumer.waitFor();
+        }
+        result.stdErr = errorConsumer.getBufferedOutput();
+    }
+
+    public Result result() {
+        return result;
+    }
+
+    /**
+     * The standard out of the process. Gzip streams only look for a
+     * following member if bytes are available, which a pipe does not
+     * report before the process wrote them. Asking for the available bytes
+     * waits for the next byte instead.
+     */
+    private static class LookaheadInputStream extends PushbackInputStream {
+
+        LookaheadInputStream(InputStream in) {
+            super(in, 1);
+        }
+
+        @Override
+        public int available() throws IOException {
+            int available = super.available();
+            if (available > 0) {
+                return available;
+            }
+            int b = read();
+            if (b == -1) {
+                return 0;
+            }
+            unread(b);
+            return 1;
+        }
+    }
+
+    /**
+     * The exit code and the beginning of the standard error of a process.
+     */
+    public static class Result implements Streamable, ToXContent {
+
+        public int exit;
+        public String stdErr;
+
+        public static Result readResult(StreamInput in) throws IOException {
+            Result result = new Result();
+            result.readFrom(in);
+            return result;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            exit = in.readInt();
+            stdErr = in.readOptionalString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeInt(exit);
+            out.writeOptionalString(stdErr);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject("input_cmd");
+            builder.field("exitcode", exit);
+            builder.field("stderr", stdErr);
+            builder.endObject();
+            return builder;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package crate.elasticsearch.import_;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the lines of a stream as bytes, without decoding them. The lines
+ * are handed out as slices of a buffer, which is reused for the following
+ * lines, so the bytes of a line are only valid until the next line is read.
+ * Lines are terminated by a newline, a preceding carriage return is not part
+ * of the line.
+ */
+public class LineReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int pos = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    private int offset = 0;
+    private int length = 0;
+
+    public LineReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param in         the stream to read, needs no buffering
+     * @param bufferSize the initial size of the buffer, it grows for lines
+     *                   longer than the buffer
+     */
+    public LineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Read the next line.
+     *
+     * @return false if the stream is at its end
+     */
+    public boolean next() throws IOException {
+        int start = pos;
+        int scan = pos;
+        while (true) {
+            for (; scan < limit; scan++) {
+                if (buffer[scan] == '\n') {
+                    setLine(start, scan);
+                    pos = scan + 1;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (start == limit) {
+                    return false;
+                }
+                // the last line has no newline
+                setLine(start, limit);
+                pos = limit;
+                return true;
+            }
+            // keep the beginning of the line, read more of it
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                scan -= start;
+                start = 0;
+                pos = 0;
+            } else if (limit == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, limit);
+                buffer = grown;
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    private void setLine(int start, int end) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        offset = start;
+        length = end - start;
+    }
+
+    /**
+     * @return the buffer holding the current line
+     */
+    public byte[] bytes() {
+        return buffer;
+    }
+
+    /**
+     * @return the offset of the current line in the buffer
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return the length of the current line, without the line terminator
+     */
+    public int length() {
+        return length;
+    }
+}
@@ -0,0 +1,62 @@
+package crate.elasticsearch.import_;
+
+import java.io.IOException;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * The number of files and ranges a node claimed in a shared import and the
+ * number of them it completed.
+ */
+public class SharedStats implements Streamable, ToXContent {
+
+    private int claimed;
+    private int completed;
+
+    SharedStats() {
+    }
+
+    public SharedStats(int claimed, int completed) {
+        this.claimed = claimed;
+        this.completed = completed;
+    }
+
+    public int claimed() {
+        return claimed;
+    }
+
+    public int completed() {
+        return completed;
+    }
+
+    public static SharedStats readSharedStats(StreamInput in) throws IOException {
+        SharedStats stats = new SharedStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        claimed = in.readVInt();
+        completed = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(claimed);
+        out.writeVInt(completed);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("shared");
+        builder.field("claimed", claimed);
+        builder.field("completed", completed);
+        builder.endObject();
+        return builder;
+    }
+}
@@ -3,6 +3,7 @@ package crate.elasticsearch.module.export;
 import crate.elasticsearch.action.export.ExportAction;
 import crate.elasticsearch.action.export.TransportExportAction;
 import crate.elasticsearch.action.export.parser.ExportParser;
+import crate.elasticsearch.export.ExportExecutor;
 import crate.elasticsearch.export.Exporter;
 import org.elasticsearch.action.GenericAction;
 import org.elasticsearch.action.support.TransportAction;
@@ -17,6 +18,7 @@ public class ExportModule extends AbstractModule {
 
         bind(ExportParser.class).asEagerSingleton();
         bind(Exporter.class).asEagerSingleton();
+        bind(ExportExecutor.class).asEagerSingleton();
 
         MapBinder<GenericAction, TransportAction> transportActionsBinder = MapBinder.newMapBinder(binder(), GenericAction.class, TransportAction.class);
 
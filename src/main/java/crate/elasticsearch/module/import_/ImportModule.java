@@ -3,6 +3,7 @@ package crate.elasticsearch.module.import_;
 import crate.elasticsearch.action.import_.ImportAction;
 import crate.elasticsearch.action.import_.TransportImportAction;
 import crate.elasticsearch.action.import_.parser.ImportParser;
+import crate.elasticsearch.import_.ImportExecutor;
 import crate.elasticsearch.import_.Importer;
 import org.elasticsearch.action.GenericAction;
 import org.elasticsearch.action.support.TransportAction;
@@ -16,6 +17,7 @@ public class ImportModule extends AbstractModule {
         bind(TransportImportAction.class).asEagerSingleton();
 
         bind(ImportParser.class).asEagerSingleton();
+        bind(ImportExecutor.class).asEagerSingleton();
         bind(Importer.class).asEagerSingleton();
 
         MapBinder<GenericAction, TransportAction> transportActionsBinder = MapBinder.newMapBinder(binder(), GenericAction.class, TransportAction.class);
@@ -3,7 +3,9 @@ package crate.elasticsearch.module.searchinto;
 import crate.elasticsearch.action.searchinto.SearchIntoAction;
 import crate.elasticsearch.action.searchinto.TransportSearchIntoAction;
 import crate.elasticsearch.action.searchinto.parser.SearchIntoParser;
+import crate.elasticsearch.searchinto.BulkSinks;
 import crate.elasticsearch.searchinto.BulkWriterCollector;
+import crate.elasticsearch.searchinto.TransportClientCache;
 import crate.elasticsearch.searchinto.WriterCollectorFactory;
 import org.elasticsearch.action.GenericAction;
 import org.elasticsearch.action.support.TransportAction;
@@ -19,6 +21,8 @@ public class SearchIntoModule extends AbstractModule {
         bind(TransportSearchIntoAction.class).asEagerSingleton();
 
         bind(SearchIntoParser.class).asEagerSingleton();
+        bind(TransportClientCache.class).asEagerSingleton();
+        bind(BulkSinks.class).asEagerSingleton();
 
         MapBinder<GenericAction, TransportAction> transportActionsBinder =
                 MapBinder.newMapBinder(
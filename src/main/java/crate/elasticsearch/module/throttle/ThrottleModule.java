@@ -0,0 +1,12 @@
+package crate.elasticsearch.module.throttle;
+
+import crate.elasticsearch.throttle.Throttle;
+import org.elasticsearch.common.inject.AbstractModule;
+
+public class ThrottleModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        bind(Throttle.class).asEagerSingleton();
+    }
+}
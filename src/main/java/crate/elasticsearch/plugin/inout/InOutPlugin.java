@@ -3,24 +3,34 @@ package crate.elasticsearch.plugin.inout;
 import java.util.Collection;
 
 import bist.elasticsearch.plugin.river.management.InOutRiverModule;
+import org.elasticsearch.cluster.settings.ClusterDynamicSettingsModule;
+import org.elasticsearch.cluster.settings.Validator;
 import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.component.LifecycleComponent;
 import org.elasticsearch.common.inject.Module;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.settings.IndexDynamicSettingsModule;
 import org.elasticsearch.plugins.AbstractPlugin;
 import org.elasticsearch.rest.RestModule;
 
+import crate.elasticsearch.export.ExportExecutor;
+import crate.elasticsearch.import_.BulkLoad;
+import crate.elasticsearch.import_.ImportExecutor;
 import crate.elasticsearch.module.dump.DumpModule;
 import crate.elasticsearch.module.export.ExportModule;
 import crate.elasticsearch.module.import_.ImportModule;
 import crate.elasticsearch.module.reindex.ReindexModule;
 import crate.elasticsearch.module.restore.RestoreModule;
 import crate.elasticsearch.module.searchinto.SearchIntoModule;
+import crate.elasticsearch.module.throttle.ThrottleModule;
 import crate.elasticsearch.rest.action.admin.dump.RestDumpAction;
 import crate.elasticsearch.rest.action.admin.export.RestExportAction;
 import crate.elasticsearch.rest.action.admin.import_.RestImportAction;
 import crate.elasticsearch.rest.action.admin.reindex.RestReindexAction;
 import crate.elasticsearch.rest.action.admin.restore.RestRestoreAction;
 import crate.elasticsearch.rest.action.admin.searchinto.RestSearchIntoAction;
+import crate.elasticsearch.searchinto.TransportClientCache;
+import crate.elasticsearch.throttle.Throttle;
 import org.elasticsearch.river.RiversModule;
 
 public class InOutPlugin extends AbstractPlugin {
@@ -48,6 +58,16 @@ public class InOutPlugin extends AbstractPlugin {
         restModule.addRestAction(RestReindexAction.class);
     }
 
+    public void onModule(ClusterDynamicSettingsModule module) {
+        module.addDynamicSetting(Throttle.BYTES_PER_SEC, Validator.BYTES_SIZE);
+        module.addDynamicSetting(Throttle.DOCS_PER_SEC, Validator.NON_NEGATIVE_INTEGER);
+    }
+
+    public void onModule(IndexDynamicSettingsModule module) {
+        module.addDynamicSettings(BulkLoad.IMPORT_ID, BulkLoad.ORIGINAL_REFRESH_INTERVAL,
+                BulkLoad.ORIGINAL_NUMBER_OF_REPLICAS);
+    }
+
     public void onModule(RiversModule module) {
         module.registerRiver("housecleaning", InOutRiverModule.class);
 
@@ -57,6 +77,7 @@ public class InOutPlugin extends AbstractPlugin {
     public Collection<Class<? extends Module>> modules() {
         Collection<Class<? extends Module>> modules = Lists.newArrayList();
         if (!settings.getAsBoolean("node.client", false)) {
+            modules.add(ThrottleModule.class);
             modules.add(ExportModule.class);
             modules.add(ImportModule.class);
             modules.add(SearchIntoModule.class);
@@ -66,4 +87,15 @@ public class InOutPlugin extends AbstractPlugin {
         }
         return modules;
     }
+
+    @Override
+    public Collection<Class<? extends LifecycleComponent>> services() {
+        Collection<Class<? extends LifecycleComponent>> services = Lists.newArrayList();
+        if (!settings.getAsBoolean("node.client", false)) {
+            services.add(ExportExecutor.class);
+            services.add(ImportExecutor.class);
+            services.add(TransportClientCache.class);
+        }
+        return services;
+    }
 }
@@ -0,0 +1,202 @@
+package crate.elasticsearch.searchinto;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import crate.elasticsearch.action.searchinto.SearchIntoContext;
+import crate.elasticsearch.import_.BulkController;
+import crate.elasticsearch.import_.BulkOptions;
+import crate.elasticsearch.import_.BulkStats;
+import crate.elasticsearch.import_.ImportBulkListener;
+import crate.elasticsearch.import_.ImportBulkProcessor;
+
+/**
+ * The bulk sinks of the search into and reindex requests of a node. All
+ * shards of a request on a node feed the same bulks, so the node holds
+ * one pending bulk and one limit of bulks in flight per request, however
+ * many shards of the request it holds. The documents are still counted
+ * for the shard they were read from.
+ * <p/>
+ * A sink is created by the first shard of a request and closed once the
+ * last shard writing into it is done, shards of a request running one
+ * after the other get a sink each.
+ */
+public class BulkSinks {
+
+    private final Client client;
+    private final ThreadPool threadPool;
+    private final TransportClientCache transportClientCache;
+
+    private final Map<String, Sink> sinks = new HashMap<String, Sink>();
+
+    @Inject
+    public BulkSinks(Client client, ThreadPool threadPool, TransportClientCache transportClientCache) {
+        this.client = client;
+        this.threadPool = threadPool;
+        this.transportClientCache = transportClientCache;
+    }
+
+    /**
+     * Get the sink of the request of a shard, it has to be released once
+     * the shard is done. The bulk options and target nodes of the first
+     * shard apply to the sink, they are the same for all shards of a
+     * request.
+     */
+    public Sink acquire(SearchIntoContext context) {
+        return acquire(context.searchIntoId(), context.bulkOptions(), context.targetNodes());
+    }
+
+    Sink acquire(String id, BulkOptions bulkOptions, List<InetSocketTransportAddress> targetNodes) {
+        synchronized (this) {
+            Sink sink = id == null ? null : sinks.get(id);
+            if (sink == null) {
+                sink = new Sink(id, bulkOptions, targetNodes);
+                if (id != null) {
+                    sinks.put(id, sink);
+                }
+            }
+            sink.refs++;
+            return sink;
+        }
+    }
+
+    /**
+     * @return the number of open sinks of requests
+     */
+    public synchronized int size() {
+        return sinks.size();
+    }
+
+    private void release(Sink sink) {
+        synchronized (this) {
+            if (--sink.refs > 0) {
+                return;
+            }
+            if (sink.id != null && sinks.get(sink.id) == sink) {
+                sinks.remove(sink.id);
+            }
+        }
+        sink.close();
+    }
+
+    /**
+     * The bulks of a request on the node.
+     */
+    public class Sink {
+
+        private final String id;
+        private final BulkController controller;
+        private final TransportClientCache.Entry transportClient;
+        private ImportBulkProcessor processor;
+        private int refs = 0;
+
+        Sink(String id, BulkOptions bulkOptions, List<InetSocketTransportAddress> targetNodes) {
+            this.id = id;
+            this.controller = new BulkController(bulkOptions);
+            if (targetNodes.isEmpty()) {
+                this.transportClient = null;
+            } else {
+                this.transportClient = transportClientCache.acquire(targetNodes);
+            }
+        }
+
+        /**
+         * The processor is created on first use, so connecting to target
+         * nodes does not block the sinks of other requests.
+         */
+        private synchronized ImportBulkProcessor processor() {
+            if (processor == null) {
+                Client sinkClient = transportClient == null ? client : transportClient.client();
+                processor = new ImportBulkProcessor(sinkClient, threadPool, controller);
+            }
+            return processor;
+        }
+
+        /**
+         * Add a document of a shard, waits while the sink is full.
+         */
+        public void add(IndexRequest request, ShardListener listener) {
+            processor().add(request, listener);
+            listener.added();
+        }
+
+        /**
+         * Send the pending documents and wait for the outcome of the
+         * documents of a shard, the documents of other shards may still be
+         * in flight.
+         */
+        public void finish(ShardListener listener) {
+            processor().flush();
+            listener.await();
+        }
+
+        /**
+         * @return the bulk size and concurrency of the sink, shared by the
+         * shards of the request
+         */
+        public BulkStats stats() {
+            return controller.stats();
+        }
+
+        public void release() {
+            BulkSinks.this.release(this);
+        }
+
+        private void close() {
+            try {
+                synchronized (this) {
+                    if (processor != null) {
+                        processor.close();
+                    }
+                }
+            } finally {
+                if (transportClient != null) {
+                    transportClient.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the documents of a shard and the documents still in flight.
+     */
+    public static class ShardListener extends ImportBulkListener {
+
+        private long pending = 0;
+
+        public ShardListener(String shard) {
+            super(shard);
+        }
+
+        synchronized void added() {
+            pending++;
+        }
+
+        @Override
+        public synchronized void onItem(BulkItemResponse item) {
+            super.onItem(item);
+            pending--;
+            notifyAll();
+        }
+
+        synchronized void await() {
+            while (pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ElasticsearchException("Interrupted while waiting for bulk requests", e);
+                }
+            }
+        }
+    }
+}
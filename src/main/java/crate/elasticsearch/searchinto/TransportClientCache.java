@@ -0,0 +1,233 @@
+package crate.elasticsearch.searchinto;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+/**
+ * The transport clients of search into and reindex operations writing to
+ * the nodes of another cluster. Clients are shared by all operations of
+ * a node with the same ``targetNodes``, so the shards of an operation do
+ * not connect and sniff the target cluster one by one.
+ * <p/>
+ * A client is closed once it has not been used for the idle timeout. If
+ * the maximum number of clients is in use, further target clusters get a
+ * client of their own, which is closed when the shard is done.
+ * <p/>
+ * The cache is configured by the node settings:
+ * <ul>
+ * <li>``inout.search_into.clients.max``: the number of cached clients,
+ * defaults to 10</li>
+ * <li>``inout.search_into.clients.idle_timeout``: the time an unused client
+ * is kept, defaults to 5m</li>
+ * </ul>
+ */
+public class TransportClientCache extends AbstractLifecycleComponent<TransportClientCache> {
+
+    private final ThreadPool threadPool;
+    private final int maxClients;
+    private final TimeValue idleTimeout;
+
+    /**
+     * The clients by their target addresses, least recently used first.
+     */
+    private final LinkedHashMap<String, Entry> clients = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private ScheduledFuture<?> scheduledEviction;
+
+    @Inject
+    public TransportClientCache(Settings settings, ThreadPool threadPool) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.maxClients = settings.getAsInt("inout.search_into.clients.max", 10);
+        this.idleTimeout = settings.getAsTime("inout.search_into.clients.idle_timeout",
+                TimeValue.timeValueMinutes(5));
+    }
+
+    @Override
+    protected void doStart() throws ElasticsearchException {
+        long interval = Math.max(1000, idleTimeout.millis() / 2);
+        scheduledEviction = threadPool.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, TimeValue.timeValueMillis(interval));
+        logger.debug("caching up to {} transport clients, idle timeout {}", maxClients, idleTimeout);
+    }
+
+    @Override
+    protected void doStop() throws ElasticsearchException {
+        if (scheduledEviction != null) {
+            scheduledEviction.cancel(false);
+        }
+    }
+
+    @Override
+    protected void doClose() throws ElasticsearchException {
+        List<Entry> closed;
+        synchronized (this) {
+            closed = new ArrayList<Entry>(clients.values());
+            clients.clear();
+        }
+        for (Entry entry : closed) {
+            entry.closeClient();
+        }
+    }
+
+    /**
+     * Get a client connected to the given nodes, it has to be released
+     * once the operation is done.
+     */
+    public Entry acquire(List<InetSocketTransportAddress> addresses) {
+        String key = key(addresses);
+        Entry evicted = null;
+        Entry entry;
+        synchronized (this) {
+            entry = clients.get(key);
+            if (entry == null) {
+                if (clients.size() >= maxClients) {
+                    evicted = removeUnused();
+                }
+                entry = new Entry(key, addresses, evicted != null || clients.size() < maxClients);
+                if (entry.cached) {
+                    clients.put(key, entry);
+                }
+            }
+            entry.refs++;
+        }
+        if (evicted != null) {
+            evicted.closeClient();
+        }
+        return entry;
+    }
+
+    /**
+     * @return the number of cached clients
+     */
+    public synchronized int size() {
+        return clients.size();
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.refs--;
+        entry.lastUsed = threadPool.estimatedTimeInMillis();
+    }
+
+    /**
+     * Remove the least recently used client which is not in use.
+     *
+     * @return the removed client, null if all clients are in use
+     */
+    private Entry removeUnused() {
+        for (Iterator<Entry> i = clients.values().iterator(); i.hasNext(); ) {
+            Entry entry = i.next();
+            if (entry.refs == 0) {
+                i.remove();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    void evictIdle() {
+        List<Entry> evicted = new ArrayList<Entry>();
+        long now = threadPool.estimatedTimeInMillis();
+        synchronized (this) {
+            for (Iterator<Entry> i = clients.values().iterator(); i.hasNext(); ) {
+                Entry entry = i.next();
+                if (entry.refs == 0 && now - entry.lastUsed >= idleTimeout.millis()) {
+                    i.remove();
+                    evicted.add(entry);
+                }
+            }
+        }
+        for (Entry entry : evicted) {
+            logger.debug("closing idle transport client of {}", entry.key);
+            entry.closeClient();
+        }
+    }
+
+    /**
+     * The order of the target nodes does not matter, clients connected to
+     * the same nodes are shared.
+     */
+    static String key(List<InetSocketTransportAddress> addresses) {
+        TreeSet<String> sorted = new TreeSet<String>();
+        for (InetSocketTransportAddress address : addresses) {
+            sorted.add(address.toString());
+        }
+        return sorted.toString();
+    }
+
+    /**
+     * A client of the cache, used by an operation until it gets released.
+     * The client connects on first use, so connecting to a target cluster
+     * does not block the operations of other target clusters.
+     */
+    public class Entry {
+
+        private final String key;
+        private final List<InetSocketTransportAddress> addresses;
+        private final boolean cached;
+        private int refs = 0;
+        private long lastUsed;
+        private TransportClient client;
+
+        Entry(String key, List<InetSocketTransportAddress> addresses, boolean cached) {
+            this.key = key;
+            this.addresses = new ArrayList<InetSocketTransportAddress>(addresses);
+            this.cached = cached;
+        }
+
+        public synchronized Client client() {
+            if (client == null) {
+                ImmutableSettings.Builder builder = ImmutableSettings.settingsBuilder();
+                builder.put("config.ignore_system_properties", true);
+                builder.put("client.transport.sniff", true);
+                builder.put("client.transport.ignore_cluster_name", true);
+                client = new TransportClient(builder, false);
+                for (InetSocketTransportAddress address : addresses) {
+                    client.addTransportAddress(address);
+                }
+            }
+            return client;
+        }
+
+        /**
+         * Release the client, clients of their own are closed.
+         */
+        public void release() {
+            if (cached) {
+                TransportClientCache.this.release(this);
+            } else {
+                closeClient();
+            }
+        }
+
+        private synchronized void closeClient() {
+            if (client == null) {
+                return;
+            }
+            for (TransportAddress address : client.transportAddresses()) {
+                client.removeTransportAddress(address);
+            }
+            client.close();
+            client = null;
+        }
+    }
+}
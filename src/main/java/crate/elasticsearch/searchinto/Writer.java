@@ -34,8 +34,10 @@ public class Writer {
             context.searcher().search(query, wc);
         } catch (IOException e) {
             throw new WriterException(context, "Failed to write docs", e);
+        } finally {
+            // releases the bulk sink shared with the other shards
+            wc.close();
         }
-        wc.close();
         WriterResult res = wc.getResult();
         logger.info("exported {} docs from {}/{}", res.getTotalWrites(),
                 context.shardTarget().index(),
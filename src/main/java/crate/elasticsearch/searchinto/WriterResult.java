@@ -1,5 +1,7 @@
 package crate.elasticsearch.searchinto;
 
+import crate.elasticsearch.import_.BulkStats;
+import crate.elasticsearch.throttle.ThrottleStats;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -13,6 +15,8 @@ public class WriterResult implements ToXContent, Streamable {
     private long totalWrites;
     private long failedWrites;
     private long succeededWrites;
+    private ThrottleStats throttleStats;
+    private BulkStats bulkStats;
 
     public void setTotalWrites(long totalWrites) {
         this.totalWrites = totalWrites;
@@ -26,6 +30,14 @@ public class WriterResult implements ToXContent, Streamable {
         this.succeededWrites = succeededWrites;
     }
 
+    public void setThrottleStats(ThrottleStats throttleStats) {
+        this.throttleStats = throttleStats;
+    }
+
+    public void setBulkStats(BulkStats bulkStats) {
+        this.bulkStats = bulkStats;
+    }
+
     public long getTotalWrites() {
         return totalWrites;
     }
@@ -38,11 +50,25 @@ public class WriterResult implements ToXContent, Streamable {
         return succeededWrites;
     }
 
+    public ThrottleStats getThrottleStats() {
+        return throttleStats;
+    }
+
+    public BulkStats getBulkStats() {
+        return bulkStats;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         totalWrites = in.readVLong();
         succeededWrites = in.readVLong();
         failedWrites = in.readVLong();
+        if (in.readBoolean()) {
+            throttleStats = ThrottleStats.readThrottleStats(in);
+        }
+        if (in.readBoolean()) {
+            bulkStats = BulkStats.readBulkStats(in);
+        }
     }
 
     @Override
@@ -50,6 +76,18 @@ public class WriterResult implements ToXContent, Streamable {
         out.writeVLong(totalWrites);
         out.writeVLong(succeededWrites);
         out.writeVLong(failedWrites);
+        if (throttleStats != null) {
+            out.writeBoolean(true);
+            throttleStats.writeTo(out);
+        } else {
+            out.writeBoolean(false);
+        }
+        if (bulkStats != null) {
+            out.writeBoolean(true);
+            bulkStats.writeTo(out);
+        } else {
+            out.writeBoolean(false);
+        }
     }
 
     @Override
@@ -58,6 +96,12 @@ public class WriterResult implements ToXContent, Streamable {
         builder.field("total", totalWrites);
         builder.field("succeeded", succeededWrites);
         builder.field("failed", failedWrites);
+        if (throttleStats != null) {
+            throttleStats.toXContent(builder, params);
+        }
+        if (bulkStats != null) {
+            bulkStats.toXContent(builder, params);
+        }
         return builder;
     }
 
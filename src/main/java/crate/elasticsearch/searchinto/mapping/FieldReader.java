@@ -11,8 +11,7 @@ import java.util.Map;
 public class FieldReader {
 
     private final String name;
-    private HitReader reader;
-    private SearchHit hit;
+    private final HitReader reader;
 
     private final static ImmutableMap<String, HitReader> readers;
 
@@ -94,24 +93,21 @@ public class FieldReader {
 
     public FieldReader(String name) {
         this.name = name;
-        initReader();
+        this.reader = resolve(name);
     }
 
-
-    private void initReader() {
+    private static HitReader resolve(String name) {
+        HitReader reader = null;
         if (name.startsWith("_")) {
             reader = readers.get(name);
         }
         if (reader == null) {
             reader = new HitFieldReader(name);
         }
+        return reader;
     }
 
-    public void setHit(SearchHit hit) {
-        this.hit = hit;
-    }
-
-    public Object getValue() {
+    public Object read(SearchHit hit) {
         return reader.read(hit);
     }
 
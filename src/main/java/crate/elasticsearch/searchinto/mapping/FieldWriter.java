@@ -1,11 +1,13 @@
 package crate.elasticsearch.searchinto.mapping;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.index.mapper.internal.IdFieldMapper;
 import org.elasticsearch.index.mapper.internal.IndexFieldMapper;
 import org.elasticsearch.index.mapper.internal.SourceFieldMapper;
@@ -16,8 +18,7 @@ import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
 public class FieldWriter {
 
     private final String name;
-    protected Object value;
-    private BuilderWriter writer;
+    private final BuilderWriter writer;
 
     private final static ImmutableMap<String, BuilderWriter> writers;
 
@@ -65,67 +66,100 @@ public class FieldWriter {
         public abstract void write(IndexRequestBuilder builder, Object value);
     }
 
-    class SourceObjectWriter extends BuilderWriter {
+    static class SourceObjectWriter extends BuilderWriter {
 
-        private final String name;
-
-        SourceObjectWriter(String name) {
-            this.name = name;
-        }
+        private final String[] path;
+        private final int[] sizes;
 
         /**
-         * Method to recursively create a nested object
+         * Constructor.
+         *
+         * @param name        the name of the field, dots separate the objects
+         * @param objectSizes the number of fields of the objects by their
+         *                    path, used to size the objects created
          */
-        private void writeMap(Map<String, Object> root, Object value, String part) {
-            if (part.contains(".")) {
-                String[] parts = part.split("\\.", 2);
-                Object o = root.get(parts[0]);
-                if (o == null) {
-                    o = new HashMap<String, Object>();
-                } else if (!(o instanceof Map)) {
-                    throw new ElasticsearchException("Error on rewriting objects: Mixed objects and values");
-                }
-                Map<String, Object> sub = (Map<String, Object>) o;
-                writeMap(sub, value, parts[1]);
-                root.put(parts[0], sub);
-            } else {
-                if (((Map<String, Object>) root).get(part) instanceof Map) {
-                    throw new ElasticsearchException("Error on rewriting objects: Mixed objects and values");
+        SourceObjectWriter(String name, Map<String, Integer> objectSizes) {
+            String[] path = Strings.delimitedListToStringArray(name, ".");
+            this.path = path.length == 0 ? new String[]{name} : path;
+            this.sizes = new int[path.length - 1];
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < sizes.length; i++) {
+                if (i > 0) {
+                    prefix.append('.');
                 }
-                root.put(part, value);
+                prefix.append(path[i]);
+                Integer size = objectSizes.get(prefix.toString());
+                sizes[i] = size == null ? 1 : size;
             }
         }
 
+        /**
+         * Write the value into the source, creating the objects along the
+         * path which do not exist yet.
+         */
         @Override
         public void write(IndexRequestBuilder builder, Object value) {
-            if (value != null) {
-                writeMap(builder.source, value, name);
+            if (value == null) {
+                return;
             }
+            Map<String, Object> map = builder.source;
+            for (int i = 0; i < sizes.length; i++) {
+                Object o = map.get(path[i]);
+                if (o == null) {
+                    Map<String, Object> sub = Maps.newHashMapWithExpectedSize(sizes[i]);
+                    map.put(path[i], sub);
+                    map = sub;
+                } else if (o instanceof Map) {
+                    map = (Map<String, Object>) o;
+                } else {
+                    throw new ElasticsearchException("Error on rewriting objects: Mixed objects and values");
+                }
+            }
+            String last = path[sizes.length];
+            if (map.get(last) instanceof Map) {
+                throw new ElasticsearchException("Error on rewriting objects: Mixed objects and values");
+            }
+            map.put(last, value);
         }
     }
 
+    /**
+     * @return true if the target is a field of the source, false for the
+     * source itself and other metadata of the index request
+     */
+    static boolean isSourceField(String name) {
+        return !writers.containsKey(name);
+    }
+
     public FieldWriter(String name) {
-        this.name = name;
-        initWriter();
+        this(name, Collections.<String, Integer>emptyMap());
     }
 
-    private void initWriter() {
-        if (name.startsWith("_")) {
-            writer = writers.get(name);
-        }
-        if (writer == null) {
-            writer = new SourceObjectWriter(name);
+    /**
+     * Constructor.
+     *
+     * @param name        the target of the mapping
+     * @param objectSizes the number of fields of the objects of the source
+     *                    by their path
+     */
+    public FieldWriter(String name, Map<String, Integer> objectSizes) {
+        this.name = name;
+        if (isSourceField(name)) {
+            this.writer = new SourceObjectWriter(name, objectSizes);
+        } else {
+            this.writer = writers.get(name);
         }
     }
 
-    public void setValue(Object value) {
-        this.value = value;
+    /**
+     * @return true if the writer sets the source or a field of the source
+     */
+    public boolean writesSource() {
+        return writer instanceof SourceObjectWriter || SourceFieldMapper.NAME.equals(name);
     }
 
-    public IndexRequestBuilder toRequestBuilder(IndexRequestBuilder builder) {
+    public void write(IndexRequestBuilder builder, Object value) {
         writer.write(builder, value);
-        return builder;
     }
 
-
 }
@@ -1,20 +1,40 @@
 package crate.elasticsearch.searchinto.mapping;
 
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.collect.Maps;
 
-import java.util.HashMap;
 import java.util.Map;
 
 
 public class IndexRequestBuilder {
 
-    Map<String, Object> source = new HashMap<String, Object>();
+    Map<String, Object> source;
+
+    /**
+     * The unparsed source of the hit, set instead of the source map if the
+     * source gets copied as a whole.
+     */
+    BytesReference sourceRef;
     final IndexRequest request = new IndexRequest();
 
-    final Map<String, String> meta = new HashMap<String, String>();
+    public IndexRequestBuilder() {
+        this(16);
+    }
+
+    /**
+     * @param sourceSize the expected number of fields of the source
+     */
+    public IndexRequestBuilder(int sourceSize) {
+        this.source = Maps.newHashMapWithExpectedSize(sourceSize);
+    }
 
     public IndexRequest build() {
-        request.source(source);
+        if (sourceRef != null) {
+            request.source(sourceRef, false);
+        } else {
+            request.source(source);
+        }
         return request;
     }
 
@@ -2,33 +2,85 @@ package crate.elasticsearch.searchinto.mapping;
 
 import crate.elasticsearch.action.searchinto.SearchIntoContext;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.search.SearchHit;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * The field mapping of a search into, compiled once per shard. The readers
+ * and writers of the fields get resolved and the paths of nested targets
+ * split up front, the objects of the source are created with the number
+ * of their fields, so building the index request of a hit only reads and
+ * writes the fields.
+ */
 public class MappedFields {
 
-    private final SearchIntoContext context;
-    private SearchHit hit;
-    private final List<OutputMapping> outputMappings;
+    private final OutputMapping[] outputMappings;
+    private final OutputMapping sourceCopy;
+    private final int sourceSize;
 
     public MappedFields(SearchIntoContext context) {
-        this.context = context;
-        this.outputMappings = getOutputMappings();
+        this(context.outputNames());
     }
 
-    public void hit(SearchHit hit) {
-        this.hit = hit;
+    /**
+     * @param outputNames the target names by the source names of the
+     *                    fields
+     */
+    public MappedFields(Map<String, String> outputNames) {
+        Map<String, Integer> objectSizes = getObjectSizes(outputNames.values());
+        Integer rootSize = objectSizes.get("");
+        this.outputMappings = getOutputMappings(outputNames, objectSizes);
+        this.sourceCopy = getSourceCopy();
+        this.sourceSize = rootSize == null ? 0 : rootSize;
     }
 
-    private List<OutputMapping> getOutputMappings() {
+    /**
+     * Count the fields of the objects written into the source.
+     *
+     * @return the number of fields by the path of the object, the fields
+     * of the source itself under the empty path
+     */
+    static Map<String, Integer> getObjectSizes(Collection<String> targets) {
+        Map<String, Set<String>> fields = new HashMap<String, Set<String>>();
+        for (String target : targets) {
+            if (!FieldWriter.isSourceField(target)) {
+                continue;
+            }
+            String[] path = Strings.delimitedListToStringArray(target, ".");
+            String prefix = "";
+            for (String part : path) {
+                Set<String> names = fields.get(prefix);
+                if (names == null) {
+                    names = new HashSet<String>();
+                    fields.put(prefix, names);
+                }
+                names.add(part);
+                prefix = prefix.isEmpty() ? part : prefix + "." + part;
+            }
+        }
+        Map<String, Integer> sizes = new HashMap<String, Integer>(fields.size());
+        for (Map.Entry<String, Set<String>> e : fields.entrySet()) {
+            sizes.put(e.getKey(), e.getValue().size());
+        }
+        return sizes;
+    }
+
+    private static OutputMapping[] getOutputMappings(Map<String, String> outputNames,
+            Map<String, Integer> objectSizes) {
         List<OutputMapping> oms = new ArrayList<OutputMapping>(
-                context.outputNames().size());
+                outputNames.size() + 2);
         boolean indexDefined = false;
         boolean typeDefined = false;
-        for (Map.Entry<String, String> e : context.outputNames().entrySet()) {
+        for (Map.Entry<String, String> e : outputNames.entrySet()) {
             String srcName = e.getKey();
             String trgName = e.getValue();
             assert (trgName != null);
@@ -37,7 +89,7 @@ public class MappedFields {
             } else if (trgName.equals("_type")) {
                 typeDefined = true;
             }
-            OutputMapping om = new OutputMapping(srcName, trgName);
+            OutputMapping om = new OutputMapping(srcName, trgName, objectSizes);
             oms.add(om);
         }
         if (!indexDefined) {
@@ -47,17 +99,39 @@ public class MappedFields {
             oms.add(new OutputMapping("_type", "_type"));
         }
 
-        return oms;
+        return oms.toArray(new OutputMapping[oms.size()]);
     }
 
-    public IndexRequest newIndexRequest() {
-        IndexRequestBuilder builder = new IndexRequestBuilder();
+    /**
+     * The source of a hit gets passed on unparsed if it is copied as a whole
+     * and no other field of the source is written, like by reindex.
+     *
+     * @return the mapping copying the source, null if the source has to be
+     * parsed
+     */
+    private OutputMapping getSourceCopy() {
+        OutputMapping copy = null;
         for (OutputMapping om : outputMappings) {
-            om.setHit(hit);
-            builder = om.toRequestBuilder(builder);
+            if (om.isSourceCopy() && copy == null) {
+                copy = om;
+            } else if (om.writesSource()) {
+                return null;
+            }
         }
-        return builder.build();
+        return copy;
+    }
 
+    public IndexRequest newIndexRequest(SearchHit hit) {
+        IndexRequestBuilder builder = new IndexRequestBuilder(sourceSize);
+        BytesReference sourceRef = sourceCopy != null ? hit.sourceRef() : null;
+        for (OutputMapping om : outputMappings) {
+            if (om == sourceCopy && sourceRef != null) {
+                builder.sourceRef = sourceRef;
+            } else {
+                om.write(hit, builder);
+            }
+        }
+        return builder.build();
     }
 }
 
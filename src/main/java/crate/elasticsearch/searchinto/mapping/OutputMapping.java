@@ -1,5 +1,9 @@
 package crate.elasticsearch.searchinto.mapping;
 
+import java.util.Collections;
+import java.util.Map;
+
+import org.elasticsearch.index.mapper.internal.SourceFieldMapper;
 import org.elasticsearch.search.SearchHit;
 
 public class OutputMapping {
@@ -9,7 +13,6 @@ public class OutputMapping {
     private final String srcLiteral;
     private final FieldReader reader;
     private final FieldWriter writer;
-    private SearchHit hit;
 
 
     private static String getLiteral(String candidate) {
@@ -24,6 +27,18 @@ public class OutputMapping {
     }
 
     public OutputMapping(String srcName, String trgName) {
+        this(srcName, trgName, Collections.<String, Integer>emptyMap());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param srcName     the field of the hit or a quoted literal
+     * @param trgName     the field of the index request
+     * @param objectSizes the number of fields of the objects of the source
+     *                    by their path
+     */
+    public OutputMapping(String srcName, String trgName, Map<String, Integer> objectSizes) {
         this.srcName = srcName;
         this.trgName = trgName;
         srcLiteral = getLiteral(srcName);
@@ -32,23 +47,23 @@ public class OutputMapping {
         } else {
             this.reader = null;
         }
-        this.writer = new FieldWriter(trgName);
+        this.writer = new FieldWriter(trgName, objectSizes);
     }
 
-    public void setHit(SearchHit hit) {
-        this.hit = hit;
+    /**
+     * @return true if the mapping copies the source of the hit as a whole
+     */
+    public boolean isSourceCopy() {
+        return srcLiteral == null && SourceFieldMapper.NAME.equals(srcName)
+                && SourceFieldMapper.NAME.equals(trgName);
     }
 
-    public IndexRequestBuilder toRequestBuilder(IndexRequestBuilder builder) {
-        if (srcLiteral != null) {
-            writer.setValue(srcLiteral);
-        } else {
-            reader.setHit(hit);
-            writer.setValue(reader.getValue());
+    public boolean writesSource() {
+        return writer.writesSource();
+    }
 
-        }
-        writer.toRequestBuilder(builder);
-        return builder;
+    public void write(SearchHit hit, IndexRequestBuilder builder) {
+        writer.write(builder, srcLiteral != null ? srcLiteral : reader.read(hit));
     }
 
 }
@@ -0,0 +1,148 @@
+package crate.elasticsearch.throttle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+/**
+ * Limits the bytes and documents per second processed by all exports,
+ * imports and search into operations of a node. The limits are dynamic
+ * cluster settings, changes apply to running operations:
+ * <ul>
+ * <li>``inout.throttle.bytes_per_sec``: bytes per second, 0 for no limit</li>
+ * <li>``inout.throttle.docs_per_sec``: documents per second, 0 for no limit</li>
+ * </ul>
+ * The operations report every processed document, the reporting thread
+ * gets paused as long as the node is ahead of the limits.
+ */
+public class Throttle extends AbstractComponent {
+
+    public static final String BYTES_PER_SEC = "inout.throttle.bytes_per_sec";
+    public static final String DOCS_PER_SEC = "inout.throttle.docs_per_sec";
+
+    /**
+     * Shorter pauses are not taken but added to the next one, as sleeping
+     * is not precise enough for them.
+     */
+    private static final long MIN_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Limiter bytes = new Limiter();
+    private final Limiter docs = new Limiter();
+
+    @Inject
+    public Throttle(Settings settings, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        applySettings(settings);
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    /**
+     * @return the limit of bytes per second, 0 if there is no limit
+     */
+    public long bytesPerSec() {
+        return bytes.rate;
+    }
+
+    /**
+     * @return the limit of documents per second, 0 if there is no limit
+     */
+    public long docsPerSec() {
+        return docs.rate;
+    }
+
+    public void bytesPerSec(long bytesPerSec) {
+        bytes.rate(bytesPerSec);
+    }
+
+    public void docsPerSec(long docsPerSec) {
+        docs.rate(docsPerSec);
+    }
+
+    /**
+     * Account processed bytes and documents, pause the current thread if
+     * the node is ahead of the limits.
+     *
+     * @param byteCount the number of processed bytes
+     * @param docCount  the number of processed documents
+     * @return the nanoseconds the thread has been paused
+     */
+    public long pause(long byteCount, long docCount) {
+        long pauseNanos = Math.max(bytes.reserve(byteCount), docs.reserve(docCount));
+        if (pauseNanos < MIN_PAUSE_NANOS) {
+            return 0;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(pauseNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return pauseNanos;
+    }
+
+    /**
+     * @param pausedNanos the nanoseconds an operation has been paused
+     * @return the current limits and the paused time of an operation
+     */
+    public ThrottleStats stats(long pausedNanos) {
+        return new ThrottleStats(bytesPerSec(), docsPerSec(), pausedNanos);
+    }
+
+    private void applySettings(Settings settings) {
+        ByteSizeValue bytesPerSec = settings.getAsBytesSize(BYTES_PER_SEC, null);
+        if (bytesPerSec != null && bytesPerSec.bytes() != bytes.rate) {
+            logger.info("updating [{}] from [{}] to [{}]", BYTES_PER_SEC, new ByteSizeValue(bytes.rate), bytesPerSec);
+            bytes.rate(bytesPerSec.bytes());
+        }
+        Long docsPerSec = settings.getAsLong(DOCS_PER_SEC, null);
+        if (docsPerSec != null && docsPerSec != docs.rate) {
+            logger.info("updating [{}] from [{}] to [{}]", DOCS_PER_SEC, docs.rate, docsPerSec);
+            docs.rate(docsPerSec);
+        }
+    }
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            applySettings(settings);
+        }
+    }
+
+    /**
+     * Hands out the time slots of a rate to the reporting threads. Every
+     * reservation moves the end of the reserved time, a thread has to wait
+     * until the reservations before its own have passed.
+     */
+    static class Limiter {
+
+        private volatile long rate = 0;
+        private long reservedUntil = 0;
+
+        synchronized void rate(long rate) {
+            this.rate = Math.max(0, rate);
+            this.reservedUntil = System.nanoTime();
+        }
+
+        /**
+         * @return the nanoseconds to wait until the reservation starts
+         */
+        long reserve(long amount) {
+            long rate = this.rate;
+            if (rate <= 0 || amount <= 0) {
+                return 0;
+            }
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (reservedUntil < now) {
+                    reservedUntil = now;
+                }
+                long wait = reservedUntil - now;
+                reservedUntil += (long) (amount * (double) TimeUnit.SECONDS.toNanos(1) / rate);
+                return wait;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package crate.elasticsearch.throttle;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * The limits of the {@link Throttle} at the end of an operation and the
+ * time the operation has been paused by it.
+ */
+public class ThrottleStats implements Streamable, ToXContent {
+
+    private long bytesPerSec;
+    private long docsPerSec;
+    private long pausedNanos;
+
+    ThrottleStats() {
+    }
+
+    public ThrottleStats(long bytesPerSec, long docsPerSec, long pausedNanos) {
+        this.bytesPerSec = bytesPerSec;
+        this.docsPerSec = docsPerSec;
+        this.pausedNanos = pausedNanos;
+    }
+
+    public long pausedNanos() {
+        return pausedNanos;
+    }
+
+    public static ThrottleStats readThrottleStats(StreamInput in) throws IOException {
+        ThrottleStats stats = new ThrottleStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        bytesPerSec = in.readVLong();
+        docsPerSec = in.readVLong();
+        pausedNanos = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(bytesPerSec);
+        out.writeVLong(docsPerSec);
+        out.writeVLong(pausedNanos);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("throttle");
+        builder.field("throttled", bytesPerSec > 0 || docsPerSec > 0);
+        builder.field("bytes_per_sec", bytesPerSec);
+        builder.field("docs_per_sec", docsPerSec);
+        builder.field("paused_millis", TimeUnit.NANOSECONDS.toMillis(pausedNanos));
+        builder.endObject();
+        return builder;
+    }
+}
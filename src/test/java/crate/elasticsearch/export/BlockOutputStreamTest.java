@@ -0,0 +1,177 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+/**
+ * Unit test for the @BlockOutputStream class. Counts the calls reaching
+ * the underlying stream, each of them being a syscall on file or process
+ * outputs.
+ */
+public class BlockOutputStreamTest {
+
+    private static final int NUM_DOCS = 10000;
+
+    /**
+     * An output stream counting the write and flush calls.
+     */
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+
+        int writes = 0;
+        int flushes = 0;
+
+        @Override
+        public synchronized void write(int b) {
+            writes++;
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushes++;
+        }
+    }
+
+    /**
+     * Write documents the same way the export collector does.
+     */
+    private void writeDocs(OutputStream out) throws IOException {
+        for (int i = 0; i < NUM_DOCS; i++) {
+            XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(XContentType.JSON), out);
+            builder.startObject().field("_id", String.valueOf(i)).startObject("_source")
+                    .field("name", "Document number " + i).endObject().endObject();
+            builder.flush();
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Write documents the way the export collector does since it keeps one
+     * builder per part and only flushes it per document.
+     */
+    private void writeDocsReused(OutputStream out) throws IOException {
+        XContentBuilder builder = new XContentBuilder(ExportJsonXContent.exportJsonXContent, out);
+        for (int i = 0; i < NUM_DOCS; i++) {
+            builder.startObject().field("_id", String.valueOf(i)).startObject("_source")
+                    .field("name", "Document number " + i).endObject().endObject();
+            builder.flush();
+            out.write('\n');
+        }
+    }
+
+    /**
+     * The bytes allocated by the current thread per document written to a
+     * block buffered output discarding the blocks.
+     */
+    private long allocatedPerDoc(com.sun.management.ThreadMXBean threads, boolean reused) throws IOException {
+        long threadId = Thread.currentThread().getId();
+        long allocated = 0;
+        // the first round warms up
+        for (int round = 0; round < 2; round++) {
+            BlockOutputStream out = new BlockOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            }, null, 64 * 1024);
+            long start = threads.getThreadAllocatedBytes(threadId);
+            if (reused) {
+                writeDocsReused(out);
+            } else {
+                writeDocs(out);
+            }
+            out.close();
+            allocated = threads.getThreadAllocatedBytes(threadId) - start;
+        }
+        return allocated / NUM_DOCS;
+    }
+
+    /**
+     * Reusing the builder saves the builder and the generator of every
+     * document. Skipped on JVMs not measuring the allocations per thread.
+     */
+    @Test
+    public void testAllocationsPerDoc() throws IOException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long perBuilder = allocatedPerDoc(threads, false);
+        long reused = allocatedPerDoc(threads, true);
+        assertTrue("allocated " + reused + " bytes per doc with a reused builder, " + perBuilder +
+                " bytes with a builder per doc", reused < perBuilder);
+    }
+
+    @Test
+    public void testUnbuffered() throws IOException {
+        CountingOutputStream target = new CountingOutputStream();
+        writeDocs(target);
+
+        // every document results in at least two writes and a flush
+        assertTrue(target.writes >= 2 * NUM_DOCS);
+        assertTrue(target.flushes >= NUM_DOCS);
+    }
+
+    @Test
+    public void testBlockBuffered() throws IOException {
+        CountingOutputStream target = new CountingOutputStream();
+        BlockOutputStream out = new BlockOutputStream(target, null, 64 * 1024);
+        writeDocs(out);
+
+        // nothing is written until the first block is full
+        assertEquals(0, target.flushes);
+        out.close();
+
+        // the content is the same as without buffering
+        CountingOutputStream unbuffered = new CountingOutputStream();
+        writeDocs(unbuffered);
+        assertEquals(unbuffered.toString(), target.toString());
+        assertEquals(target.size(), out.bytesWritten());
+
+        // one write per page, blocks are written as a whole
+        long pages = (target.size() + 16383) / 16384;
+        assertTrue(target.writes <= pages + out.blocksWritten());
+        assertEquals((target.size() + 64 * 1024 - 1) / (64 * 1024), out.blocksWritten());
+        assertEquals(0, target.flushes);
+    }
+
+    @Test
+    public void testLargeWrites() throws IOException {
+        CountingOutputStream target = new CountingOutputStream();
+        BlockOutputStream out = new BlockOutputStream(target, null, 16 * 1024);
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        out.write(data);
+        out.write(7);
+        out.close();
+        byte[] written = target.toByteArray();
+        assertEquals(data.length + 1, written.length);
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(data[i], written[i]);
+        }
+        assertEquals(7, written[data.length]);
+    }
+}
@@ -0,0 +1,195 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for the @ExportExecutor class.
+ */
+public class ExportExecutorTest {
+
+    private ExportExecutor executor;
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Long> exported = Collections.synchronizedList(new ArrayList<Long>());
+
+    @Before
+    public void setUp() {
+        executor = new ExportExecutor(ImmutableSettings.settingsBuilder()
+                .put("inout.export.threads", 1)
+                .put("inout.export.queue_size", 3)
+                .build());
+        executor.start();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.stop();
+        executor.close();
+    }
+
+    /**
+     * Occupy the only thread of the executor until the release latch opens.
+     */
+    private Thread block() throws InterruptedException {
+        Thread thread = export(Long.MAX_VALUE, new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                blocked.countDown();
+                release.await();
+                return Long.MAX_VALUE;
+            }
+        });
+        blocked.await();
+        return thread;
+    }
+
+    private Thread export(final long size) {
+        return export(size, new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                exported.add(size);
+                return size;
+            }
+        });
+    }
+
+    private Thread export(final long size, final Callable<Long> export) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                assertEquals(size, (long) executor.execute(size, export));
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    private void awaitQueued(int queued) throws InterruptedException {
+        while (executor.waiting() < queued) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testLargestFirst() throws InterruptedException {
+        List<Thread> threads = new ArrayList<Thread>();
+        threads.add(block());
+        threads.add(export(10));
+        awaitQueued(1);
+        threads.add(export(30));
+        awaitQueued(2);
+        threads.add(export(20));
+        awaitQueued(3);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Arrays.asList(30L, 20L, 10L), exported);
+    }
+
+    @Test
+    public void testRejected() throws InterruptedException {
+        Thread blocker = block();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            threads.add(export(i));
+            awaitQueued(i + 1);
+        }
+        try {
+            executor.execute(100, new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return 100L;
+                }
+            });
+            fail("the queue is full");
+        } catch (EsRejectedExecutionException e) {
+            assertEquals("rejected shard export, 3 shards are waiting", e.getMessage());
+        }
+        release.countDown();
+        blocker.join();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(3, exported.size());
+    }
+
+    /**
+     * Shard requests arriving at the same time are admitted up to the
+     * queue size, the others get rejected right away.
+     */
+    @Test
+    public void testConcurrentRejected() throws InterruptedException {
+        Thread blocker = block();
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger rejected = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            final long size = i;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        executor.execute(size, new Callable<Long>() {
+                            @Override
+                            public Long call() throws Exception {
+                                exported.add(size);
+                                return size;
+                            }
+                        });
+                    } catch (EsRejectedExecutionException e) {
+                        rejected.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        while (rejected.get() + executor.waiting() < 10) {
+            Thread.sleep(10);
+        }
+        assertEquals(7, rejected.get());
+        release.countDown();
+        blocker.join();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(3, exported.size());
+    }
+
+    @Test
+    public void testFailure() {
+        try {
+            executor.execute(1, new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    throw new ElasticsearchException("export failed");
+                }
+            });
+            fail("the failure is passed on");
+        } catch (ElasticsearchException e) {
+            assertEquals("export failed", e.getMessage());
+        }
+    }
+}
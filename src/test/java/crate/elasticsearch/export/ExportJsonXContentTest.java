@@ -0,0 +1,70 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.junit.Test;
+
+/**
+ * Unit test for the @ExportJsonXContent class.
+ */
+public class ExportJsonXContentTest {
+
+    private static final String SOURCE = "{\"name\": \"bike\",\r\n  \"tags\": [\"a\\nb\"]\n}";
+
+    /**
+     * Raw values get separated like any other field, no matter at which
+     * position they are written.
+     */
+    @Test
+    public void testRawValueField() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XContentBuilder builder = new XContentBuilder(ExportJsonXContent.exportJsonXContent, out);
+        ExportJsonXContent.Generator generator = (ExportJsonXContent.Generator) builder.generator();
+        builder.startObject();
+        generator.writeRawValueField("_source", new BytesArray("{\"a\":1}"), builder.stream());
+        builder.field("_id", "1");
+        generator.writeRawValueField("_source", new BytesArray("[2]"), builder.stream());
+        builder.endObject();
+        builder.flush();
+        assertEquals("{\"_source\":{\"a\":1},\"_id\":\"1\",\"_source\":[2]}", out.toString("UTF-8"));
+    }
+
+    /**
+     * Line breaks are replaced, escaped ones within strings are kept.
+     */
+    @Test
+    public void testLineBreaks() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XContentBuilder builder = new XContentBuilder(ExportJsonXContent.exportJsonXContent, out);
+        ExportJsonXContent.Generator generator = (ExportJsonXContent.Generator) builder.generator();
+        builder.startObject();
+        generator.writeRawValueField("bytes", new BytesArray(SOURCE), builder.stream());
+        generator.writeRawValueField("stream", new ByteArrayInputStream(SOURCE.getBytes("UTF-8")), builder.stream());
+        builder.endObject();
+        builder.flush();
+        String expected = "{\"name\": \"bike\",    \"tags\": [\"a\\nb\"] }";
+        assertEquals("{\"bytes\":" + expected + ",\"stream\":" + expected + "}", out.toString("UTF-8"));
+    }
+
+    /**
+     * The builder of an export writes all its lines, the generator does
+     * not separate them.
+     */
+    @Test
+    public void testReusedBuilder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XContentBuilder builder = new XContentBuilder(ExportJsonXContent.exportJsonXContent, out);
+        for (int i = 0; i < 2; i++) {
+            builder.startObject().field("_id", String.valueOf(i)).endObject();
+            builder.flush();
+            out.write('\n');
+        }
+        assertEquals("{\"_id\":\"0\"}\n{\"_id\":\"1\"}\n", out.toString("UTF-8"));
+    }
+}
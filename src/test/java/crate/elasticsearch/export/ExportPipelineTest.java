@@ -0,0 +1,143 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.elasticsearch.common.io.Streams;
+import org.junit.Test;
+
+/**
+ * Unit test for the @ExportPipeline class.
+ */
+public class ExportPipelineTest {
+
+    private static final Executor THREADS = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            new Thread(command).start();
+        }
+    };
+
+    private byte[] content() {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 127);
+        }
+        return content;
+    }
+
+    private void write(OutputStream out, byte[] content) throws IOException {
+        int i = 0;
+        while (i < content.length) {
+            int len = Math.min(333, content.length - i);
+            out.write(content, i, len);
+            out.write(content[i + len - 1]);
+            i += len;
+        }
+    }
+
+    private byte[] expected(byte[] content) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        write(expected, content);
+        return expected.toByteArray();
+    }
+
+    @Test
+    public void testPlain() throws IOException {
+        byte[] content = content();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportPipeline pipeline = new ExportPipeline(out, null, Deflater.DEFAULT_COMPRESSION, 1, 1000, 1, THREADS);
+        write(pipeline, content);
+        pipeline.close();
+        assertArrayEquals(expected(content), out.toByteArray());
+    }
+
+    @Test
+    public void testCompression() throws IOException {
+        byte[] content = content();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportPipeline pipeline = new ExportPipeline(out, Compression.GZIP, Deflater.DEFAULT_COMPRESSION,
+                1, 1000, 2, THREADS);
+        write(pipeline, content);
+        pipeline.close();
+        byte[] uncompressed = Streams.copyToByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertArrayEquals(expected(content), uncompressed);
+    }
+
+    /**
+     * The compressor stage might gzip the blocks concurrently.
+     */
+    @Test
+    public void testParallelCompression() throws IOException {
+        byte[] content = content();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportPipeline pipeline = new ExportPipeline(out, Compression.GZIP, Deflater.BEST_SPEED, 3, 1000, 2, THREADS);
+        write(pipeline, content);
+        pipeline.close();
+        byte[] uncompressed = Streams.copyToByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertArrayEquals(expected(content), uncompressed);
+    }
+
+    /**
+     * Nothing written results in a valid but empty gzip stream.
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportPipeline pipeline = new ExportPipeline(out, Compression.GZIP, Deflater.DEFAULT_COMPRESSION,
+                1, 1000, 1, THREADS);
+        pipeline.close();
+        byte[] uncompressed = Streams.copyToByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(0, uncompressed.length);
+    }
+
+    /**
+     * Failures of the writer stage are reported to the fetching thread.
+     */
+    @Test
+    public void testWriteFailure() throws IOException {
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        ExportPipeline pipeline = new ExportPipeline(out, null, Deflater.DEFAULT_COMPRESSION, 1, 1000, 1, THREADS);
+        try {
+            write(pipeline, content());
+            pipeline.close();
+            fail("expected the write failure");
+        } catch (IOException e) {
+            assertEquals("Export pipeline failed", e.getMessage());
+            assertEquals("disk full", e.getCause().getMessage());
+        } finally {
+            pipeline.release();
+        }
+    }
+
+    @Test
+    public void testStats() throws IOException {
+        ExportPipeline pipeline = new ExportPipeline(new ByteArrayOutputStream(), Compression.GZIP,
+                Deflater.DEFAULT_COMPRESSION, 1, 1000, 1, THREADS);
+        write(pipeline, content());
+        pipeline.close();
+        PipelineStats stats = pipeline.stats();
+        assertTrue(stats.fetchBusyNanos > 0);
+        assertTrue(stats.compressBusyNanos > 0);
+        assertTrue(stats.writeBusyNanos > 0);
+        assertTrue(stats.writeIdleNanos > 0);
+    }
+}
@@ -0,0 +1,145 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for the @FileChannelOutputStream class.
+ */
+public class FileChannelOutputStreamTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("filechannel", ".export");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private byte[] read() throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the bytes in chunks of different sizes, some larger than the buffer.
+     */
+    private void write(FileChannelOutputStream out, byte[] bytes) throws IOException {
+        int off = 0;
+        int chunk = 1;
+        while (off < bytes.length) {
+            int len = Math.min(chunk, bytes.length - off);
+            if (len == 1) {
+                out.write(bytes[off]);
+            } else {
+                out.write(bytes, off, len);
+            }
+            off += len;
+            chunk = chunk * 3 % 5000 + 1;
+        }
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        byte[] bytes = bytes(100000);
+        FileChannelOutputStream out = new FileChannelOutputStream(file, new FileOptions().bufferSize(1024));
+        write(out, bytes);
+        out.close();
+        assertEquals(bytes.length, out.position());
+        assertArrayEquals(bytes, read());
+    }
+
+    @Test
+    public void testOverwrite() throws IOException {
+        FileChannelOutputStream out = new FileChannelOutputStream(file, new FileOptions());
+        out.write(bytes(1000));
+        out.close();
+        byte[] bytes = bytes(10);
+        out = new FileChannelOutputStream(file, new FileOptions());
+        out.write(bytes);
+        out.close();
+        assertArrayEquals(bytes, read());
+    }
+
+    /**
+     * Preallocated files get truncated to the written bytes on close.
+     */
+    @Test
+    public void testPreallocate() throws IOException {
+        byte[] bytes = bytes(100000);
+        FileChannelOutputStream out = new FileChannelOutputStream(file,
+                new FileOptions().bufferSize(4096).preallocate(30000));
+        out.write(bytes, 0, 5000);
+        out.flush();
+        // extended when the first full buffer got written
+        assertEquals(4096 + 30000, file.length());
+        write(out, bytes);
+        out.close();
+        assertEquals(105000, file.length());
+        byte[] read = read();
+        for (int i = 0; i < bytes.length; i++) {
+            assertEquals(bytes[i], read[i + 5000]);
+        }
+    }
+
+    @Test
+    public void testFsync() throws IOException {
+        byte[] bytes = bytes(100000);
+        FileChannelOutputStream out = new FileChannelOutputStream(file,
+                new FileOptions().bufferSize(4096).fsync(true).fsyncInterval(10000));
+        write(out, bytes);
+        out.close();
+        assertArrayEquals(bytes, read());
+    }
+
+    /**
+     * Closed streams hand their buffer on to the next stream with a buffer
+     * of the same size.
+     */
+    @Test
+    public void testBufferReused() throws IOException {
+        FileChannelOutputStream out = new FileChannelOutputStream(file, new FileOptions().bufferSize(12345));
+        long pooled = FileChannelOutputStream.pooledBytes();
+        out.close();
+        assertEquals(pooled + 12345, FileChannelOutputStream.pooledBytes());
+        out.close();
+        assertEquals(pooled + 12345, FileChannelOutputStream.pooledBytes());
+
+        byte[] bytes = bytes(100000);
+        out = new FileChannelOutputStream(file, new FileOptions().bufferSize(12345));
+        assertEquals(pooled, FileChannelOutputStream.pooledBytes());
+        write(out, bytes);
+        out.close();
+        assertArrayEquals(bytes, read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxBufferSize() throws IOException {
+        new FileChannelOutputStream(file, new FileOptions().bufferSize(FileChannelOutputStream.MAX_BUFFER_SIZE + 1));
+    }
+}
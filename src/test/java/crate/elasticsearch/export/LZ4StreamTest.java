@@ -0,0 +1,100 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.elasticsearch.common.io.Streams;
+import org.junit.Test;
+
+/**
+ * Unit test for the @LZ4OutputStream and @LZ4InputStream classes.
+ */
+public class LZ4StreamTest {
+
+    private byte[] content() {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ((i * 31) % 251);
+        }
+        return content;
+    }
+
+    private byte[] compress(byte[] content, int level, int blockSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LZ4OutputStream lz4 = new LZ4OutputStream(out, level, blockSize);
+        for (int i = 0; i < content.length; i += 777) {
+            lz4.write(content, i, Math.min(777, content.length - i));
+        }
+        lz4.close();
+        return out.toByteArray();
+    }
+
+    private byte[] decompress(byte[] compressed) throws IOException {
+        return Streams.copyToByteArray(new LZ4InputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] content = content();
+        byte[] compressed = compress(content, -1, 1000);
+        assertTrue(compressed.length < content.length / 2);
+        assertArrayEquals(content, decompress(compressed));
+    }
+
+    /**
+     * High levels use the high compression variant, which is read the same way.
+     */
+    @Test
+    public void testHighCompression() throws IOException {
+        byte[] content = content();
+        assertArrayEquals(content, decompress(compress(content, 9, 4096)));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(0, decompress(compress(new byte[0], -1, 1000)).length);
+    }
+
+    /**
+     * Concatenated streams are read as one stream.
+     */
+    @Test
+    public void testConcatenated() throws IOException {
+        byte[] content = content();
+        byte[] first = compress(Arrays.copyOfRange(content, 0, 5000), -1, 1000);
+        byte[] second = compress(Arrays.copyOfRange(content, 5000, content.length), -1, 1000);
+        byte[] compressed = new byte[first.length + second.length];
+        System.arraycopy(first, 0, compressed, 0, first.length);
+        System.arraycopy(second, 0, compressed, first.length, second.length);
+        assertArrayEquals(content, decompress(compressed));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        byte[] compressed = compress(content(), -1, 1000);
+        try {
+            decompress(Arrays.copyOf(compressed, compressed.length / 2));
+            fail("expected the truncated stream to fail");
+        } catch (EOFException e) {
+            assertEquals("Unexpected end of LZ4 stream", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotLZ4() throws IOException {
+        try {
+            decompress("{\"_id\": \"1\"}".getBytes("UTF-8"));
+            fail("expected the stream to be rejected");
+        } catch (IOException e) {
+            assertEquals("Not in LZ4 format", e.getMessage());
+        }
+    }
+}
@@ -11,6 +11,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
@@ -220,4 +222,44 @@ public class OutputCommandTest {
         // The first 8K of the standard out are captured
         assertTrue(result.stdOut.endsWith("Line 922\n"));
     }
+
+    /**
+     * Blocks gzipped by multiple threads are written as gzip members, which
+     * 'gunzip' concatenates again.
+     */
+    @Test
+    public void testSingleCommandParallelGZipped() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        OutputCommand outputCommand = new OutputCommand("gunzip", true);
+        outputCommand.compressionOptions(Compression.GZIP, 1, 3, executor);
+        try {
+            outputCommand.open();
+            OutputStream os = outputCommand.getOutputStream();
+            for (int i = 0; i < 1000000; i++) {
+                String string = "Line " + i +"\n";
+                os.write(string.getBytes());
+            }
+            outputCommand.close();
+        } finally {
+            executor.shutdown();
+        }
+        Result result = outputCommand.result();
+        assertEquals(0, result.exit);
+        assertEquals("", result.stdErr);
+        assertTrue(result.stdOut.endsWith("Line 922\n"));
+    }
+
+    /**
+     * Aborting destroys the command instead of waiting for it to finish.
+     */
+    @Test
+    public void testAbort() throws IOException {
+        OutputCommand outputCommand = new OutputCommand(Arrays.asList("/bin/sh", "-c", "sleep 60"), false);
+        outputCommand.open();
+        outputCommand.getOutputStream().write("Line 1\n".getBytes());
+        long start = System.currentTimeMillis();
+        outputCommand.abort();
+        assertTrue(System.currentTimeMillis() - start < 30000);
+        assertTrue(outputCommand.result().exit != 0);
+    }
 }
@@ -0,0 +1,127 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.elasticsearch.common.io.Streams;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test for the @ParallelGZIPOutputStream class.
+ */
+public class ParallelGZIPOutputStreamTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private byte[] content() {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ((i * 31) % 251);
+        }
+        return content;
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        return Streams.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    /**
+     * Every block is written as a gzip member, the members are read as one
+     * stream again.
+     */
+    @Test
+    public void testMembers() throws IOException {
+        byte[] content = content();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream(out, Deflater.DEFAULT_COMPRESSION, 3,
+                executor, 1000);
+        for (int i = 0; i < content.length; i += 777) {
+            gzip.write(content, i, Math.min(777, content.length - i));
+            gzip.flush();
+        }
+        gzip.close();
+        assertEquals(100, gzip.membersWritten());
+        assertArrayEquals(content, gunzip(out.toByteArray()));
+    }
+
+    /**
+     * Nothing written results in a valid but empty gzip stream.
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream(out, Deflater.DEFAULT_COMPRESSION, 2,
+                executor, 1000);
+        gzip.close();
+        assertEquals(1, gzip.membersWritten());
+        assertEquals(0, gunzip(out.toByteArray()).length);
+    }
+
+    /**
+     * A single thread results in a plain gzip stream.
+     */
+    @Test
+    public void testSingleThread() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ParallelGZIPOutputStream.gzip(out, Deflater.BEST_SPEED, 1, executor) instanceof GZIPOutputStream);
+        assertTrue(ParallelGZIPOutputStream.gzip(out, Deflater.BEST_SPEED, 2, executor)
+                instanceof ParallelGZIPOutputStream);
+    }
+
+    @Test
+    public void testLevel() throws IOException {
+        byte[] content = content();
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream(stored, Deflater.NO_COMPRESSION, 2,
+                executor, 10000);
+        gzip.write(content);
+        gzip.close();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        gzip = new ParallelGZIPOutputStream(compressed, Deflater.BEST_COMPRESSION, 2, executor, 10000);
+        gzip.write(content);
+        gzip.close();
+        assertTrue(stored.size() > content.length);
+        assertTrue(compressed.size() < content.length / 2);
+        assertArrayEquals(content, gunzip(stored.toByteArray()));
+        assertArrayEquals(content, gunzip(compressed.toByteArray()));
+    }
+
+    /**
+     * Rejections of the executor are thrown to the writing thread.
+     */
+    @Test
+    public void testFailure() throws IOException {
+        Executor failing = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new IllegalStateException("rejected");
+            }
+        };
+        ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream(new ByteArrayOutputStream(),
+                Deflater.DEFAULT_COMPRESSION, 2, failing, 1000);
+        try {
+            gzip.write(content());
+            fail("expected the failure of the executor");
+        } catch (IllegalStateException e) {
+            assertEquals("rejected", e.getMessage());
+        }
+    }
+}
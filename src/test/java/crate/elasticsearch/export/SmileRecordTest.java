@@ -0,0 +1,158 @@
+package crate.elasticsearch.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.smile.SmileXContent;
+import org.junit.Test;
+
+/**
+ * Unit test for the @SmileRecordWriter and @SmileRecordReader classes.
+ */
+public class SmileRecordTest {
+
+    private BytesReference object(String id) throws IOException {
+        XContentBuilder builder = SmileXContent.contentBuilder();
+        builder.startObject().field("_id", id).startObject("_source").field("name", "item" + id).endObject().endObject();
+        return builder.bytes();
+    }
+
+    private String id(SmileRecordReader records) {
+        Map<String, Object> map = XContentHelper.convertToMap(records.object(), false).v2();
+        return (String) map.get("_id");
+    }
+
+    @Test
+    public void testDictionary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SmileRecordWriter writer = new SmileRecordWriter(out, "users", Arrays.asList("a", "b"), true, true);
+        assertEquals(1, writer.entry("a"));
+        assertEquals(2, writer.entry("b"));
+        // unknown types are written with their index and type
+        assertEquals(0, writer.entry("c"));
+        writer.writeRecord(writer.entry("b"), object("1"));
+        writer.writeRecord(writer.entry("a"), object("2"));
+        writer.writeRecord(writer.entry("c"), object("3"));
+
+        SmileRecordReader records = new SmileRecordReader(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(records.next());
+        assertEquals("users", records.index());
+        assertEquals("b", records.type());
+        assertEquals("1", id(records));
+        assertTrue(records.next());
+        assertEquals("users", records.index());
+        assertEquals("a", records.type());
+        assertEquals("2", id(records));
+        assertTrue(records.next());
+        assertNull(records.index());
+        assertNull(records.type());
+        assertEquals("3", id(records));
+        assertFalse(records.next());
+    }
+
+    /**
+     * Records written with one builder can be read on their own, names of
+     * previous records are not referred to.
+     */
+    @Test
+    public void testSharedBuilder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SmileRecordWriter writer = new SmileRecordWriter(out, "users", Arrays.asList("a"), false, false);
+        BytesStreamOutput recordOut = new BytesStreamOutput();
+        XContentBuilder builder = new XContentBuilder(SmileRecordXContent.smileRecordXContent, recordOut);
+        for (int i = 0; i < 3; i++) {
+            recordOut.reset();
+            SmileRecordXContent.writeHeader(recordOut);
+            builder.startObject().field("_id", String.valueOf(i)).startObject("_source")
+                    .field("name", "item" + i).endObject().endObject();
+            builder.flush();
+            writer.writeRecord(0, recordOut.bytes());
+        }
+
+        SmileRecordReader records = new SmileRecordReader(new ByteArrayInputStream(out.toByteArray()));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(records.next());
+            assertEquals(String.valueOf(i), id(records));
+        }
+        assertFalse(records.next());
+    }
+
+    @Test
+    public void testIndexOnly() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SmileRecordWriter writer = new SmileRecordWriter(out, "users", Arrays.asList("a", "b"), true, false);
+        assertEquals(1, writer.entry("a"));
+        assertEquals(1, writer.entry("c"));
+        writer.writeRecord(writer.entry("a"), object("1"));
+
+        SmileRecordReader records = new SmileRecordReader(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(records.next());
+        assertEquals("users", records.index());
+        assertNull(records.type());
+        assertFalse(records.next());
+    }
+
+    @Test
+    public void testHeaderOnly() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SmileRecordWriter writer = new SmileRecordWriter(out, "users", Arrays.asList("a"), false, false);
+        assertEquals(0, writer.entry("a"));
+        writer.writeHeader();
+        writer.writeHeader();
+
+        SmileRecordReader records = new SmileRecordReader(new ByteArrayInputStream(out.toByteArray()));
+        assertFalse(records.next());
+    }
+
+    @Test
+    public void testLargeRecords() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SmileRecordWriter writer = new SmileRecordWriter(out, "users", Arrays.asList("a"), true, true);
+        char[] chars = new char[5000];
+        Arrays.fill(chars, 'x');
+        String id = new String(chars);
+        writer.writeRecord(1, object(id));
+        writer.writeRecord(1, object("1"));
+
+        SmileRecordReader records = new SmileRecordReader(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(records.next());
+        assertEquals(id, id(records));
+        assertTrue(records.next());
+        assertEquals("1", id(records));
+        assertFalse(records.next());
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        try {
+            new SmileRecordReader(new ByteArrayInputStream(new byte[0]));
+            fail("empty files have no header");
+        } catch (EOFException e) {
+            assertEquals("Empty SMILE record file", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotSmileRecords() throws IOException {
+        try {
+            new SmileRecordReader(new ByteArrayInputStream("{\"_id\": \"1\"}\n".getBytes()));
+            fail("JSON lines are not SMILE records");
+        } catch (IOException e) {
+            assertEquals("Not in SMILE record format", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package crate.elasticsearch.import_;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.Test;
+
+/**
+ * Unit test for the @BulkController class.
+ */
+public class BulkControllerTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private BulkController controller(boolean adaptive) {
+        return new BulkController(new BulkOptions()
+                .size(4 * MB)
+                .concurrentRequests(4)
+                .adaptive(adaptive)
+                .targetLatency(TimeValue.timeValueSeconds(1))
+                .backoff(TimeValue.timeValueMillis(50)));
+    }
+
+    @Test
+    public void testFixed() {
+        BulkController controller = controller(false);
+        controller.onBulk(SLOW, 10);
+        controller.onBulk(FAST, 0);
+        assertEquals(4 * MB, controller.size());
+        assertEquals(4, controller.concurrentRequests());
+        BulkStats stats = controller.stats();
+        assertEquals(2, stats.bulks());
+    }
+
+    @Test
+    public void testRejectionHalves() {
+        BulkController controller = controller(true);
+        controller.onBulk(FAST, 3);
+        assertEquals(2 * MB, controller.size());
+        assertEquals(2, controller.concurrentRequests());
+        for (int i = 0; i < 10; i++) {
+            controller.onBulk(FAST, 1);
+        }
+        assertEquals(BulkController.MIN_SIZE, controller.size());
+        assertEquals(1, controller.concurrentRequests());
+    }
+
+    @Test
+    public void testSlowShrinks() {
+        BulkController controller = controller(true);
+        controller.onBulk(SLOW, 0);
+        assertEquals(3 * MB, controller.size());
+        assertEquals(4, controller.concurrentRequests());
+    }
+
+    @Test
+    public void testFastGrows() {
+        BulkController controller = controller(true);
+        for (int i = 0; i < BulkController.INCREASE_AFTER - 1; i++) {
+            controller.onBulk(FAST, 0);
+        }
+        assertEquals(4 * MB, controller.size());
+        controller.onBulk(FAST, 0);
+        assertEquals(5 * MB, controller.size());
+        assertEquals(5, controller.concurrentRequests());
+        for (int i = 0; i < 100; i++) {
+            controller.onBulk(FAST, 0);
+        }
+        assertEquals(16 * MB, controller.size());
+        assertEquals(8, controller.concurrentRequests());
+    }
+
+    @Test
+    public void testBackoff() {
+        BulkController controller = controller(false);
+        assertEquals(50, controller.backoff(1).millis());
+        assertEquals(100, controller.backoff(2).millis());
+        assertEquals(400, controller.backoff(4).millis());
+        assertEquals(50 << BulkController.MAX_BACKOFF_DOUBLINGS, controller.backoff(100).millis());
+    }
+
+    @Test
+    public void testStats() {
+        BulkController controller = controller(true);
+        controller.onBulk(FAST, 2);
+        controller.onRetry(2);
+        controller.onBulk(FAST, 0);
+        controller.onRejected(1);
+        BulkStats stats = controller.stats();
+        assertEquals(2, stats.bulks());
+        assertEquals(2, stats.retries());
+        assertEquals(1, stats.rejected());
+        assertEquals(2 * MB, stats.sizeInBytes());
+        assertEquals(2, stats.concurrentRequests());
+    }
+}
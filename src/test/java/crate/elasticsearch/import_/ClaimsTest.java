@@ -0,0 +1,72 @@
+package crate.elasticsearch.import_;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for the @Claims class.
+ */
+public class ClaimsTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("claims", "");
+        directory.delete();
+        directory.mkdir();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testClaimOnce() throws IOException {
+        File file = new File(directory, "a.json");
+        file.createNewFile();
+        assertTrue(Claims.claim(file, null, "import", "node1"));
+        assertFalse(Claims.claim(file, null, "import", "node2"));
+        // another import claims the file again
+        assertTrue(Claims.claim(file, null, "other", "node2"));
+        Claims.finish(Arrays.asList(directory), "import");
+        assertTrue(new File(directory, Claims.DIRECTORY).exists());
+        Claims.finish(Arrays.asList(directory), "other");
+        assertFalse(new File(directory, Claims.DIRECTORY).exists());
+    }
+
+    /**
+     * Finishing an import lists the claims which were not done and deletes
+     * all claims.
+     */
+    @Test
+    public void testFinish() throws IOException {
+        File a = new File(directory, "a.json");
+        File b = new File(directory, "b.json");
+        a.createNewFile();
+        b.createNewFile();
+        Claims.claim(a, null, "import", "node1");
+        Claims.claim(b, null, "import", "node2");
+        Claims.done(a, null, "import");
+        List<Claims.Unfinished> unfinished = Claims.finish(Arrays.asList(directory), "import");
+        assertEquals(1, unfinished.size());
+        assertEquals(b.getPath(), unfinished.get(0).unit());
+        assertEquals("node2", unfinished.get(0).nodeId());
+        assertFalse(new File(directory, Claims.DIRECTORY).exists());
+        assertEquals(0, Claims.finish(Arrays.asList(directory), "import").size());
+    }
+}
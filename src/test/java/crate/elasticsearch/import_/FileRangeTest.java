@@ -0,0 +1,149 @@
+package crate.elasticsearch.import_;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import crate.elasticsearch.export.Compression;
+import crate.elasticsearch.export.ParallelGZIPOutputStream;
+
+/**
+ * Unit test for the @FileRange class.
+ */
+public class FileRangeTest {
+
+    private File file;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("range", ".json");
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        executor.shutdownNow();
+    }
+
+    private List<String> lines(int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder line = new StringBuilder("{\"_id\":\"" + i + "\",\"name\":\"");
+            for (int j = 0; j < i % 17; j++) {
+                line.append('x');
+            }
+            lines.add(line.append("\"}").toString());
+        }
+        return lines;
+    }
+
+    private void write(OutputStream out, List<String> lines) throws IOException {
+        try {
+            for (String line : lines) {
+                out.write((line + "\n").getBytes("UTF-8"));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private List<String> read(List<FileRange> ranges) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        long end = 0;
+        for (FileRange range : ranges) {
+            assertEquals(end, range.start());
+            end = range.end();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(range.open(), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        assertEquals(file.length(), end);
+        return lines;
+    }
+
+    @Test
+    public void testUncompressed() throws IOException {
+        List<String> lines = lines(500);
+        write(new FileOutputStream(file), lines);
+        List<FileRange> ranges = FileRange.split(file, null, 1000);
+        assertTrue(ranges.size() > 10);
+        assertEquals(lines, read(ranges));
+    }
+
+    @Test
+    public void testUncompressedAtNewlines() throws IOException {
+        write(new FileOutputStream(file), lines(100));
+        for (FileRange range : FileRange.split(file, null, 300)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(range.open(), "UTF-8"));
+            try {
+                assertTrue(reader.readLine().startsWith("{\"_id\":"));
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSmallFile() throws IOException {
+        write(new FileOutputStream(file), lines(10));
+        assertEquals(1, FileRange.split(file, null, file.length()).size());
+    }
+
+    @Test
+    public void testGzipMembers() throws IOException {
+        List<String> lines = lines(2000);
+        // members of 100 bytes, not aligned to the lines
+        write(new ParallelGZIPOutputStream(new FileOutputStream(file), 6, 2, executor, 100), lines);
+        List<FileRange> ranges = FileRange.split(file, Compression.GZIP, 2000);
+        assertTrue(ranges.size() > 5);
+        assertEquals(lines, read(ranges));
+    }
+
+    @Test
+    public void testGzipLinesLongerThanRanges() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            line.append(i % 10);
+        }
+        for (int i = 0; i < 20; i++) {
+            lines.add(i + line.toString());
+        }
+        write(new ParallelGZIPOutputStream(new FileOutputStream(file), 0, 2, executor, 128), lines);
+        List<FileRange> ranges = FileRange.split(file, Compression.GZIP, 500);
+        assertTrue(ranges.size() > 20);
+        assertEquals(lines, read(ranges));
+    }
+
+    @Test
+    public void testGzipSingleMember() throws IOException {
+        List<String> lines = lines(2000);
+        write(new GZIPOutputStream(new FileOutputStream(file)), lines);
+        List<FileRange> ranges = FileRange.split(file, Compression.GZIP, 100);
+        assertEquals(1, ranges.size());
+        assertEquals(lines, read(ranges));
+    }
+}
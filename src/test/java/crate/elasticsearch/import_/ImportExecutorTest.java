@@ -0,0 +1,102 @@
+package crate.elasticsearch.import_;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for the @ImportExecutor class.
+ */
+public class ImportExecutorTest {
+
+    private ImportExecutor executor;
+    private final List<Long> imported = Collections.synchronizedList(new ArrayList<Long>());
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        executor = new ImportExecutor(ImmutableSettings.settingsBuilder()
+                .put("inout.import.threads", 4)
+                .put("inout.import.queue_size", 10)
+                .build());
+        executor.start();
+    }
+
+    @After
+    public void tearDown() {
+        executor.stop();
+        executor.close();
+    }
+
+    private List<Callable<Long>> imports(long... sizes) {
+        List<Callable<Long>> imports = new ArrayList<Callable<Long>>();
+        for (final long size : sizes) {
+            imports.add(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    imported.add(size);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return size;
+                }
+            });
+        }
+        return imports;
+    }
+
+    @Test
+    public void testLargestFirst() {
+        long[] sizes = {10, 30, 20};
+        List<Long> results = executor.executeAll(sizes, imports(sizes), 1);
+        assertEquals(Arrays.asList(30L, 20L, 10L), imported);
+        // the results keep the order of the given imports
+        assertEquals(Arrays.asList(10L, 30L, 20L), results);
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void testParallelism() {
+        long[] sizes = {1, 2, 3, 4, 5, 6, 7, 8};
+        List<Long> results = executor.executeAll(sizes, imports(sizes), 2);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), results);
+        assertEquals(8, imported.size());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testFailure() {
+        List<Callable<Long>> imports = imports(1, 2);
+        imports.add(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                throw new ElasticsearchException("import failed");
+            }
+        });
+        try {
+            executor.executeAll(new long[]{1, 2, 3}, imports, 2);
+            fail("the failure is passed on");
+        } catch (ElasticsearchException e) {
+            assertEquals("import failed", e.getMessage());
+        }
+        // the other files are imported nevertheless
+        assertEquals(2, imported.size());
+    }
+}
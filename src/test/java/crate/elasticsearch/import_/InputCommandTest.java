@@ -0,0 +1,123 @@
+package crate.elasticsearch.import_;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import crate.elasticsearch.export.Compression;
+
+/**
+ * Unit test for the @InputCommand class. These tests call UNIX commands
+ * and are only executable on Linux/MacOS Systems.
+ */
+public class InputCommandTest {
+
+    @Test
+    public void testWithoutStart() {
+        assertNull(new InputCommand("cat").getInputStream());
+    }
+
+    /**
+     * A not existing command raises an IO exception when opening.
+     */
+    @Test
+    public void testErrorCommand() {
+        InputCommand inputCommand = new InputCommand("_notexistingcommand");
+        try {
+            inputCommand.open();
+        } catch (IOException e) {
+            return;
+        }
+        fail("Test should raise IOException");
+    }
+
+    /**
+     * The standard out of the command is read, the standard error and the
+     * exit code are in the result.
+     */
+    @Test
+    public void testCommandList() throws IOException {
+        InputCommand inputCommand = new InputCommand(Arrays.asList(
+                "/bin/sh", "-c", "echo line1; echo line2; echo error >&2; exit 3"));
+        inputCommand.open();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputCommand.getInputStream(), "UTF-8"));
+        assertEquals("line1", reader.readLine());
+        assertEquals("line2", reader.readLine());
+        assertNull(reader.readLine());
+        inputCommand.close();
+        assertEquals(3, inputCommand.result().exit);
+        assertEquals("error\n", inputCommand.result().stdErr);
+    }
+
+    /**
+     * Closing before the standard out is read to its end lets the command
+     * finish.
+     */
+    @Test
+    public void testCloseUnread() throws IOException {
+        InputCommand inputCommand = new InputCommand(Arrays.asList("/bin/sh", "-c", "seq 1 100000"));
+        inputCommand.open();
+        inputCommand.close();
+        assertEquals(0, inputCommand.result().exit);
+    }
+
+    /**
+     * Aborting destroys the command instead of reading its standard out
+     * to the end, children still holding its standard error are not
+     * waited for.
+     */
+    @Test
+    public void testAbort() throws IOException {
+        InputCommand inputCommand = new InputCommand(Arrays.asList("/bin/sh", "-c", "sleep 60 & while true; do echo line; done"));
+        inputCommand.open();
+        inputCommand.getInputStream().read();
+        long start = System.currentTimeMillis();
+        inputCommand.abort();
+        assertTrue(System.currentTimeMillis() - start < 30000);
+        assertTrue(inputCommand.result().exit != 0);
+    }
+
+    private static File gzipMember(String line) throws IOException {
+        File file = File.createTempFile("member", ".gz");
+        file.deleteOnExit();
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+        try {
+            out.write((line + "\n").getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Gzip members written one after another are all read, even if the
+     * next member is not in the pipe yet when the previous one ends.
+     */
+    @Test
+    public void testGzipMembers() throws IOException {
+        File first = gzipMember("line1");
+        File second = gzipMember("line2");
+        InputCommand inputCommand = new InputCommand(Arrays.asList("/bin/sh", "-c",
+                "cat " + first.getPath() + "; sleep 0.5; cat " + second.getPath()));
+        inputCommand.open();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Compression.GZIP.decompress(inputCommand.getInputStream()), "UTF-8"));
+        assertEquals("line1", reader.readLine());
+        assertEquals("line2", reader.readLine());
+        assertNull(reader.readLine());
+        inputCommand.close();
+        assertEquals(0, inputCommand.result().exit);
+    }
+}
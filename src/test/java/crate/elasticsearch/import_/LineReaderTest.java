@@ -0,0 +1,59 @@
+package crate.elasticsearch.import_;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the @LineReader class.
+ */
+public class LineReaderTest {
+
+    private List<String> read(String content, int bufferSize) throws IOException {
+        LineReader reader = new LineReader(new ByteArrayInputStream(content.getBytes("UTF-8")), bufferSize);
+        List<String> lines = new ArrayList<String>();
+        while (reader.next()) {
+            lines.add(new String(reader.bytes(), reader.offset(), reader.length(), "UTF-8"));
+        }
+        assertFalse(reader.next());
+        return lines;
+    }
+
+    @Test
+    public void testLines() throws IOException {
+        List<String> lines = read("{\"a\":1}\n{\"b\":\"ü\"}\r\n\n{\"c\":3}", 1024);
+        assertEquals(4, lines.size());
+        assertEquals("{\"a\":1}", lines.get(0));
+        assertEquals("{\"b\":\"ü\"}", lines.get(1));
+        assertEquals("", lines.get(2));
+        assertEquals("{\"c\":3}", lines.get(3));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertTrue(read("", 16).isEmpty());
+        assertEquals(1, read("\n", 16).size());
+    }
+
+    @Test
+    public void testLinesLongerThanBuffer() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < i * 3; j++) {
+                line.append((char) ('a' + j % 26));
+            }
+            expected.add(line.toString());
+            content.append(line).append('\n');
+        }
+        assertEquals(expected, read(content.toString(), 7));
+    }
+}
@@ -1,6 +1,8 @@
 package crate.elasticsearch.module;
 
 import crate.elasticsearch.plugin.inout.InOutPlugin;
+import org.elasticsearch.cache.recycler.DefaultPageCacheRecyclerModule;
+import org.elasticsearch.cache.recycler.PageCacheRecyclerModule;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
@@ -9,7 +11,9 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -27,6 +31,23 @@ import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 @ElasticsearchIntegrationTest.ClusterScope(scope = ElasticsearchIntegrationTest.Scope.SUITE, numNodes = 2)
 public abstract class AbstractRestActionTest extends ElasticsearchIntegrationTest {
 
+    private static final String PAGE_CACHE_IMPL_PROPERTY = "es." + PageCacheRecyclerModule.CACHE_IMPL;
+
+    /**
+     * Nodes started after the initial ones, e.g. by ensureAtLeastNumNodes,
+     * don't get the settings of {@link #nodeSettings(int)}. System
+     * properties apply to all nodes.
+     */
+    @BeforeClass
+    public static void setDefaultPageCacheRecycler() {
+        System.setProperty(PAGE_CACHE_IMPL_PROPERTY, DefaultPageCacheRecyclerModule.class.getName());
+    }
+
+    @AfterClass
+    public static void clearDefaultPageCacheRecycler() {
+        System.clearProperty(PAGE_CACHE_IMPL_PROPERTY);
+    }
+
     @Override
     protected Settings nodeSettings(int nodeOrdinal) {
         Settings settings = ImmutableSettings.settingsBuilder()
@@ -35,6 +56,9 @@ public abstract class AbstractRestActionTest extends ElasticsearchIntegrationTes
                 .put("index.number_of_shards", defaultShardCount())
                 .put("index.number_of_replicas", 0)
                 .put("http.enabled", false)
+                // the mock page recycler of the test framework misses its
+                // page wrapper class, the exporter needs working pages
+                .put(PageCacheRecyclerModule.CACHE_IMPL, DefaultPageCacheRecyclerModule.class.getName())
                 .build();
         return settings;
     }
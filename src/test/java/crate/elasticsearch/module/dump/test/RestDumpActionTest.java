@@ -142,6 +142,35 @@ public class RestDumpActionTest extends AbstractRestActionTest {
     }
 
 
+    /**
+     * Parallel dumps have the part number in the file names, settings and
+     * mappings are written next to every part.
+     */
+    @Test
+    public void testParallelism() {
+        String clusterName = admin().cluster().prepareHealth().
+                setWaitForGreenStatus().execute().actionGet().getClusterName();
+        String filename_0 = "/tmp/" + clusterName + "_users_0_0.json.gz";
+        String filename_1 = "/tmp/" + clusterName + "_users_1_0.json.gz";
+
+        ExportResponse response = executeDumpRequest(
+                "{\"directory\": \"/tmp\", \"parallelism\": 2, \"force_overwrite\": true}");
+
+        assertEquals(0, response.getFailedShards());
+        List<Map<String, Object>> infos = getExports(response);
+        assertEquals(2, infos.size());
+        for (Map<String, Object> info : infos) {
+            String prefix = "/tmp/" + clusterName + "_users_" + info.get("shard");
+            assertEquals(prefix + "_${part}.json.gz", info.get("output_file"));
+            List<Map<String, Object>> parts = (List<Map<String, Object>>) info.get("parts");
+            assertEquals(prefix + "_0.json.gz", parts.get(0).get("output_file"));
+        }
+        assertEquals(2, readLinesFromGZIP(filename_0).size());
+        assertEquals(2, readLinesFromGZIP(filename_1).size());
+        assertTrue(new File(filename_0 + ".settings").exists());
+        assertTrue(new File(filename_0 + ".mapping").exists());
+    }
+
     /**
      * The 'force_overwrite' parameter forces existing files to be overwritten.
      */
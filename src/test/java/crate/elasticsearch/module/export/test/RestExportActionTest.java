@@ -2,19 +2,30 @@ package crate.elasticsearch.module.export.test;
 
 import static org.elasticsearch.common.io.Streams.copyToStringFromClasspath;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ProcessedClusterStateUpdateTask;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.indices.IndexMissingException;
 import org.junit.Test;
@@ -22,6 +33,7 @@ import org.junit.Test;
 import crate.elasticsearch.action.export.ExportAction;
 import crate.elasticsearch.action.export.ExportRequest;
 import crate.elasticsearch.action.export.ExportResponse;
+import crate.elasticsearch.export.SmileRecordReader;
 import crate.elasticsearch.module.AbstractRestActionTest;
 
 public class RestExportActionTest extends AbstractRestActionTest {
@@ -203,6 +215,138 @@ public class RestExportActionTest extends AbstractRestActionTest {
         assertEquals("{\"name\":\"bus\",\"_id\":\"4\"}", lines_1.get(1));
     }
 
+    /**
+     * The compression might use multiple threads, which write the blocks as
+     * gzip members of a single file.
+     */
+    @Test
+    public void testParallelGZIPOutputFile() {
+        String clusterName = admin().cluster().prepareHealth().
+                setWaitForGreenStatus().execute().actionGet().getClusterName();
+        String filename_0 = "/tmp/" + clusterName + ".0.users.pzipexport.gz";
+        new File(filename_0).delete();
+
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_file\": \"/tmp/${cluster}.${shard}.${index}.pzipexport.gz\", \"fields\": [\"name\", \"_id\"], " +
+                "\"compression\": {\"type\": \"gzip\", \"threads\": 2, \"level\": 1}}");
+
+        assertEquals(0, response.getFailedShards());
+        List<String> lines_0 = readLinesFromGZIP(filename_0);
+        assertEquals(2, lines_0.size());
+        assertEquals("{\"name\":\"car\",\"_id\":\"1\"}", lines_0.get(0));
+        assertEquals("{\"name\":\"train\",\"_id\":\"3\"}", lines_0.get(1));
+    }
+
+    /**
+     * Unknown compression options lead to an error response.
+     */
+    @Test
+    public void testUnknownCompressionOption() {
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_cmd\": \"cat\", \"fields\": [\"name\"], \"compression\": {\"speed\": 1}}");
+
+        assertEquals(2, response.getFailedShards());
+        assertTrue(response.getShardFailures()[0].reason().contains("Unknown compression option [speed]"));
+    }
+
+    /**
+     * The 'smile' format writes length prefixed SMILE records, the index and
+     * type of the records are stored once in the header of the file.
+     */
+    @Test
+    public void testSmileOutputFile() throws IOException {
+        String clusterName = admin().cluster().prepareHealth().
+                setWaitForGreenStatus().execute().actionGet().getClusterName();
+        String filename_0 = "/tmp/" + clusterName + ".0.users.export.smile";
+        new File(filename_0).delete();
+
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_file\": \"/tmp/${cluster}.${shard}.${index}.export.smile\", " +
+                "\"fields\": [\"name\", \"_id\", \"_index\", \"_type\"], \"format\": \"smile\"}");
+
+        assertEquals(0, response.getFailedShards());
+        SmileRecordReader records = new SmileRecordReader(new BufferedInputStream(new FileInputStream(filename_0)));
+        List<String> objects = new ArrayList<String>();
+        while (records.next()) {
+            assertEquals("users", records.index());
+            assertEquals("d", records.type());
+            objects.add(XContentHelper.convertToJson(records.object(), false));
+        }
+        records.close();
+        assertEquals(2, objects.size());
+        assertTrue(objects.contains("{\"name\":\"car\",\"_id\":\"1\"}"));
+        assertTrue(objects.contains("{\"name\":\"train\",\"_id\":\"3\"}"));
+    }
+
+    /**
+     * Unknown formats lead to an error response.
+     */
+    @Test
+    public void testUnknownFormat() {
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_cmd\": \"cat\", \"fields\": [\"name\"], \"format\": \"xml\"}");
+
+        assertEquals(2, response.getFailedShards());
+        assertTrue(response.getShardFailures()[0].reason().contains("Format 'xml' unknown or not supported."));
+    }
+
+    /**
+     * The throttle limits are dynamic cluster settings, the shard infos
+     * contain the limits in place and the time the export got paused.
+     */
+    @Test
+    public void testThrottle() throws InterruptedException {
+        client().admin().cluster().prepareUpdateSettings().setTransientSettings(
+                ImmutableSettings.settingsBuilder().put("inout.throttle.docs_per_sec", 10)).execute().actionGet();
+        try {
+            ExportResponse response = executeExportRequest("users",
+                    "{\"output_cmd\": \"cat\", \"fields\": [\"name\"]}");
+
+            assertEquals(0, response.getFailedShards());
+            List<Map<String, Object>> infos = getExports(response);
+            assertEquals(2, infos.size());
+            for (Map<String, Object> shardInfo : infos) {
+                Map<String, Object> throttle = (Map<String, Object>) shardInfo.get("throttle");
+                assertEquals(true, throttle.get("throttled"));
+                assertEquals(10, throttle.get("docs_per_sec"));
+                assertEquals(0, throttle.get("bytes_per_sec"));
+                assertTrue(throttle.containsKey("paused_millis"));
+            }
+        } finally {
+            client().admin().cluster().prepareUpdateSettings().setTransientSettings(
+                    ImmutableSettings.settingsBuilder().put("inout.throttle.docs_per_sec", 0)).execute().actionGet();
+            clearTransientSettings();
+        }
+    }
+
+    /**
+     * Transient settings can not be removed by the update settings API, but
+     * the test cluster expects them to be gone after a test.
+     */
+    private void clearTransientSettings() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        String master = client().admin().cluster().prepareState().execute().actionGet()
+                .getState().nodes().masterNode().name();
+        cluster().getInstance(ClusterService.class, master).submitStateUpdateTask("clear transient settings", new ProcessedClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) {
+                return ClusterState.builder(currentState).metaData(MetaData.builder(currentState.metaData())
+                        .transientSettings(ImmutableSettings.EMPTY)).build();
+            }
+
+            @Override
+            public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
     /**
      * Only one parameter of the two 'output_file' or 'output_cmd' can be used.
      */
@@ -335,7 +479,147 @@ public class RestExportActionTest extends AbstractRestActionTest {
     }
 
     /**
-     * Only the compression format 'gzip' or no compression is supported.
+     * Exporting all docs walks the live docs, deleted docs are skipped.
+     * Matches of other queries are exported in the order of the doc ids.
+     */
+    @Test
+    public void testDocOrder() {
+        prepareCreate("ordered").setSettings(ImmutableSettings.builder().put("index.number_of_shards", 1).build())
+                .execute().actionGet();
+        ensureGreen("ordered");
+        for (int i = 1; i <= 4; i++) {
+            index("ordered", "d", String.valueOf(i), "name", "doc " + i);
+        }
+        refresh();
+        cluster().masterClient().prepareDelete("ordered", "d", "2").execute().actionGet();
+        refresh();
+
+        ExportResponse response = executeExportRequest("ordered",
+                "{\"output_cmd\": \"cat\", \"fields\": [\"_id\"]}");
+        List<Map<String, Object>> infos = getExports(response);
+        assertShardInfoCommand(infos.get(0), "ordered", 0,
+                "{\"_id\":\"1\"}\n{\"_id\":\"3\"}\n{\"_id\":\"4\"}\n", "", null);
+
+        response = executeExportRequest("ordered",
+                "{\"output_cmd\": \"cat\", \"fields\": [\"_id\"], \"query\": {\"bool\": {\"should\": [" +
+                "{\"term\": {\"_id\": \"4\"}}, {\"term\": {\"_id\": \"1\"}}, {\"term\": {\"_id\": \"2\"}}]}}}");
+        infos = getExports(response);
+        assertShardInfoCommand(infos.get(0), "ordered", 0,
+                "{\"_id\":\"1\"}\n{\"_id\":\"4\"}\n", "", null);
+    }
+
+    /**
+     * With the parallelism option the segments of a shard get exported in
+     * parts, every part gets written to its own file.
+     */
+    @Test
+    public void testParallelism() {
+        prepareCreate("parallel").setSettings(ImmutableSettings.builder().put("index.number_of_shards", 1).build())
+                .execute().actionGet();
+        ensureGreen("parallel");
+        // every refresh creates a new segment
+        for (int i = 1; i <= 3; i++) {
+            index("parallel", "d", String.valueOf(i), "name", "doc " + i);
+            refresh();
+        }
+        new File("/tmp/parallel.0.export").delete();
+        new File("/tmp/parallel.1.export").delete();
+
+        ExportResponse response = executeExportRequest("parallel",
+                "{\"output_file\": \"/tmp/${index}.${part}.export\", \"fields\": [\"_id\"], \"parallelism\": 2}");
+
+        assertEquals(0, response.getFailedShards());
+        assertEquals(3, response.getTotalExported());
+        List<Map<String, Object>> infos = getExports(response);
+        assertEquals("/tmp/parallel.${part}.export", infos.get(0).get("output_file"));
+        List<Map<String, Object>> parts = (List<Map<String, Object>>) infos.get(0).get("parts");
+        assertEquals(2, parts.size());
+        assertEquals("/tmp/parallel.0.export", parts.get(0).get("output_file"));
+        assertEquals("/tmp/parallel.1.export", parts.get(1).get("output_file"));
+
+        List<String> lines = new ArrayList<String>(readLines("/tmp/parallel.0.export"));
+        assertEquals(lines.size(), parts.get(0).get("numExported"));
+        List<String> lines_1 = readLines("/tmp/parallel.1.export");
+        assertEquals(lines_1.size(), parts.get(1).get("numExported"));
+        lines.addAll(lines_1);
+        Collections.sort(lines);
+        assertEquals(Arrays.asList("{\"_id\":\"1\"}", "{\"_id\":\"2\"}", "{\"_id\":\"3\"}"), lines);
+    }
+
+    /**
+     * Parallel exports into files need the part in the file name.
+     */
+    @Test
+    public void testParallelismWithoutPartVariable() {
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_file\": \"/tmp/${index}.${shard}.export\", \"fields\": [\"_id\"], \"parallelism\": 2}");
+
+        assertEquals(2, response.getFailedShards());
+        assertTrue(response.getShardFailures()[0].reason().contains(
+                "Parameter 'parallelism' requires the variable ${part} in 'output_file'"));
+    }
+
+    /**
+     * Parallel exports into commands need the part in the command, the
+     * parts would write to the same target otherwise.
+     */
+    @Test
+    public void testParallelismOutputCmdWithoutPartVariable() {
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_cmd\": [\"/bin/sh\", \"-c\", \"cat > /tmp/${index}.${shard}.export\"], \"fields\": [\"_id\"], \"parallelism\": 2}");
+
+        assertEquals(2, response.getFailedShards());
+        assertTrue(response.getShardFailures()[0].reason().contains(
+                "Parameter 'parallelism' requires the variable ${part} in 'output_cmd'"));
+    }
+
+    /**
+     * The pipeline compresses and writes in stages of their own and reports
+     * the busy and idle times of the stages.
+     */
+    @Test
+    public void testPipeline() {
+        prepareCreate("pipeline").setSettings(ImmutableSettings.builder().put("index.number_of_shards", 1).build())
+                .execute().actionGet();
+        ensureGreen("pipeline");
+        for (int i = 0; i < 500; i++) {
+            index("pipeline", "d", String.valueOf(i), "name", "doc " + i);
+        }
+        refresh();
+        new File("/tmp/pipeline.export.gz").delete();
+
+        ExportResponse response = executeExportRequest("pipeline",
+                "{\"output_file\": \"/tmp/${index}.export.gz\", \"fields\": [\"_id\"], " +
+                "\"compression\": \"gzip\", \"pipeline\": {\"queue_size\": 1, \"block_size\": \"1kb\"}}");
+
+        assertEquals(0, response.getFailedShards());
+        assertEquals(500, response.getTotalExported());
+        Map<String, Object> pipeline = (Map<String, Object>) getExports(response).get(0).get("pipeline");
+        assertTrue(pipeline.containsKey("fetch"));
+        assertTrue(pipeline.containsKey("compress"));
+        assertTrue(((Map<String, Object>) pipeline.get("write")).containsKey("idle_millis"));
+
+        List<String> lines = readLinesFromGZIP("/tmp/pipeline.export.gz");
+        assertEquals(500, lines.size());
+        assertTrue(lines.contains("{\"_id\":\"42\"}"));
+    }
+
+    /**
+     * The blocks handed over to the pipeline stages must fit into an array.
+     */
+    @Test
+    public void testPipelineBlockSize() {
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_file\": \"/tmp/${index}.${shard}.export\", \"fields\": [\"_id\"], " +
+                "\"pipeline\": {\"block_size\": \"4gb\"}}");
+
+        assertEquals(2, response.getFailedShards());
+        assertTrue(response.getShardFailures()[0].reason().contains(
+                "Pipeline option 'block_size' must be between 1b and 2gb"));
+    }
+
+    /**
+     * Only the compression formats 'gzip' and 'lz4' or no compression are supported.
      */
     @Test
     public void testUnsopportedCompressionFormat() {
@@ -406,6 +690,29 @@ public class RestExportActionTest extends AbstractRestActionTest {
                 findStdOut);
     }
 
+    /**
+     * A compressed _source gets decompressed while it is written to the
+     * output. Line breaks of the stored source are replaced by blanks.
+     */
+    @Test
+    public void testCompressedSource() {
+        prepareCreate("compressed").setSettings(ImmutableSettings.builder().put("index.number_of_shards", 1).build())
+                .addMapping("d", "{\"d\": {\"_source\": {\"compress\": true}}}").execute().actionGet();
+        ensureGreen("compressed");
+        cluster().masterClient().prepareIndex("compressed", "d", "1")
+                .setSource("{\"name\": \"compressed bike\",\n\"wheels\": 2}").execute().actionGet();
+        refresh();
+
+        ExportResponse response = executeExportRequest("compressed",
+                "{\"output_cmd\": \"cat\", \"fields\": [\"_source\", \"_id\"]}");
+
+        List<Map<String, Object>> infos = getExports(response);
+        assertEquals(1, infos.size());
+        assertShardInfoCommand(infos.get(0), "compressed", 0,
+                "{\"_source\":{\"name\": \"compressed bike\", \"wheels\": 2},\"_id\":\"1\"}\n",
+                "", null);
+    }
+
     /**
      * The _timestamp field is not returned if the mapping does not store the timestamps.
      */
@@ -529,6 +836,40 @@ public class RestExportActionTest extends AbstractRestActionTest {
         assertTrue(m0.group(2) != m1.group(2));
     }
 
+    /**
+     * The file options set the write buffer, the preallocation, the syncing
+     * and the placement of the output files. Preallocated files get
+     * truncated to the exported docs.
+     */
+    @Test
+    public void testFileOptions() {
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_file\": \"export.${shard}.${index}.options.json\", \"fields\": [\"name\", \"_id\"], " +
+                "\"force_overwrite\": true, \"file_options\": {\"buffer_size\": \"64kb\", " +
+                "\"preallocate\": \"1mb\", \"fsync\": \"close\", \"placement\": \"striped\"}}");
+
+        assertEquals(0, response.getFailedShards());
+        List<Map<String, Object>> infos = getExports(response);
+        assertEquals(2, infos.size());
+        List<String> lines = readLines(infos.get(0).get("output_file").toString());
+        lines.addAll(readLines(infos.get(1).get("output_file").toString()));
+        assertEquals(4, lines.size());
+        assertTrue(lines.contains("{\"name\":\"car\",\"_id\":\"1\"}"));
+        assertTrue(new File(infos.get(0).get("output_file").toString()).length() < 1024);
+    }
+
+    /**
+     * Unknown file options lead to an error response.
+     */
+    @Test
+    public void testUnknownFileOption() {
+        ExportResponse response = executeExportRequest("users",
+                "{\"output_cmd\": \"cat\", \"fields\": [\"name\"], \"file_options\": {\"placement\": \"random\"}}");
+
+        assertEquals(2, response.getFailedShards());
+        assertTrue(response.getShardFailures()[0].reason().contains("Placement 'random' unknown or not supported."));
+    }
+
     /**
      * If the target folder does not allow to write to the export will abort with a proper response
      */
@@ -13,6 +13,7 @@ import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.ESLoggerFactory;
@@ -27,6 +28,7 @@ import crate.elasticsearch.action.export.ExportResponse;
 import crate.elasticsearch.action.import_.ImportAction;
 import crate.elasticsearch.action.import_.ImportRequest;
 import crate.elasticsearch.action.import_.ImportResponse;
+import crate.elasticsearch.import_.Claims;
 import crate.elasticsearch.module.AbstractRestActionTest;
 
 import static org.elasticsearch.common.io.Streams.copyToStringFromClasspath;
@@ -291,6 +293,226 @@ public class RestImportActionTest extends AbstractRestActionTest {
         assertTrue(existsWithField("511", "name", "511"));
     }
 
+    /**
+     * With ``input_cmd`` the objects are read from the standard out of a
+     * command, its exit code and standard error are listed in the response.
+     */
+    @Test
+    public void testInputCommand() {
+        cluster().ensureAtMostNumNodes(1);
+        String path = getClass().getResource("/importdata/import_1/import_1.json").getPath();
+        ImportResponse response = executeImportRequest("{\"input_cmd\": [\"/bin/sh\", \"-c\", \"cat " + path + "; echo done >&2\"]}");
+        List<Map<String, Object>> imports = getImports(response);
+        assertEquals(1, imports.size());
+        assertTrue(imports.get(0).get("imported_files").toString().matches(
+                "\\[\\{file_name=\\[/bin/sh, -c, cat (.*)import_1.json; echo done >&2\\], successes=2, failures=0\\}\\]"));
+        Map<String, Object> inputCmd = (Map<String, Object>) imports.get(0).get("input_cmd");
+        assertEquals(0, inputCmd.get("exitcode"));
+        assertEquals("done\n", inputCmd.get("stderr"));
+        assertTrue(existsWithField("102", "name", "102"));
+        assertTrue(existsWithField("103", "name", "103"));
+    }
+
+    /**
+     * A gzip stream of several members, like the output of a parallel
+     * compression, is read from the standard out of the command to its end.
+     */
+    @Test
+    public void testInputCommandGzipMembers() {
+        cluster().ensureAtMostNumNodes(1);
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"input_cmd\": [\"/bin/sh\", \"-c\", \"gzip -c " + path +
+                "/import_5_a.json; sleep 0.5; gzip -c " + path + "/import_5_b.json\"], \"compression\": \"gzip\"}");
+        List<Map<String, Object>> imports = getImports(response);
+        assertEquals(1, imports.size());
+        assertTrue(imports.get(0).get("imported_files").toString().contains("successes=2, failures=0"));
+        assertTrue(existsWithField("501", "name", "501"));
+        assertTrue(existsWithField("511", "name", "511"));
+    }
+
+    @Test
+    public void testInputCommandWithDirectory() {
+        ImportResponse response = executeImportRequest("{\"input_cmd\": \"cat\", \"directory\": \"/tmp\"}");
+        List<Map<String, Object>> failures = getImportFailures(response);
+        assertEquals(1, failures.size());
+        assertTrue(failures.toString().contains("Options 'directory' and 'input_cmd' cannot be combined"));
+    }
+
+    /**
+     * With the ``shared`` option the nodes claim the files of the shared
+     * directory, every file is imported by exactly one node.
+     */
+    @Test
+    public void testSharedMultipleNodes() {
+        cluster().ensureAtMostNumNodes(2);
+        cluster().ensureAtLeastNumNodes(2);
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", \"shared\": true}");
+        List<Map<String, Object>> imports = getImports(response);
+        assertEquals(2, imports.size());
+        int claimed = 0;
+        int successes = 0;
+        for (Map<String, Object> nodeInfo : imports) {
+            Map<String, Object> shared = (Map<String, Object>) nodeInfo.get("shared");
+            assertEquals(shared.get("claimed"), shared.get("completed"));
+            claimed += ((Number) shared.get("claimed")).intValue();
+            for (Map<String, Object> counts : (List<Map<String, Object>>) nodeInfo.get("imported_files")) {
+                successes += ((Number) counts.get("successes")).intValue();
+            }
+        }
+        assertEquals(2, claimed);
+        assertEquals(2, successes);
+        assertEquals(1, client().prepareGet("test", "d", "501").execute().actionGet().getVersion());
+        assertEquals(1, client().prepareGet("test", "d", "511").execute().actionGet().getVersion());
+        assertEquals(0, response.getUnfinished().size());
+        assertFalse(new File(path, Claims.DIRECTORY).exists());
+    }
+
+    /**
+     * With a parallelism greater than 1 the files of a node are imported
+     * concurrently, every file is still reported with its own counts.
+     */
+    @Test
+    public void testParallelism() {
+        cluster().ensureAtMostNumNodes(1);
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", \"parallelism\": 2}");
+        List<Map<String, Object>> imports = getImports(response);
+        assertEquals(1, imports.size());
+        assertTrue(imports.get(0).get("imported_files").toString().matches(
+                "\\[\\{file_name=(.*)import_5_[ab].json, successes=1, failures=0\\}, \\{file_name=(.*)import_5_[ab].json, successes=1, failures=0\\}\\]"));
+        assertTrue(existsWithField("501", "name", "501"));
+        assertTrue(existsWithField("511", "name", "511"));
+    }
+
+    /**
+     * Files larger than the ``range_size`` are split into ranges at newlines,
+     * the counts of the ranges are reported for the file.
+     */
+    @Test
+    public void testRanges() {
+        cluster().ensureAtMostNumNodes(1);
+        String path = getClass().getResource("/importdata/import_1").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", \"parallelism\": 2, \"range_size\": \"50b\"}");
+        List<Map<String, Object>> imports = getImports(response);
+        assertEquals(1, imports.size());
+        assertTrue(imports.get(0).get("imported_files").toString().matches(
+                "\\[\\{file_name=(.*)import_1.json, successes=2, failures=0\\}\\]"));
+        assertTrue(existsWithField("102", "name", "102"));
+        assertTrue(existsWithField("103", "name", "103"));
+    }
+
+    @Test
+    public void testBadParallelism() {
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", \"parallelism\": 0}");
+        List<Map<String, Object>> failures = getImportFailures(response);
+        assertEquals(1, failures.size());
+        assertTrue(failures.toString().contains("Parameter 'parallelism' must be at least 1"));
+    }
+
+    /**
+     * The ``bulk`` option defines the bulk requests, the final size and
+     * concurrency of the bulks are reported per node.
+     */
+    @Test
+    public void testBulkOptions() {
+        String path = getClass().getResource("/importdata/import_2").getPath();
+        ImportResponse response = executeImportRequest("test", "d", "{\"directory\": \"" + path + "\", " +
+                "\"bulk\": {\"actions\": 1, \"concurrent_requests\": 2, \"adaptive\": true, \"max_retries\": 5}}");
+        List<Map<String, Object>> imports = getImports(response);
+        Map<String, Object> bulk = (Map<String, Object>) imports.get(0).get("bulk");
+        assertEquals(true, bulk.get("adaptive"));
+        assertTrue(((Number) bulk.get("bulks")).intValue() > 1);
+        assertTrue(((Number) bulk.get("concurrent_requests")).intValue() >= 1);
+        assertEquals(0, ((Number) bulk.get("rejected")).intValue());
+        assertTrue(imports.get(0).get("imported_files").toString().matches(
+                "\\[\\{file_name=(.*)import_2.json, successes=4, failures=0\\}\\]"));
+    }
+
+    /**
+     * The files of an import share the bulks, the objects are still counted
+     * for the file they were read from.
+     */
+    @Test
+    public void testBulksSharedByFiles() {
+        cluster().ensureAtMostNumNodes(1);
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\"}");
+        List<Map<String, Object>> imports = getImports(response);
+        Map<String, Object> bulk = (Map<String, Object>) imports.get(0).get("bulk");
+        assertEquals(1, ((Number) bulk.get("bulks")).intValue());
+        assertTrue(imports.get(0).get("imported_files").toString().matches(
+                "\\[\\{file_name=(.*)import_5_[ab].json, successes=1, failures=0\\}, \\{file_name=(.*)import_5_[ab].json, successes=1, failures=0\\}\\]"));
+    }
+
+    @Test
+    public void testUnknownBulkOption() {
+        String path = getClass().getResource("/importdata/import_2").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", \"bulk\": {\"flush\": 1}}");
+        List<Map<String, Object>> failures = getImportFailures(response);
+        assertEquals(1, failures.size());
+        assertTrue(failures.toString().contains("Unknown bulk option [flush]"));
+    }
+
+    /**
+     * A ``bulk_load`` disables the refresh and the replicas of the indices
+     * during the import and restores their settings afterwards.
+     */
+    @Test
+    public void testBulkLoad() throws IOException {
+        cluster().ensureAtMostNumNodes(1);
+        client().admin().indices().prepareUpdateSettings("test").setSettings(
+                ImmutableSettings.builder().put("index.refresh_interval", "2s").put("index.number_of_replicas", 1).build())
+                .execute().actionGet();
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", " +
+                "\"bulk_load\": {\"max_num_segments\": 1, \"wait_for_status\": \"yellow\", \"timeout\": \"10s\"}}");
+        Map<String, Object> bulkLoad = (Map<String, Object>) toMap(response).get("bulk_load");
+        assertEquals("[test]", bulkLoad.get("indices").toString());
+        assertEquals(true, bulkLoad.get("optimized"));
+        assertEquals("yellow", bulkLoad.get("status"));
+        assertTrue(existsWithField("501", "name", "501"));
+        assertTrue(existsWithField("511", "name", "511"));
+
+        ClusterStateRequest clusterStateRequest = Requests.clusterStateRequest().metaData(true).indices("test");
+        IndexMetaData metaData = cluster().masterClient().admin().cluster().state(clusterStateRequest).actionGet().getState().metaData().index("test");
+        assertEquals("2s", metaData.settings().get("index.refresh_interval"));
+        assertEquals(1, metaData.numberOfReplicas());
+    }
+
+    /**
+     * Indices having the bulk load settings without being switched by the
+     * import keep them.
+     */
+    @Test
+    public void testBulkLoadLeavesOtherIndices() throws IOException {
+        cluster().ensureAtMostNumNodes(1);
+        createIndex("other");
+        client().admin().indices().prepareUpdateSettings("other").setSettings(
+                ImmutableSettings.builder().put("index.refresh_interval", "-1").put("index.number_of_replicas", 0).build())
+                .execute().actionGet();
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", \"bulk_load\": true}");
+        Map<String, Object> bulkLoad = (Map<String, Object>) toMap(response).get("bulk_load");
+        assertEquals("[test]", bulkLoad.get("indices").toString());
+
+        ClusterStateRequest clusterStateRequest = Requests.clusterStateRequest().metaData(true);
+        MetaData metaData = cluster().masterClient().admin().cluster().state(clusterStateRequest).actionGet().getState().metaData();
+        assertEquals("-1", metaData.index("other").settings().get("index.refresh_interval"));
+        assertEquals(0, metaData.index("other").numberOfReplicas());
+        assertEquals("", metaData.index("test").settings().get("index.inout.bulk_load.import_id"));
+    }
+
+    @Test
+    public void testUnknownBulkLoadOption() {
+        String path = getClass().getResource("/importdata/import_5").getPath();
+        ImportResponse response = executeImportRequest("{\"directory\": \"" + path + "\", \"bulk_load\": {\"optimize\": 1}}");
+        List<Map<String, Object>> failures = getImportFailures(response);
+        assertEquals(1, failures.size());
+        assertTrue(failures.toString().contains("Unknown bulk load option [optimize]"));
+    }
+
     /**
      * Some failures may occur in the bulk request results, like Version conflicts.
      * The failures are counted correctly.
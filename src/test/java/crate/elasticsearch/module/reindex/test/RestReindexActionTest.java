@@ -10,6 +10,7 @@ import org.elasticsearch.action.admin.indices.flush.FlushResponse;
 import org.elasticsearch.action.admin.indices.open.OpenIndexResponse;
 import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsResponse;
 import org.elasticsearch.action.count.CountResponse;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
@@ -110,6 +111,28 @@ public class RestReindexActionTest extends AbstractRestActionTest {
 
     }
 
+    @Test
+    public void testReindexKeepsSource() {
+        prepareCreate("test")
+                .setSettings(ImmutableSettings.builder().put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0).build())
+                .execute().actionGet();
+        ensureGreen("test");
+        // the source is passed on unparsed, so its formatting is kept
+        String source = "{\"name\" : \"a nice guy\",  \"tags\" : [ \"x\", \"y\" ]}";
+        cluster().masterClient().prepareIndex("test", "a", "1").setSource(source).execute().actionGet();
+        refresh();
+
+        SearchIntoRequest request = new SearchIntoRequest("test");
+        request.source("{\"query\": {\"match_all\": {}}}");
+        SearchIntoResponse res = cluster().masterClient().execute(ReindexAction.INSTANCE, request).actionGet();
+        assertEquals(0, res.getFailedShards());
+
+        GetResponse get = cluster().masterClient().prepareGet("test", "a", "1").execute().actionGet();
+        assertEquals(2, get.getVersion());
+        assertEquals(source, get.getSourceAsString());
+    }
+
     private static List<Map<String, Object>> get(SearchIntoResponse resp, String key) {
         Map<String, Object> res = null;
         try {
@@ -61,6 +61,96 @@ public class RestRestoreActionTest extends AbstractRestActionTest {
         assertEquals(0, metaData.numberOfReplicas());
     }
 
+    /**
+     * Dumps compressed with lz4 get the extension '.json.lz4' and are
+     * restored with the same compression.
+     */
+    @Test
+    public void testRestoreLZ4DumpedData() throws IOException {
+        File dir = new File("/tmp/lz4dump");
+        if (dir.exists()) {
+            for (File c : dir.listFiles()) {
+                c.delete();
+            }
+        }
+        dir.mkdir();
+
+        setupTestIndexLikeUsers("test", false);
+        index("test", "d", "1", "name", "item1");
+        index("test", "d", "2", "name", "item2");
+        refresh();
+
+        ExportResponse dump = executeDumpRequest("{\"directory\": \"/tmp/lz4dump\", \"compression\": \"lz4\"}");
+        assertEquals(0, dump.getFailedShards());
+        String clusterName = admin().cluster().prepareHealth().
+                setWaitForGreenStatus().execute().actionGet().getClusterName();
+        assertTrue(new File(dir, clusterName + "_test_0.json.lz4").exists());
+        assertTrue(new File(dir, clusterName + "_test_1.json.lz4").exists());
+
+        wipeIndices("test");
+        waitForRelocation();
+
+        executeRestoreRequest("{\"directory\": \"/tmp/lz4dump\", \"compression\": \"lz4\"}");
+        assertTrue(existsWithField("1", "name", "item1", "test", "d"));
+        assertTrue(existsWithField("2", "name", "item2", "test", "d"));
+    }
+
+    /**
+     * Dumps in the smile format get the extension '.smile.gz' and are
+     * restored with the same format.
+     */
+    @Test
+    public void testRestoreSmileDumpedData() throws IOException {
+        File dir = new File("/tmp/smiledump");
+        if (dir.exists()) {
+            for (File c : dir.listFiles()) {
+                c.delete();
+            }
+        }
+        dir.mkdir();
+
+        setupTestIndexLikeUsers("test", false);
+        index("test", "d", "1", "name", "item1");
+        index("test", "d", "2", "name", "item2");
+        refresh();
+
+        ExportResponse dump = executeDumpRequest("{\"directory\": \"/tmp/smiledump\", \"format\": \"smile\"}");
+        assertEquals(0, dump.getFailedShards());
+        String clusterName = admin().cluster().prepareHealth().
+                setWaitForGreenStatus().execute().actionGet().getClusterName();
+        assertTrue(new File(dir, clusterName + "_test_0.smile.gz").exists());
+        assertTrue(new File(dir, clusterName + "_test_1.smile.gz").exists());
+
+        wipeIndices("test");
+        waitForRelocation();
+
+        executeRestoreRequest("{\"directory\": \"/tmp/smiledump\", \"format\": \"smile\"}");
+        assertTrue(existsWithField("1", "name", "item1", "test", "d"));
+        assertTrue(existsWithField("2", "name", "item2", "test", "d"));
+    }
+
+    /**
+     * Striped dumps spread the files over the data locations of the nodes,
+     * a restore of the same relative directory finds them again.
+     */
+    @Test
+    public void testRestoreStripedDump() throws IOException {
+        setupTestIndexLikeUsers("test", false);
+        index("test", "d", "1", "name", "item1");
+        index("test", "d", "2", "name", "item2");
+        refresh();
+
+        ExportResponse dump = executeDumpRequest("{\"directory\": \"stripeddump\", \"force_overwrite\": true, " +
+                "\"file_options\": {\"placement\": \"striped\", \"fsync\": \"close\"}}");
+        assertEquals(0, dump.getFailedShards());
+
+        wipeIndices("test");
+        waitForRelocation();
+
+        executeRestoreRequest("{\"directory\": \"stripeddump\"}");
+        assertTrue(existsWithField("1", "name", "item1", "test", "d"));
+        assertTrue(existsWithField("2", "name", "item2", "test", "d"));
+    }
 
     private boolean existsWithField(String id, String field, String value, String index, String type) {
         GetResponse res = get(index, type, id); // rb.setType(type).setId(id).execute().actionGet();
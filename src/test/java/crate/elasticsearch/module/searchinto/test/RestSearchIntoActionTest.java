@@ -8,10 +8,12 @@ import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.common.jackson.core.JsonParser;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.xcontent.XContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.json.JsonXContentParser;
+import org.elasticsearch.transport.TransportService;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -20,6 +22,7 @@ import crate.elasticsearch.action.searchinto.SearchIntoAction;
 import crate.elasticsearch.action.searchinto.SearchIntoRequest;
 import crate.elasticsearch.action.searchinto.SearchIntoResponse;
 import crate.elasticsearch.module.AbstractRestActionTest;
+import crate.elasticsearch.searchinto.TransportClientCache;
 
 public class RestSearchIntoActionTest extends AbstractRestActionTest {
 
@@ -98,6 +101,89 @@ public class RestSearchIntoActionTest extends AbstractRestActionTest {
     }
     
 
+    @Test
+    public void testSearchIntoTargetNodes() {
+        InetSocketTransportAddress address = (InetSocketTransportAddress) cluster().getInstance(
+                TransportService.class).boundAddress().publishAddress();
+        String target = address.address().getAddress().getHostAddress() + ":" + address.address().getPort();
+        SearchIntoRequest request = new SearchIntoRequest("test");
+        request.source("{\"fields\": [\"_id\", \"_source\", [\"_index\", \"'newindex'\"]], " +
+                "\"targetNodes\": \"" + target + "\"}");
+        SearchIntoResponse res = cluster().masterClient().execute(SearchIntoAction.INSTANCE, request).actionGet();
+        assertEquals(2, res.getSuccessfulShards());
+        refresh();
+        assertTrue(get("newindex", "a", "1").isExists());
+
+        // the shards of a node share the client of the target nodes
+        for (TransportClientCache cache : cluster().getInstances(TransportClientCache.class)) {
+            assertTrue(cache.size() <= 1);
+        }
+    }
+
+    @Test
+    public void testSearchIntoBulkOptions() {
+        index("test", "a", "2", "name", "Jane");
+        index("test", "a", "3", "name", "Joe");
+        refresh();
+        SearchIntoRequest request = new SearchIntoRequest("test");
+        request.source("{\"fields\": [\"_id\", \"_source\", [\"_index\", \"'newindex'\"]], " +
+                "\"bulk\": {\"actions\": 1, \"concurrent_requests\": 2, \"adaptive\": true}}");
+        SearchIntoResponse res = cluster().masterClient().execute(SearchIntoAction.INSTANCE, request).actionGet();
+        assertEquals(2, res.getSuccessfulShards());
+        assertEquals(3, res.getTotalWrites());
+        assertEquals(3, res.getSucceededWrites());
+
+        // every document is a bulk of its own, the bulks of shards on the
+        // same node are counted for all of them
+        for (Map<String, Object> write : getWrites(res)) {
+            Map<String, Object> bulk = (Map<String, Object>) write.get("bulk");
+            assertEquals(true, bulk.get("adaptive"));
+            assertTrue((Integer) bulk.get("bulks") >= (Integer) write.get("total"));
+            assertTrue((Integer) bulk.get("bulks") <= 3);
+        }
+    }
+
+    /**
+     * With more shards than nodes, shards of a node share the bulks of the
+     * request, the documents are still counted for their shards.
+     */
+    @Test
+    public void testSearchIntoSharedBulks() {
+        prepareCreate("manyshards")
+                .setSettings(ImmutableSettings.builder().put("index.number_of_shards", 4).build())
+                .execute().actionGet();
+        ensureGreen("manyshards");
+        for (int i = 0; i < 20; i++) {
+            index("manyshards", "a", String.valueOf(i), "name", "name" + i);
+        }
+        refresh();
+        SearchIntoRequest request = new SearchIntoRequest("manyshards");
+        request.source("{\"fields\": [\"_id\", \"_source\", [\"_index\", \"'newindex'\"]], " +
+                "\"bulk\": {\"actions\": 3}}");
+        SearchIntoResponse res = cluster().masterClient().execute(SearchIntoAction.INSTANCE, request).actionGet();
+        assertEquals(4, res.getSuccessfulShards());
+        assertEquals(20, res.getTotalWrites());
+        assertEquals(20, res.getSucceededWrites());
+
+        List<Map<String, Object>> writes = getWrites(res);
+        assertEquals(4, writes.size());
+        for (Map<String, Object> write : writes) {
+            assertEquals(write.get("total"), write.get("succeeded"));
+        }
+        refresh();
+        assertEquals(20, cluster().masterClient().prepareCount("newindex").execute().actionGet().getCount());
+    }
+
+    @Test
+    public void testSearchIntoUnknownBulkOption() {
+        SearchIntoRequest request = new SearchIntoRequest("test");
+        request.source("{\"fields\": [\"_id\", \"_source\", [\"_index\", \"'newindex'\"]], " +
+                "\"bulk\": {\"bulks\": 1}}");
+        SearchIntoResponse res = cluster().masterClient().execute(SearchIntoAction.INSTANCE, request).actionGet();
+        assertEquals(2, res.getFailedShards());
+        assertTrue(res.getShardFailures()[0].reason().contains("Unknown bulk option [bulks]"));
+    }
+
     @Test
     public void testNestedObjectsRewriting() throws IOException  {
         prepareNestedIndex();
@@ -0,0 +1,95 @@
+package crate.elasticsearch.searchinto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import crate.elasticsearch.action.searchinto.SearchIntoContext;
+import crate.elasticsearch.import_.BulkOptions;
+
+/**
+ * Unit test for the @BulkSinks class. No documents are added, so the sinks
+ * never send bulks and the clients never connect.
+ */
+public class BulkSinksTest {
+
+    private static final List<InetSocketTransportAddress> LOCAL = Collections.emptyList();
+
+    private ThreadPool threadPool;
+    private TransportClientCache transportClientCache;
+    private BulkSinks bulkSinks;
+
+    @Before
+    public void setUp() {
+        threadPool = new ThreadPool();
+        transportClientCache = new TransportClientCache(ImmutableSettings.settingsBuilder()
+                .put("inout.search_into.clients.max", 1).build(), threadPool);
+        bulkSinks = new BulkSinks(null, threadPool, transportClientCache);
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    private static BulkOptions options() {
+        return SearchIntoContext.defaultBulkOptions();
+    }
+
+    @Test
+    public void testShared() {
+        BulkSinks.Sink first = bulkSinks.acquire("a", options(), LOCAL);
+        assertSame(first, bulkSinks.acquire("a", options(), LOCAL));
+        assertNotSame(first, bulkSinks.acquire("b", options(), LOCAL));
+        assertEquals(2, bulkSinks.size());
+    }
+
+    @Test
+    public void testWithoutId() {
+        BulkSinks.Sink first = bulkSinks.acquire(null, options(), LOCAL);
+        assertNotSame(first, bulkSinks.acquire(null, options(), LOCAL));
+        assertEquals(0, bulkSinks.size());
+    }
+
+    @Test
+    public void testReleasedByLastShard() {
+        BulkSinks.Sink first = bulkSinks.acquire("a", options(), LOCAL);
+        BulkSinks.Sink second = bulkSinks.acquire("a", options(), LOCAL);
+        first.release();
+        assertEquals(1, bulkSinks.size());
+        second.release();
+        assertEquals(0, bulkSinks.size());
+        // a shard starting later gets a new sink
+        assertNotSame(first, bulkSinks.acquire("a", options(), LOCAL));
+    }
+
+    @Test
+    public void testTransportClientReleased() {
+        List<InetSocketTransportAddress> targetNodes = Arrays.asList(
+                new InetSocketTransportAddress("127.0.0.1", 9300));
+        List<InetSocketTransportAddress> otherNodes = Arrays.asList(
+                new InetSocketTransportAddress("127.0.0.1", 9301));
+        BulkSinks.Sink first = bulkSinks.acquire("a", options(), targetNodes);
+        BulkSinks.Sink second = bulkSinks.acquire("a", options(), targetNodes);
+        first.release();
+        // the client is in use, the other target nodes get a client of their own
+        transportClientCache.acquire(otherNodes).release();
+        assertNotSame(transportClientCache.acquire(otherNodes), transportClientCache.acquire(otherNodes));
+
+        second.release();
+        // the unused client gets replaced
+        TransportClientCache.Entry entry = transportClientCache.acquire(otherNodes);
+        assertSame(entry, transportClientCache.acquire(otherNodes));
+    }
+}
@@ -0,0 +1,92 @@
+package crate.elasticsearch.searchinto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for the @TransportClientCache class. The clients are not used,
+ * so they never connect.
+ */
+public class TransportClientCacheTest {
+
+    private ThreadPool threadPool;
+
+    @Before
+    public void setUp() {
+        threadPool = new ThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    private TransportClientCache cache(int max, String idleTimeout) {
+        return new TransportClientCache(ImmutableSettings.settingsBuilder()
+                .put("inout.search_into.clients.max", max)
+                .put("inout.search_into.clients.idle_timeout", idleTimeout).build(), threadPool);
+    }
+
+    private static List<InetSocketTransportAddress> addresses(int... ports) {
+        InetSocketTransportAddress[] addresses = new InetSocketTransportAddress[ports.length];
+        for (int i = 0; i < ports.length; i++) {
+            addresses[i] = new InetSocketTransportAddress("127.0.0.1", ports[i]);
+        }
+        return Arrays.asList(addresses);
+    }
+
+    @Test
+    public void testShared() {
+        TransportClientCache cache = cache(10, "5m");
+        TransportClientCache.Entry first = cache.acquire(addresses(9300, 9301));
+        TransportClientCache.Entry second = cache.acquire(addresses(9301, 9300));
+        assertSame(first, second);
+        assertNotSame(first, cache.acquire(addresses(9300)));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testIdleEviction() {
+        TransportClientCache cache = cache(10, "0s");
+        TransportClientCache.Entry entry = cache.acquire(addresses(9300));
+        cache.acquire(addresses(9300));
+        cache.evictIdle();
+        assertEquals(1, cache.size());
+        entry.release();
+        cache.evictIdle();
+        assertEquals(1, cache.size());
+        entry.release();
+        cache.evictIdle();
+        assertEquals(0, cache.size());
+        assertNotSame(entry, cache.acquire(addresses(9300)));
+    }
+
+    @Test
+    public void testBounded() {
+        TransportClientCache cache = cache(1, "5m");
+        TransportClientCache.Entry first = cache.acquire(addresses(9300));
+        // all cached clients are in use, the client is not cached
+        TransportClientCache.Entry second = cache.acquire(addresses(9301));
+        assertEquals(1, cache.size());
+        assertNotSame(second, cache.acquire(addresses(9301)));
+        second.release();
+
+        // the unused client gets replaced
+        first.release();
+        TransportClientCache.Entry third = cache.acquire(addresses(9301));
+        assertEquals(1, cache.size());
+        assertSame(third, cache.acquire(addresses(9301)));
+        assertNotSame(first, cache.acquire(addresses(9300)));
+    }
+}
@@ -0,0 +1,114 @@
+package crate.elasticsearch.searchinto.mapping;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHitField;
+
+/**
+ * Benchmark of the @MappedFields class, not run by the unit tests.
+ * <p/>
+ * Builds the index requests of a 50 field rename mapping with the compiled
+ * mapping and with the mapping evaluated per hit as it was before, checks
+ * that both produce the same source and prints the times. Run it with the
+ * test classpath, e.g.
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     crate.elasticsearch.searchinto.mapping.MappedFieldsBenchmark [docs] [rounds]
+ * </pre>
+ */
+public class MappedFieldsBenchmark {
+
+    private static final int NUM_FIELDS = 50;
+
+    public static void main(String[] args) {
+        int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Map<String, String> outputNames = new LinkedHashMap<String, String>();
+        Map<String, SearchHitField> fields = new HashMap<String, SearchHitField>();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            outputNames.put("field" + i, "object" + (i % 5) + ".renamed" + i);
+            fields.put("field" + i, new InternalSearchHitField("field" + i, Arrays.<Object>asList("value" + i)));
+        }
+        outputNames.put("_id", "_id");
+        outputNames.put("'test'", "_index");
+        SearchHit hit = new InternalSearchHit(0, "1", new StringText("a"), fields);
+
+        Map<String, FieldReader> readers = new HashMap<String, FieldReader>();
+        for (String name : outputNames.keySet()) {
+            if (!name.startsWith("'")) {
+                readers.put(name, new FieldReader(name));
+            }
+        }
+        MappedFields mappedFields = new MappedFields(outputNames);
+        if (!interpreted(outputNames, readers, hit).sourceAsMap().equals(
+                mappedFields.newIndexRequest(hit).sourceAsMap())) {
+            throw new IllegalStateException("The compiled and the interpreted mapping differ");
+        }
+
+        // the first round warms up
+        for (int round = 0; round <= rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < numDocs; i++) {
+                mappedFields.newIndexRequest(hit);
+            }
+            long compiled = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < numDocs; i++) {
+                interpreted(outputNames, readers, hit);
+            }
+            long interpreted = System.nanoTime() - start;
+            if (round > 0) {
+                System.out.printf("round %d, %d hits of %d renamed fields: compiled %d ms, interpreted %d ms%n",
+                        round, numDocs, NUM_FIELDS, compiled / 1000000, interpreted / 1000000);
+            }
+        }
+    }
+
+    /**
+     * The mapping as it was evaluated before it got compiled: the target
+     * names are split for every hit and the objects are created with the
+     * default size.
+     */
+    private static IndexRequest interpreted(Map<String, String> outputNames, Map<String, FieldReader> readers,
+            SearchHit hit) {
+        Map<String, Object> source = new HashMap<String, Object>();
+        IndexRequest request = new IndexRequest(null, hit.type());
+        for (Map.Entry<String, String> e : outputNames.entrySet()) {
+            FieldReader reader = readers.get(e.getKey());
+            Object value = reader == null ? e.getKey().substring(1, e.getKey().length() - 1) : reader.read(hit);
+            if (e.getValue().equals("_id")) {
+                request.id(value.toString());
+            } else if (e.getValue().equals("_index")) {
+                request.index(value.toString());
+            } else {
+                writeMap(source, value, e.getValue());
+            }
+        }
+        return request.source(source);
+    }
+
+    private static void writeMap(Map<String, Object> root, Object value, String part) {
+        if (part.contains(".")) {
+            String[] parts = part.split("\\.", 2);
+            Object o = root.get(parts[0]);
+            if (o == null) {
+                o = new HashMap<String, Object>();
+            }
+            Map<String, Object> sub = (Map<String, Object>) o;
+            writeMap(sub, value, parts[1]);
+            root.put(parts[0], sub);
+        } else {
+            root.put(part, value);
+        }
+    }
+}
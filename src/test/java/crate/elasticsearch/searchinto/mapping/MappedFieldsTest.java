@@ -0,0 +1,119 @@
+package crate.elasticsearch.searchinto.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHitField;
+import org.junit.Test;
+
+/**
+ * Unit test for the @MappedFields class.
+ */
+public class MappedFieldsTest {
+
+    private static final int NUM_FIELDS = 50;
+
+    private static SearchHit hit(String id, Map<String, Object> values, String source) {
+        Map<String, SearchHitField> fields = new HashMap<String, SearchHitField>();
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            fields.put(e.getKey(), new InternalSearchHitField(e.getKey(), Arrays.asList(e.getValue())));
+        }
+        InternalSearchHit hit = new InternalSearchHit(0, id, new StringText("a"), fields);
+        if (source != null) {
+            hit.sourceRef(new BytesArray(source));
+        }
+        return hit;
+    }
+
+    /**
+     * A mapping renaming 50 fields into 5 objects of 10 fields.
+     */
+    private static Map<String, String> renameMapping() {
+        Map<String, String> outputNames = new LinkedHashMap<String, String>();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            outputNames.put("field" + i, "object" + (i % 5) + ".renamed" + i);
+        }
+        outputNames.put("_id", "_id");
+        outputNames.put("'test'", "_index");
+        return outputNames;
+    }
+
+    private static Map<String, Object> renameValues() {
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            values.put("field" + i, "value" + i);
+        }
+        return values;
+    }
+
+    @Test
+    public void testRename() {
+        MappedFields mappedFields = new MappedFields(renameMapping());
+        IndexRequest request = mappedFields.newIndexRequest(hit("1", renameValues(), null));
+        assertEquals("1", request.id());
+        assertEquals("test", request.index());
+        assertEquals("a", request.type());
+        Map<String, Object> source = request.sourceAsMap();
+        assertEquals(5, source.size());
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            Map<String, Object> object = (Map<String, Object>) source.get("object" + (i % 5));
+            assertEquals(10, object.size());
+            assertEquals("value" + i, object.get("renamed" + i));
+        }
+    }
+
+    @Test
+    public void testObjectSizes() {
+        Map<String, Integer> sizes = MappedFields.getObjectSizes(Arrays.asList(
+                "a.b.c", "a.b.d", "a.e", "f", "_id", "_index"));
+        assertEquals(2, (int) sizes.get(""));
+        assertEquals(2, (int) sizes.get("a"));
+        assertEquals(2, (int) sizes.get("a.b"));
+        assertNull(sizes.get("f"));
+    }
+
+    @Test
+    public void testSourceCopy() {
+        Map<String, String> outputNames = new HashMap<String, String>();
+        outputNames.put("_source", "_source");
+        outputNames.put("'test'", "_index");
+        String source = "{\"name\" : \"John\"}";
+        IndexRequest request = new MappedFields(outputNames).newIndexRequest(
+                hit("1", new HashMap<String, Object>(), source));
+        assertEquals(source, request.source().toUtf8());
+    }
+
+    @Test
+    public void testSourceCopyWithRewrite() {
+        Map<String, String> outputNames = new LinkedHashMap<String, String>();
+        outputNames.put("_source", "_source");
+        outputNames.put("'Doe'", "person.name");
+        outputNames.put("'test'", "_index");
+        IndexRequest request = new MappedFields(outputNames).newIndexRequest(
+                hit("1", new HashMap<String, Object>(), "{\"person\" : {\"age\" : 42}}"));
+        Map<String, Object> person = (Map<String, Object>) request.sourceAsMap().get("person");
+        assertEquals("Doe", person.get("name"));
+        assertEquals(42, person.get("age"));
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void testMixedObjectsAndValues() {
+        Map<String, String> outputNames = new LinkedHashMap<String, String>();
+        outputNames.put("'x'", "person");
+        outputNames.put("'Doe'", "person.name");
+        outputNames.put("'test'", "_index");
+        new MappedFields(outputNames).newIndexRequest(hit("1", new HashMap<String, Object>(), null));
+    }
+}
@@ -0,0 +1,84 @@
+package crate.elasticsearch.throttle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.junit.Test;
+
+/**
+ * Unit test for the @Throttle class.
+ */
+public class ThrottleTest {
+
+    private Throttle throttle(Settings settings) {
+        return new Throttle(settings, new NodeSettingsService(settings));
+    }
+
+    @Test
+    public void testUnlimited() {
+        Throttle throttle = throttle(ImmutableSettings.EMPTY);
+        assertEquals(0, throttle.bytesPerSec());
+        assertEquals(0, throttle.docsPerSec());
+        long paused = 0;
+        for (int i = 0; i < 1000; i++) {
+            paused += throttle.pause(1024 * 1024, 1);
+        }
+        assertEquals(0, paused);
+    }
+
+    @Test
+    public void testDocsPerSec() {
+        Throttle throttle = throttle(ImmutableSettings.settingsBuilder()
+                .put(Throttle.DOCS_PER_SEC, 100).build());
+        assertEquals(100, throttle.docsPerSec());
+        long start = System.nanoTime();
+        long paused = 0;
+        for (int i = 0; i < 21; i++) {
+            paused += throttle.pause(10, 1);
+        }
+        // the first doc is free, the other 20 take 10ms each
+        long took = System.nanoTime() - start;
+        assertTrue(paused >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertTrue(took >= TimeUnit.MILLISECONDS.toNanos(190));
+    }
+
+    @Test
+    public void testBytesPerSec() {
+        Throttle throttle = throttle(ImmutableSettings.settingsBuilder()
+                .put(Throttle.BYTES_PER_SEC, "1kb").build());
+        assertEquals(1024, throttle.bytesPerSec());
+        long start = System.nanoTime();
+        long paused = 0;
+        for (int i = 0; i < 3; i++) {
+            paused += throttle.pause(256, 1);
+        }
+        // the first 256 bytes are free, the other 512 bytes take half a second
+        assertTrue(paused >= TimeUnit.MILLISECONDS.toNanos(450));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(490));
+    }
+
+    @Test
+    public void testRateChange() {
+        Throttle throttle = throttle(ImmutableSettings.settingsBuilder()
+                .put(Throttle.DOCS_PER_SEC, 1).build());
+        throttle.pause(0, 1);
+        // without the change the next doc had to wait for a second
+        throttle.docsPerSec(0);
+        assertEquals(0, throttle.pause(0, 1));
+        throttle.docsPerSec(1000);
+        assertEquals(0, throttle.pause(0, 1));
+    }
+
+    @Test
+    public void testStats() {
+        Throttle throttle = throttle(ImmutableSettings.settingsBuilder()
+                .put(Throttle.BYTES_PER_SEC, "10mb").build());
+        ThrottleStats stats = throttle.stats(TimeUnit.MILLISECONDS.toNanos(42));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(42), stats.pausedNanos());
+    }
+}